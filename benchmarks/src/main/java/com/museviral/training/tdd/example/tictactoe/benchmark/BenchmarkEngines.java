@@ -0,0 +1,108 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.benchmark;
+
+import java.util.SplittableRandom;
+
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+
+/**
+ * Creates the engines of the benchmarks, and makes the winning check
+ * callable on its own.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+final class BenchmarkEngines {
+
+	/**
+	 * Number of tokens in a row to win on boards larger than 3 x 3.
+	 */
+	static final int WIN_LENGTH = 5;
+
+	private BenchmarkEngines() {
+	}
+
+	/**
+	 * An engine which can check the winning conditions without placing a
+	 * token.
+	 */
+	interface Checkable {
+
+		TicTacToeEngine engine();
+
+		void check();
+
+	}
+
+	/**
+	 * Returns the classic engine for a size of 3, otherwise a K-in-a-row
+	 * engine.
+	 */
+	static Checkable create(int size) {
+
+		if (size == 3) {
+			return new Classic();
+		}
+
+		return new InARow(size);
+	}
+
+	/**
+	 * Place random tokens until the given part of the board is filled,
+	 * skipping moves which would end the game.
+	 */
+	static void fill(TicTacToeEngine engine, double fill, SplittableRandom random) {
+
+		int cells = engine.getWidth() * engine.getHeight();
+		int target = (int) (cells * fill);
+
+		for (int attempts = 0; engine.getTokenCount() < target
+				&& attempts < cells * 100; attempts++) {
+
+			int cell = random.nextInt(cells);
+			if (!engine.place(cell % engine.getWidth(), cell / engine.getWidth()))
+				continue;
+			if (engine.getGameState() != GameState.InProgress)
+				engine.undo();
+		}
+	}
+
+	private static final class Classic extends TicTacToeEngine implements
+			Checkable {
+
+		@Override
+		public TicTacToeEngine engine() {
+			return this;
+		}
+
+		@Override
+		public void check() {
+			checkWinningConditions();
+		}
+
+	}
+
+	private static final class InARow extends KInARowEngine implements
+			Checkable {
+
+		InARow(int size) {
+			super(size, size, Math.min(size, WIN_LENGTH));
+		}
+
+		@Override
+		public TicTacToeEngine engine() {
+			return this;
+		}
+
+		@Override
+		public void check() {
+			checkWinningConditions();
+		}
+
+	}
+
+}
@@ -0,0 +1,141 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.museviral.training.tdd.example.tictactoe.ConsoleRenderer;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeConsole;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+
+/**
+ * Benchmark of the board rendering of {@link TicTacToeConsole} and of
+ * {@link ConsoleRenderer}, whose frames are one write, and only the changed
+ * cells in ANSI mode. The output goes to a {@link Blackhole} instead of the
+ * terminal.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConsoleBenchmark {
+
+	@Param({ "3", "7", "15" })
+	int size;
+
+	@Param({ "0.0", "0.5" })
+	double fill;
+
+	private BlackholeConsole console;
+
+	private BlackholeOutputStream out;
+
+	private ConsoleRenderer renderer;
+
+	private ConsoleRenderer ansiRenderer;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		TicTacToeEngine engine = BenchmarkEngines.create(size).engine();
+		BenchmarkEngines.fill(engine, fill, new SplittableRandom(42));
+
+		console = new BlackholeConsole(engine);
+
+		out = new BlackholeOutputStream();
+		renderer = new ConsoleRenderer(engine, out, false);
+		ansiRenderer = new ConsoleRenderer(engine, out, true);
+	}
+
+	@Benchmark
+	public void drawBoard(Blackhole blackhole) {
+		console.blackhole = blackhole;
+		console.drawBoard();
+	}
+
+	@Benchmark
+	public void render(Blackhole blackhole) throws IOException {
+		out.blackhole = blackhole;
+		renderer.render();
+	}
+
+	/**
+	 * A frame where nothing changed since the previous one.
+	 */
+	@Benchmark
+	public void renderAnsi(Blackhole blackhole) throws IOException {
+		out.blackhole = blackhole;
+		ansiRenderer.render();
+	}
+
+	/**
+	 * A complete ANSI frame, as after a restart of the screen.
+	 */
+	@Benchmark
+	public void renderAnsiFull(Blackhole blackhole) throws IOException {
+		out.blackhole = blackhole;
+		ansiRenderer.invalidate();
+		ansiRenderer.render();
+	}
+
+	private static final class BlackholeConsole extends TicTacToeConsole {
+
+		Blackhole blackhole;
+
+		BlackholeConsole(TicTacToeEngine engine) {
+			super(engine);
+		}
+
+		@Override
+		protected void println(Object o) {
+			blackhole.consume(o);
+		}
+
+		@Override
+		protected void print(Object o) {
+			blackhole.consume(o);
+		}
+
+	}
+
+	private static final class BlackholeOutputStream extends OutputStream {
+
+		Blackhole blackhole;
+
+		@Override
+		public void write(int b) {
+			blackhole.consume(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			blackhole.consume(b);
+			blackhole.consume(len);
+		}
+
+	}
+
+}
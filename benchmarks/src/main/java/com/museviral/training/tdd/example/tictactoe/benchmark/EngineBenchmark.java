@@ -0,0 +1,138 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+
+/**
+ * Benchmarks of {@link TicTacToeEngine#place(int, int)}, the winning check,
+ * {@link TicTacToeEngine#restart()} and whole random games, on boards of
+ * several sizes and fill levels. Run with <code>-prof gc</code> to see the
+ * allocation per operation.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+
+	/**
+	 * Number of cells on a side; 3 is the classic engine, larger boards
+	 * need {@link BenchmarkEngines#WIN_LENGTH} in a row.
+	 */
+	@Param({ "3", "7", "15" })
+	int size;
+
+	/**
+	 * Part of the board filled before measuring.
+	 */
+	@Param({ "0.0", "0.5" })
+	double fill;
+
+	private BenchmarkEngines.Checkable checkable;
+
+	private TicTacToeEngine engine;
+
+	private TicTacToeEngine game;
+
+	private SplittableRandom random;
+
+	private int[] empty;
+
+	private int emptyCount;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		random = new SplittableRandom(42);
+
+		checkable = BenchmarkEngines.create(size);
+		engine = checkable.engine();
+		BenchmarkEngines.fill(engine, fill, random);
+
+		game = BenchmarkEngines.create(size).engine();
+
+		// the last move must be known to check the winning conditions.
+		if (engine.getTokenCount() == 0) {
+			engine.place(size / 2, size / 2);
+		}
+
+		int cells = size * size;
+		empty = new int[cells];
+		for (int cell = 0; cell < cells; cell++) {
+			if (engine.getToken(cell % size, cell / size) == null)
+				empty[emptyCount++] = cell;
+		}
+	}
+
+	/**
+	 * Place a token on the next empty cell, and take it back.
+	 */
+	@Benchmark
+	public boolean place() {
+
+		int cell = empty[next];
+		next = (next + 1 == emptyCount) ? 0 : next + 1;
+
+		boolean placed = engine.place(cell % size, cell / size);
+		if (placed)
+			engine.undo();
+
+		return placed;
+	}
+
+	@Benchmark
+	public GameState checkWinningConditions() {
+		checkable.check();
+		return engine.getGameState();
+	}
+
+	@Benchmark
+	public int restart() {
+		game.restart();
+		return game.getTokenCount();
+	}
+
+	/**
+	 * Restart the game and play random moves until it is over.
+	 */
+	@Benchmark
+	public int randomGame() {
+
+		game.restart();
+
+		int cells = size * size;
+		while (game.getGameState() == GameState.InProgress) {
+			int cell = random.nextInt(cells);
+			game.place(cell % size, cell / size);
+		}
+
+		return game.getTokenCount();
+	}
+
+}
@@ -0,0 +1,107 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.event.GameEventAdapter;
+import com.museviral.training.tdd.example.tictactoe.event.RingBufferDispatcher;
+
+/**
+ * Benchmark of random games without event listener, with a listener called
+ * by the engine, and with the same listener behind a
+ * {@link RingBufferDispatcher}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventBenchmark {
+
+	@Param({ "3", "15" })
+	int size;
+
+	@Param({ "none", "sync", "ring" })
+	String listener;
+
+	private TicTacToeEngine game;
+
+	private SplittableRandom random;
+
+	private RingBufferDispatcher dispatcher;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		random = new SplittableRandom(42);
+		game = BenchmarkEngines.create(size).engine();
+
+		CountingListener counter = new CountingListener();
+		if ("sync".equals(listener)) {
+			game.setGameEventListener(counter);
+		} else if ("ring".equals(listener)) {
+			dispatcher = new RingBufferDispatcher(counter, 1 << 16);
+			game.setGameEventListener(dispatcher);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (dispatcher != null) {
+			dispatcher.close();
+		}
+	}
+
+	/**
+	 * Restart the game and play random moves until it is over.
+	 */
+	@Benchmark
+	public int randomGame() {
+
+		game.restart();
+
+		int cells = size * size;
+		while (game.getGameState() == GameState.InProgress) {
+			int cell = random.nextInt(cells);
+			game.place(cell % size, cell / size);
+		}
+
+		return game.getTokenCount();
+	}
+
+	private static final class CountingListener extends GameEventAdapter {
+
+		long sum;
+
+		@Override
+		public void placed(int x, int y, Token token, int moveNumber) {
+			sum += x + y + moveNumber;
+		}
+
+	}
+
+}
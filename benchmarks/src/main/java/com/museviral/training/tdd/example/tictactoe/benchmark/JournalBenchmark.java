@@ -0,0 +1,137 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.journal.MoveJournal;
+import com.museviral.training.tdd.example.tictactoe.server.GameSession;
+import com.museviral.training.tdd.example.tictactoe.server.GameSessionRegistry;
+import com.museviral.training.tdd.example.tictactoe.server.MoveStatus;
+
+/**
+ * Records per second of {@link MoveJournal}, alone and behind the moves of
+ * a journaled {@link GameSessionRegistry}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+	private static final int SESSIONS = 10000;
+
+	private File directory;
+
+	private MoveJournal journal;
+
+	private GameSessionRegistry registry;
+
+	private GameSessionRegistry plainRegistry;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+
+		directory = Files.createTempDirectory("journal").toFile();
+		journal = new MoveJournal(directory);
+
+		registry = new GameSessionRegistry(new BitboardTicTacToeEngine(),
+				journal);
+		plainRegistry = new GameSessionRegistry(new BitboardTicTacToeEngine());
+		for (int i = 0; i < SESSIONS; i++) {
+			registry.create();
+			plainRegistry.create();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		journal.close();
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@State(Scope.Thread)
+	public static class Player {
+
+		SplittableRandom random = new SplittableRandom(Thread.currentThread()
+				.getId());
+
+		int x;
+
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void append1(Player player) {
+		journal.appendMove(player.random.nextInt(SESSIONS), player.x++ & 3,
+				0, Token.CROSS);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void append4(Player player) {
+		journal.appendMove(player.random.nextInt(SESSIONS), player.x++ & 3,
+				0, Token.CROSS);
+	}
+
+	private static MoveStatus move(GameSessionRegistry registry,
+			Player player) {
+
+		long id = 1 + player.random.nextInt(SESSIONS);
+		int cell = player.random.nextInt(9);
+
+		MoveStatus status = registry.play(id, null, cell % 3, cell / 3);
+		if (status == MoveStatus.GAME_OVER) {
+			GameSession session = registry.get(id);
+			session.restart();
+		}
+
+		return status;
+	}
+
+	@Benchmark
+	@Threads(1)
+	public MoveStatus registryMove(Player player) {
+		return move(registry, player);
+	}
+
+	/**
+	 * The same moves without journal.
+	 */
+	@Benchmark
+	@Threads(1)
+	public MoveStatus registryMoveWithoutJournal(Player player) {
+		return move(plainRegistry, player);
+	}
+
+}
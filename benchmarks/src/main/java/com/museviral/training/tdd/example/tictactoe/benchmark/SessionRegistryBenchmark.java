@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.server.GameSession;
+import com.museviral.training.tdd.example.tictactoe.server.GameSessionRegistry;
+import com.museviral.training.tdd.example.tictactoe.server.MoveStatus;
+
+/**
+ * Moves per second of {@link GameSessionRegistry} with many open games, for
+ * 1 to 8 threads playing random moves in random games. A finished game is
+ * restarted by the thread which sees it.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionRegistryBenchmark {
+
+	@Param({ "100000" })
+	int sessions;
+
+	private GameSessionRegistry registry;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		registry = new GameSessionRegistry(new BitboardTicTacToeEngine());
+		for (int i = 0; i < sessions; i++) {
+			registry.create();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Player {
+
+		SplittableRandom random = new SplittableRandom(Thread.currentThread()
+				.getId());
+
+	}
+
+	private MoveStatus move(Player player) {
+
+		long id = 1 + player.random.nextInt(sessions);
+		int cell = player.random.nextInt(9);
+
+		MoveStatus status = registry.play(id, null, cell % 3, cell / 3);
+		if (status == MoveStatus.GAME_OVER) {
+			GameSession session = registry.get(id);
+			session.restart();
+		}
+
+		return status;
+	}
+
+	@Benchmark
+	@Threads(1)
+	public MoveStatus threads1(Player player) {
+		return move(player);
+	}
+
+	@Benchmark
+	@Threads(2)
+	public MoveStatus threads2(Player player) {
+		return move(player);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public MoveStatus threads4(Player player) {
+		return move(player);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public MoveStatus threads8(Player player) {
+		return move(player);
+	}
+
+}
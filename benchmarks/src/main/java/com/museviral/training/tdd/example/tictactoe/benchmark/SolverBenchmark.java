@@ -0,0 +1,88 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.ai.ParallelSolver;
+import com.museviral.training.tdd.example.tictactoe.ai.SearchResult;
+import com.museviral.training.tdd.example.tictactoe.ai.TranspositionTable;
+
+/**
+ * Time of one {@link ParallelSolver} search with 1, 2, 4 and all (0)
+ * threads: a 4 x 4 board with 4 in a row and two tokens solved to the end,
+ * and the empty 5 x 5 board with 4 in a row searched 9 plies deep. The table
+ * is cleared before every search.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SolverBenchmark {
+
+	@Param({ "4", "5" })
+	int size;
+
+	@Param({ "1", "2", "4", "0" })
+	int threads;
+
+	private ForkJoinPool pool;
+
+	private ParallelSolver solver;
+
+	private TicTacToeEngine engine;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime()
+				.availableProcessors());
+		solver = new ParallelSolver(pool, new TranspositionTable(20));
+		engine = new KInARowEngine(size, size, 4);
+		if (size > 4) {
+			solver.setMaxDepth(9);
+		} else {
+			engine.place(1, 1);
+			engine.place(2, 1);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void clearTable() {
+		solver.getTable().clear();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public SearchResult search() {
+		return solver.search(engine);
+	}
+
+}
@@ -0,0 +1,10 @@
+/**
+ * 
+ */
+/**
+ * JMH benchmarks of the tic tac toe engine.
+ * 
+ * @author Cyril
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.benchmark;
@@ -0,0 +1,214 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe;
+
+/**
+ * A {@link TicTacToeEngine} which keeps the board as one bitmask per player
+ * instead of a <code>Token[][]</code>.
+ * <p>
+ *
+ * Cell <code>(x, y)</code> is stored in bit <code>y * 3 + x</code>. A player
+ * wins when one of the precomputed line masks is fully contained in his
+ * bitmask, so the win check is a handful of AND/compare operations.
+ *
+ * @author Cyril
+ * @since 0.3.0
+ */
+public class BitboardTicTacToeEngine extends TicTacToeEngine {
+
+	/**
+	 * Number of cells on a side of the board.
+	 */
+	private static final int SIZE = 3;
+
+	/**
+	 * Bitmask with all cells set.
+	 */
+	protected static final int FULL_BOARD = (1 << (SIZE * SIZE)) - 1;
+
+	/**
+	 * All winning lines: three rows, three columns and two diagonals.
+	 */
+	protected static final int[] WIN_MASKS = createWinMasks();
+
+	/**
+	 * The winning lines passing through each cell, indexed by bit position.
+	 */
+	protected static final int[][] CELL_WIN_MASKS = createCellWinMasks();
+
+	/**
+	 * Cells occupied by {@link TicTacToeEngine.Token#CIRCLE}.
+	 */
+	protected int circleMask;
+
+	/**
+	 * Cells occupied by {@link TicTacToeEngine.Token#CROSS}.
+	 */
+	protected int crossMask;
+
+	public BitboardTicTacToeEngine() {
+		super();
+	}
+
+	private static int[] createWinMasks() {
+
+		int[] masks = new int[SIZE * 2 + 2];
+		int n = 0;
+
+		// rows and columns.
+		for (int i = 0; i < SIZE; i++) {
+			int row = 0;
+			int column = 0;
+			for (int j = 0; j < SIZE; j++) {
+				row |= bit(j, i);
+				column |= bit(i, j);
+			}
+			masks[n++] = row;
+			masks[n++] = column;
+		}
+
+		// diagonals.
+		int diagonal = 0;
+		int antiDiagonal = 0;
+		for (int i = 0; i < SIZE; i++) {
+			diagonal |= bit(i, i);
+			antiDiagonal |= bit(SIZE - 1 - i, i);
+		}
+		masks[n++] = diagonal;
+		masks[n++] = antiDiagonal;
+
+		return masks;
+	}
+
+	private static int[][] createCellWinMasks() {
+
+		int[][] cellMasks = new int[SIZE * SIZE][];
+
+		for (int cell = 0; cell < cellMasks.length; cell++) {
+
+			int n = 0;
+			for (int line : WIN_MASKS) {
+				if ((line & (1 << cell)) != 0)
+					n++;
+			}
+
+			cellMasks[cell] = new int[n];
+			n = 0;
+			for (int line : WIN_MASKS) {
+				if ((line & (1 << cell)) != 0)
+					cellMasks[cell][n++] = line;
+			}
+		}
+
+		return cellMasks;
+	}
+
+	/**
+	 * Returns the bit of the specified cell.
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	protected static int bit(int x, int y) {
+		return 1 << (y * SIZE + x);
+	}
+
+	@Override
+	protected void createNewBoard() {
+
+		// clear the board
+		circleMask = 0;
+		crossMask = 0;
+
+	}
+
+	@Override
+	public Token getToken(int x, int y) {
+
+		// keep the same contract as the array based board.
+		if (x < 0 || y < 0 || x >= SIZE || y >= SIZE) {
+			throw new ArrayIndexOutOfBoundsException("(" + x + "," + y + ")");
+		}
+
+		int bit = bit(x, y);
+
+		if ((circleMask & bit) != 0)
+			return Token.CIRCLE;
+
+		if ((crossMask & bit) != 0)
+			return Token.CROSS;
+
+		return null;
+
+	}
+
+	@Override
+	protected void setToken(int x, int y, Token token) {
+
+		int bit = bit(x, y);
+
+		if (token == Token.CIRCLE) {
+			circleMask |= bit;
+		} else {
+			crossMask |= bit;
+		}
+
+	}
+
+	@Override
+	protected void removeToken(int x, int y, Token token) {
+
+		int bit = bit(x, y);
+
+		circleMask &= ~bit;
+		crossMask &= ~bit;
+
+	}
+
+	/**
+	 * Only the player who has just moved can have completed a line, and only
+	 * a line passing through the last placed token, so only those lines are
+	 * tested against his bitmask.
+	 * <p>
+	 *
+	 * requirement_000600
+	 */
+	@Override
+	protected void checkWinningConditions() {
+
+		Token mover = getNextToken();
+		int mask = (mover == Token.CIRCLE) ? circleMask : crossMask;
+
+		for (int line : CELL_WIN_MASKS[lastY * SIZE + lastX]) {
+			if ((mask & line) == line) {
+				this.gameState = GameState.Complete;
+				this.winner = mover;
+				return;
+			}
+		}
+
+		// requirement_001700: the board is full and no one wins.
+		if ((circleMask | crossMask) == FULL_BOARD) {
+			this.gameState = GameState.Complete;
+		}
+
+	}
+
+	/**
+	 * Returns the bitmask of the cells occupied by the specified token.
+	 *
+	 * @param token
+	 * @return
+	 */
+	public int getMask(Token token) {
+		return (token == Token.CIRCLE) ? circleMask : crossMask;
+	}
+
+	@Override
+	protected TicTacToeEngine newInstance() {
+		return new BitboardTicTacToeEngine();
+	}
+
+}
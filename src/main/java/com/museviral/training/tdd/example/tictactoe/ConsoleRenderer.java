@@ -0,0 +1,249 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.jfr.FlightEvents;
+import com.museviral.training.tdd.example.tictactoe.jfr.FrameEvent;
+
+/**
+ * Draws the current player and the board of an engine as one frame, built
+ * in a reusable buffer and written with a single write.
+ * <p>
+ *
+ * In ANSI mode, the first frame clears the screen; the next frames only
+ * move the cursor to the cells which changed since the previous frame and
+ * redraw them, then clear the lines below the board where the prompts
+ * were printed.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class ConsoleRenderer {
+
+	private static final byte ESCAPE = 27;
+
+	private static final byte[] PLAYER = "Current player: ".getBytes();
+
+	/**
+	 * The character of each cell code: empty, circle, cross.
+	 */
+	private static final byte[] CELLS = { '.', 'O', 'X' };
+
+	/**
+	 * Means that no frame was drawn, so that the next one is complete.
+	 */
+	private static final byte UNKNOWN = -1;
+
+	private final TicTacToeEngine engine;
+
+	private final OutputStream out;
+
+	private final boolean ansi;
+
+	private final int width, height;
+
+	/**
+	 * The cell codes of the previous frame, row by row.
+	 */
+	private final byte[] drawn;
+
+	private byte drawnPlayer = UNKNOWN;
+
+	private byte[] buffer;
+
+	private int length;
+
+	/**
+	 * @param engine
+	 *            the game to draw.
+	 * @param out
+	 *            where the frames are written; it is flushed after each
+	 *            frame.
+	 * @param ansi
+	 *            <code>true</code> to redraw only the changed cells with ANSI
+	 *            escape codes.
+	 */
+	public ConsoleRenderer(TicTacToeEngine engine, OutputStream out,
+			boolean ansi) {
+		super();
+
+		if (engine == null || out == null)
+			throw new IllegalArgumentException("Missing engine or output");
+
+		this.engine = engine;
+		this.out = out;
+		this.ansi = ansi;
+		this.width = engine.getWidth();
+		this.height = engine.getHeight();
+		this.drawn = new byte[width * height];
+		this.buffer = new byte[PLAYER.length + 2 + height * (2 * width + 1)
+				+ 16];
+
+		invalidate();
+	}
+
+	public boolean isAnsi() {
+		return ansi;
+	}
+
+	/**
+	 * Draw the whole screen on the next frame, e.g. after other output moved
+	 * the board.
+	 */
+	public void invalidate() {
+		Arrays.fill(drawn, UNKNOWN);
+		drawnPlayer = UNKNOWN;
+	}
+
+	/**
+	 * Draw the current player and the board.
+	 *
+	 * @throws IOException
+	 *             if the frame cannot be written.
+	 */
+	public void render() throws IOException {
+
+		FrameEvent event = FlightEvents.AVAILABLE ? FrameEvent.start() : null;
+
+		length = 0;
+
+		if (!ansi) {
+			appendFrame();
+		} else if (drawnPlayer == UNKNOWN) {
+			// home and clear the screen, so that the cells are where the
+			// next frames expect them.
+			appendEscape('H');
+			appendEscape('2', 'J');
+			appendFrame();
+		} else {
+			appendChanges();
+		}
+
+		out.write(buffer, 0, length);
+		out.flush();
+
+		if (event != null)
+			event.record(width, height, ansi, length);
+	}
+
+	private void appendFrame() {
+
+		drawnPlayer = code(engine.getNextToken());
+		append(PLAYER);
+		append(CELLS[drawnPlayer]);
+		append('\n');
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				byte cell = code(engine.getToken(x, y));
+				drawn[y * width + x] = cell;
+				if (x > 0) {
+					append(' ');
+				}
+				append(CELLS[cell]);
+			}
+			append('\n');
+		}
+
+		append('\n');
+	}
+
+	private void appendChanges() {
+
+		byte player = code(engine.getNextToken());
+		if (player != drawnPlayer) {
+			drawnPlayer = player;
+			appendCursor(1, PLAYER.length + 1);
+			append(CELLS[player]);
+		}
+
+		// the board starts on the second line; a cell and its separator
+		// take two columns.
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				byte cell = code(engine.getToken(x, y));
+				if (drawn[y * width + x] != cell) {
+					drawn[y * width + x] = cell;
+					appendCursor(y + 2, 2 * x + 1);
+					append(CELLS[cell]);
+				}
+			}
+		}
+
+		// below the blank line after the board.
+		appendCursor(height + 3, 1);
+		appendEscape('J');
+	}
+
+	private static byte code(Token token) {
+
+		if (token == null)
+			return 0;
+
+		return token == Token.CIRCLE ? (byte) 1 : (byte) 2;
+	}
+
+	private void appendCursor(int row, int column) {
+		appendEscape();
+		appendInt(row);
+		append(';');
+		appendInt(column);
+		append('H');
+	}
+
+	private void appendEscape() {
+		append(ESCAPE);
+		append('[');
+	}
+
+	private void appendEscape(char command) {
+		appendEscape();
+		append(command);
+	}
+
+	private void appendEscape(char argument, char command) {
+		appendEscape();
+		append(argument);
+		append(command);
+	}
+
+	private void appendInt(int n) {
+
+		int digits = 1;
+		for (int i = n; i >= 10; i /= 10) {
+			digits++;
+		}
+
+		ensureCapacity(digits);
+		for (int i = length + digits - 1; i >= length; i--) {
+			buffer[i] = (byte) ('0' + n % 10);
+			n /= 10;
+		}
+		length += digits;
+	}
+
+	private void append(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+	}
+
+	private void append(int b) {
+		ensureCapacity(1);
+		buffer[length++] = (byte) b;
+	}
+
+	private void ensureCapacity(int more) {
+		if (length + more > buffer.length) {
+			buffer = Arrays.copyOf(buffer,
+					Math.max(2 * buffer.length, length + more));
+		}
+	}
+
+}
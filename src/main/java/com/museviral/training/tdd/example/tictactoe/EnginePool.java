@@ -0,0 +1,134 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A pool of engines of one kind, so that servers and simulators can reuse
+ * engines instead of creating one per game.
+ * <p>
+ *
+ * The pool is split in stripes of a few slots; a thread uses the stripe
+ * picked by its id first, so threads rarely compete for a slot. Taking and
+ * returning an engine is a compare-and-set on a slot, and allocates nothing
+ * once the pool holds enough engines. When the pool is empty a new engine
+ * is created; when it is full a returned engine is dropped.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class EnginePool {
+
+	/**
+	 * Number of slots of a stripe.
+	 */
+	private static final int STRIPE_SIZE = 8;
+
+	private final TicTacToeEngine prototype;
+
+	private final AtomicReferenceArray<TicTacToeEngine> slots;
+
+	private final int stripeMask;
+
+	/**
+	 * Create a pool with a stripe per processor.
+	 *
+	 * @param prototype
+	 *            the kind of engine created when the pool is empty; it is
+	 *            not modified.
+	 */
+	public EnginePool(TicTacToeEngine prototype) {
+		this(prototype, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create a pool.
+	 *
+	 * @param prototype
+	 *            the kind of engine created when the pool is empty; it is
+	 *            not modified.
+	 * @param stripes
+	 *            the number of stripes, rounded up to a power of two.
+	 */
+	public EnginePool(TicTacToeEngine prototype, int stripes) {
+		super();
+
+		if (stripes <= 0) {
+			throw new IllegalArgumentException("stripes must be positive: "
+					+ stripes);
+		}
+
+		int count = Integer.highestOneBit(stripes);
+		if (count < stripes)
+			count <<= 1;
+
+		this.prototype = prototype;
+		this.slots = new AtomicReferenceArray<TicTacToeEngine>(count
+				* STRIPE_SIZE);
+		this.stripeMask = count - 1;
+	}
+
+	/**
+	 * Take an engine with a new game.
+	 *
+	 * @return
+	 */
+	public TicTacToeEngine acquire() {
+
+		int length = slots.length();
+		int start = stripe();
+
+		for (int i = 0; i < length; i++) {
+			int index = (start + i) & (length - 1);
+			TicTacToeEngine engine = slots.get(index);
+			if (engine != null && slots.compareAndSet(index, engine, null))
+				return engine;
+		}
+
+		return prototype.newGame();
+	}
+
+	/**
+	 * Give back an engine taken from this pool. It is cleared without
+	 * reporting a restart, loses its listener, and must not be used by the
+	 * caller any more.
+	 *
+	 * @param engine
+	 * @throws IllegalArgumentException
+	 *             if the engine is not of the kind of the pool.
+	 */
+	public void release(TicTacToeEngine engine) {
+
+		if (engine.getClass() != prototype.getClass()
+				|| engine.getWidth() != prototype.getWidth()
+				|| engine.getHeight() != prototype.getHeight()
+				|| engine.getWinLength() != prototype.getWinLength()) {
+			throw new IllegalArgumentException("engine of another kind: "
+					+ engine.getClass().getName());
+		}
+
+		engine.reset();
+
+		int length = slots.length();
+		int start = stripe();
+
+		for (int i = 0; i < length; i++) {
+			int index = (start + i) & (length - 1);
+			if (slots.get(index) == null
+					&& slots.compareAndSet(index, null, engine))
+				return;
+		}
+	}
+
+	/**
+	 * Returns the first slot of the stripe of the current thread.
+	 */
+	private int stripe() {
+		long id = Thread.currentThread().getId();
+		int hash = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32);
+		return (hash & stripeMask) * STRIPE_SIZE;
+	}
+
+}
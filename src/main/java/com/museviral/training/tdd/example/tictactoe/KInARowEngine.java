@@ -0,0 +1,150 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe;
+
+/**
+ * A {@link TicTacToeEngine} with a configurable board size where a player
+ * wins by placing a number of tokens in a row, e.g. 15 x 15 with 5 in a row
+ * (gomoku).
+ * <p>
+ *
+ * The winning check only walks outward from the last placed token in the
+ * four line directions, so a move costs at most
+ * <code>4 * 2 * (winLength - 1)</code> cell reads regardless of the board
+ * size.
+ *
+ * @author Cyril
+ * @since 0.3.0
+ */
+public class KInARowEngine extends TicTacToeEngine {
+
+	/**
+	 * The line directions: horizontal, vertical, diagonal and anti-diagonal.
+	 * The opposite directions are walked by negating the deltas.
+	 */
+	private static final int[][] DIRECTIONS = { { 1, 0 }, { 0, 1 }, { 1, 1 },
+			{ 1, -1 } };
+
+	/**
+	 * Number of tokens in a row required to win.
+	 */
+	private final int winLength;
+
+	/**
+	 * Create a new engine.
+	 *
+	 * @param width
+	 *            width of the board.
+	 * @param height
+	 *            height of the board.
+	 * @param winLength
+	 *            number of tokens in a row required to win.
+	 * @throws IllegalArgumentException
+	 *             if any of the parameters is not positive or the win length
+	 *             does not fit the board.
+	 */
+	public KInARowEngine(int width, int height, int winLength) {
+		super(checkSize(width, "width"), checkSize(height, "height"));
+
+		if (winLength <= 0) {
+			throw new IllegalArgumentException("win length must be positive: "
+					+ winLength);
+		}
+
+		if (winLength > width && winLength > height) {
+			throw new IllegalArgumentException("win length " + winLength
+					+ " does not fit a " + width + "x" + height + " board");
+		}
+
+		this.winLength = winLength;
+	}
+
+	private static int checkSize(int size, String name) {
+
+		if (size <= 0) {
+			throw new IllegalArgumentException(name + " must be positive: "
+					+ size);
+		}
+
+		return size;
+	}
+
+	/**
+	 * Returns the number of tokens in a row required to win.
+	 *
+	 * @return
+	 */
+	@Override
+	public int getWinLength() {
+		return winLength;
+	}
+
+	/**
+	 * Check if the last placed token completes a row of {@link #winLength}
+	 * tokens in any direction.
+	 * <p>
+	 *
+	 * requirement_000600
+	 */
+	@Override
+	protected void checkWinningConditions() {
+
+		Token potentialWinner = getToken(lastX, lastY);
+
+		for (int[] direction : DIRECTIONS) {
+
+			int dx = direction[0];
+			int dy = direction[1];
+
+			// the last placed token itself counts as one.
+			int count = 1 + countInDirection(dx, dy, potentialWinner);
+			if (count < winLength) {
+				count += countInDirection(-dx, -dy, potentialWinner);
+			}
+
+			if (count >= winLength) {
+				this.gameState = GameState.Complete;
+				this.winner = potentialWinner;
+				return;
+			}
+		}
+
+		checkDraw();
+
+	}
+
+	/**
+	 * Count the consecutive tokens starting next to the last placed token
+	 * towards the specified direction. The walk stops as soon as enough tokens
+	 * for a win are found, or at the limits of <code>int</code>, where the
+	 * coordinates of a board without edges would wrap around.
+	 *
+	 * @param dx
+	 * @param dy
+	 * @param token
+	 * @return
+	 */
+	protected int countInDirection(int dx, int dy, Token token) {
+
+		int count = 0;
+		long x = (long) lastX + dx;
+		long y = (long) lastY + dy;
+
+		while (count < winLength - 1 && x == (int) x && y == (int) y
+				&& isInsideBoard((int) x, (int) y)
+				&& getToken((int) x, (int) y) == token) {
+			count++;
+			x += dx;
+			y += dy;
+		}
+
+		return count;
+	}
+
+	@Override
+	protected TicTacToeEngine newInstance() {
+		return new KInARowEngine(getWidth(), getHeight(), winLength);
+	}
+
+}
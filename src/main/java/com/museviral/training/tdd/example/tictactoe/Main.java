@@ -3,23 +3,113 @@
  */
 package com.museviral.training.tdd.example.tictactoe;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.museviral.training.tdd.example.tictactoe.ai.TicTacToeSolver;
+import com.museviral.training.tdd.example.tictactoe.sim.GameScriptRunner;
+
 /**
  * @author Cyril
  *
  */
 public class Main {
 
+	/**
+	 * Search depth of the computer on boards larger than 3 x 3.
+	 */
+	private static final int COMPUTER_DEPTH = 4;
+
 	/**
 	 * @param args
+	 *            optional <code>width height winLength</code> to play on a
+	 *            larger board, e.g. <code>15 15 5</code>,
+	 *            <code>-computer</code> to play against the computer,
+	 *            <code>-ansi</code> to only redraw the changed cells, or
+	 *            <code>-batch</code> to replay the games of a script read
+	 *            from the standard input, <code>-batch=file</code> from a
+	 *            file, see {@link GameScriptRunner}.
+	 * @throws IOException
+	 *             if the script cannot be read.
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+
+		boolean computer = false;
+		boolean ansi = false;
+		String script = null;
+		List<String> sizes = new ArrayList<String>();
+		for (String arg : args) {
+			if ("-computer".equals(arg)) {
+				computer = true;
+			} else if ("-ansi".equals(arg)) {
+				ansi = true;
+			} else if ("-batch".equals(arg)) {
+				script = "";
+			} else if (arg.startsWith("-batch=")) {
+				script = arg.substring("-batch=".length());
+			} else {
+				sizes.add(arg);
+			}
+		}
 
-		TicTacToeEngine engine = new TicTacToeEngine();
+		TicTacToeEngine engine;
 		
+		if (sizes.size() >= 3) {
+			engine = new KInARowEngine(Integer.parseInt(sizes.get(0)),
+					Integer.parseInt(sizes.get(1)), Integer.parseInt(sizes.get(2)));
+		} else {
+			engine = new TicTacToeEngine();
+		}
+
+		if (script != null) {
+			runScript(engine, script);
+			return;
+		}
+
 		TicTacToeConsole console = new TicTacToeConsole(engine);
+		console.setRenderer(new ConsoleRenderer(engine, System.out, ansi));
+
+		if (computer) {
+			TicTacToeSolver solver = new TicTacToeSolver();
+			if (engine.getWidth() * engine.getHeight() > 9) {
+				solver.setMaxDepth(COMPUTER_DEPTH);
+			}
+			console.setComputerPlayer(TicTacToeEngine.Token.CROSS, solver);
+		}
 		
 		console.start();
 		
 	}
 
+	/**
+	 * Replay the games of a script, write their results to the standard
+	 * output and a summary to the standard error.
+	 *
+	 * @param script
+	 *            the file of the script, or an empty string for the
+	 *            standard input.
+	 */
+	private static void runScript(TicTacToeEngine engine, String script)
+			throws IOException {
+
+		InputStream in = script.isEmpty() ? System.in : new FileInputStream(
+				script);
+		try {
+			long start = System.nanoTime();
+
+			GameScriptRunner runner = new GameScriptRunner(engine);
+			runner.run(in, System.out);
+
+			long millis = (System.nanoTime() - start) / 1000000;
+			System.err.println(runner.getGames() + " games, "
+					+ runner.getMoves() + " moves, " + runner.getRejected()
+					+ " rejected in " + millis + " ms");
+		} finally {
+			in.close();
+		}
+	}
+
 }
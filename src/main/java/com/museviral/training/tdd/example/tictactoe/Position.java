@@ -0,0 +1,295 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * An immutable snapshot of a game: the tokens, the next token, the game
+ * state and the winner. Positions can be handed to other threads, caches and
+ * queues without locking or copying.
+ * <p>
+ *
+ * A board of up to {@link #MAX_PACKED_CELLS} cells, such as 3 x 3, is
+ * packed in one <code>long</code> ({@link #getPacked()}), which can be
+ * stored on its own and turned back into a position with
+ * {@link #fromPacked(int, int, long)}. The low 4 bits hold the next token,
+ * the state and the winner; then each cell takes 2 bits, numbered
+ * <code>y * width + x</code>: 0 when empty, 1 for a circle, 2 for a cross.
+ * Larger boards keep the cells in a <code>long[]</code> of 32 cells per
+ * element.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public final class Position {
+
+	/**
+	 * Largest board which fits in a single <code>long</code>.
+	 */
+	public static final int MAX_PACKED_CELLS = 30;
+
+	/**
+	 * Largest board which has a position.
+	 */
+	public static final int MAX_CELLS = 1 << 20;
+
+	private static final int HEADER_BITS = 4;
+
+	private static final int NEXT_CROSS = 1;
+
+	private static final int COMPLETE = 2;
+
+	private static final int WINNER_SHIFT = 2;
+
+	private static final Token[] TOKENS = { null, Token.CIRCLE, Token.CROSS };
+
+	private final int width, height;
+
+	/**
+	 * The header, and the cells of a small board.
+	 */
+	private final long packed;
+
+	/**
+	 * The cells of a large board, <code>null</code> for a small board.
+	 */
+	private final long[] cells;
+
+	Position(int width, int height, long packed, long[] cells) {
+		super();
+
+		this.width = width;
+		this.height = height;
+		this.packed = packed;
+		this.cells = cells;
+	}
+
+	/**
+	 * Returns the position of a packed board.
+	 *
+	 * @param width
+	 * @param height
+	 * @param packed
+	 *            a value of {@link #getPacked()}.
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the board is larger than {@link #MAX_PACKED_CELLS}.
+	 */
+	public static Position fromPacked(int width, int height, long packed) {
+
+		if (width <= 0 || height <= 0 || width * height > MAX_PACKED_CELLS) {
+			throw new IllegalArgumentException("board cannot be packed: "
+					+ width + "x" + height);
+		}
+
+		return new Position(width, height, packed, null);
+	}
+
+	/**
+	 * Returns the header bits of a game.
+	 */
+	static long header(Token next, GameState state, Token winner) {
+		return (next == Token.CROSS ? NEXT_CROSS : 0)
+				| (state == GameState.Complete ? COMPLETE : 0)
+				| (long) code(winner) << WINNER_SHIFT;
+	}
+
+	/**
+	 * Returns the 2-bit code of a token.
+	 */
+	static int code(Token token) {
+		return (token == null) ? 0 : token.ordinal() + 1;
+	}
+
+	/**
+	 * Returns if the board of the given size fits in {@link #getPacked()}.
+	 */
+	static boolean isPackable(int width, int height) {
+		return (long) width * height <= MAX_PACKED_CELLS;
+	}
+
+	/**
+	 * Returns the bits of a cell code in {@link #getPacked()}.
+	 */
+	static long packedCell(int index, int code) {
+		return (long) code << (HEADER_BITS + 2 * index);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public Token getToken(int x, int y) {
+
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			throw new ArrayIndexOutOfBoundsException("(" + x + "," + y + ")");
+		}
+
+		return TOKENS[cell(y * width + x)];
+	}
+
+	/**
+	 * Returns the 2-bit code of a cell.
+	 */
+	int cell(int index) {
+
+		if (cells == null)
+			return (int) (packed >>> (HEADER_BITS + 2 * index)) & 3;
+
+		return (int) (cells[index >>> 5] >>> (2 * (index & 31))) & 3;
+	}
+
+	public Token getNextToken() {
+		return ((packed & NEXT_CROSS) != 0) ? Token.CROSS : Token.CIRCLE;
+	}
+
+	public GameState getGameState() {
+		return ((packed & COMPLETE) != 0) ? GameState.Complete
+				: GameState.InProgress;
+	}
+
+	public Token getWinner() {
+		return TOKENS[(int) (packed >>> WINNER_SHIFT) & 3];
+	}
+
+	/**
+	 * Returns the number of tokens on the board.
+	 *
+	 * @return
+	 */
+	public int getTokenCount() {
+
+		if (cells == null)
+			return Long.bitCount(packed >>> HEADER_BITS);
+
+		int count = 0;
+		for (long word : cells) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns if the whole position is in {@link #getPacked()}.
+	 *
+	 * @return
+	 */
+	public boolean isPacked() {
+		return cells == null;
+	}
+
+	/**
+	 * Returns the position as one <code>long</code>.
+	 *
+	 * @return
+	 * @throws IllegalStateException
+	 *             if the board is larger than {@link #MAX_PACKED_CELLS}.
+	 */
+	public long getPacked() {
+
+		if (cells != null) {
+			throw new IllegalStateException("board too large to pack: "
+					+ width + "x" + height);
+		}
+
+		return packed;
+	}
+
+	/**
+	 * Returns the length of the position written by
+	 * {@link #write(ByteBuffer)}: 8 bytes for a packed board, plus 8 bytes
+	 * per 32 cells for a larger board.
+	 *
+	 * @return
+	 */
+	public int getByteSize() {
+		return 8 * (1 + ((cells == null) ? 0 : cells.length));
+	}
+
+	/**
+	 * Write the position, without its size.
+	 *
+	 * @param buffer
+	 */
+	public void write(ByteBuffer buffer) {
+
+		buffer.putLong(packed);
+		if (cells != null) {
+			for (long word : cells) {
+				buffer.putLong(word);
+			}
+		}
+	}
+
+	/**
+	 * Read a position written by {@link #write(ByteBuffer)}.
+	 *
+	 * @param buffer
+	 * @param width
+	 * @param height
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the board is larger than {@link #MAX_CELLS}.
+	 */
+	public static Position read(ByteBuffer buffer, int width, int height) {
+
+		long size = (long) width * height;
+		if (width <= 0 || height <= 0 || size > MAX_CELLS) {
+			throw new IllegalArgumentException("invalid board: " + width + "x"
+					+ height);
+		}
+
+		long packed = buffer.getLong();
+		if (isPackable(width, height))
+			return new Position(width, height, packed, null);
+
+		long[] words = new long[(int) ((size + 31) / 32)];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = buffer.getLong();
+		}
+
+		return new Position(width, height, packed, words);
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (packed ^ (packed >>> 32)) * 31 + Arrays.hashCode(cells);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+
+		if (!(obj instanceof Position))
+			return false;
+
+		Position other = (Position) obj;
+		return width == other.width && height == other.height
+				&& packed == other.packed && Arrays.equals(cells, other.cells);
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder sb = new StringBuilder();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				sb.append(".OX".charAt(cell(y * width + x)));
+			}
+			sb.append('/');
+		}
+
+		return sb.append(' ').append(getNextToken()).append(' ')
+				.append(getGameState()).toString();
+	}
+
+}
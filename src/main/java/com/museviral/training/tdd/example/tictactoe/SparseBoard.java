@@ -0,0 +1,224 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe;
+
+import java.util.Arrays;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * A board which stores only the occupied cells.
+ * <p>
+ *
+ * The cells are kept in an open-addressing hash table with linear probing.
+ * The x/y coordinates are packed into one <code>long</code> key and the token
+ * into one <code>byte</code>, so no object is created per cell and the memory
+ * grows with the number of tokens, not with the area they cover.
+ *
+ * @author Cyril
+ * @since 0.3.0
+ */
+public class SparseBoard {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * Value of a free slot in {@link #values}.
+	 */
+	private static final byte FREE = 0;
+
+	private static final Token[] TOKENS = Token.values();
+
+	private long[] keys;
+
+	/**
+	 * <code>token.ordinal() + 1</code> of each slot, or {@link #FREE}.
+	 */
+	private byte[] values;
+
+	private int size;
+
+	/**
+	 * Number of tokens at which the table is grown (75% load).
+	 */
+	private int threshold;
+
+	public SparseBoard() {
+		super();
+
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new byte[capacity];
+		threshold = capacity - (capacity >>> 2);
+	}
+
+	/**
+	 * Pack the coordinates into one key.
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public static long key(int x, int y) {
+		return TicTacToeEngine.packMove(x, y);
+	}
+
+	private int slot(long key) {
+
+		// fibonacci hashing spreads neighbouring coordinates over the table.
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+
+	}
+
+	/**
+	 * Returns the token at the specified location, or <code>null</code> if
+	 * the cell is empty.
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public Token get(int x, int y) {
+
+		long key = key(x, y);
+		int mask = keys.length - 1;
+
+		for (int i = slot(key); values[i] != FREE; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return TOKENS[values[i] - 1];
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Store the token at the specified location.
+	 *
+	 * @param x
+	 * @param y
+	 * @param token
+	 */
+	public void put(int x, int y, Token token) {
+
+		if (size >= threshold) {
+			grow();
+		}
+
+		long key = key(x, y);
+		int mask = keys.length - 1;
+		int i = slot(key);
+
+		for (; values[i] != FREE; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				values[i] = (byte) (token.ordinal() + 1);
+				return;
+			}
+		}
+
+		keys[i] = key;
+		values[i] = (byte) (token.ordinal() + 1);
+		size++;
+
+	}
+
+	/**
+	 * Remove the token at the specified location, if any.
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public void remove(int x, int y) {
+
+		long key = key(x, y);
+		int mask = keys.length - 1;
+		int i = slot(key);
+
+		while (values[i] != FREE && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+
+		if (values[i] == FREE)
+			return;
+
+		// shift the following entries of the probe chain back, so that no
+		// tombstone is needed.
+		int free = i;
+		for (int j = (i + 1) & mask; values[j] != FREE; j = (j + 1) & mask) {
+
+			int home = slot(keys[j]);
+
+			// move the entry unless its home slot lies cyclically in (free, j].
+			boolean reachable = (free <= j) ? (free < home && home <= j)
+					: (free < home || home <= j);
+			if (!reachable) {
+				keys[free] = keys[j];
+				values[free] = values[j];
+				free = j;
+			}
+		}
+
+		values[free] = FREE;
+		size--;
+
+	}
+
+	/**
+	 * Remove all tokens. The table keeps its capacity.
+	 */
+	public void clear() {
+
+		if (size == 0)
+			return;
+
+		Arrays.fill(values, FREE);
+		size = 0;
+
+	}
+
+	/**
+	 * Returns the number of tokens on the board.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of slots of the hash table.
+	 *
+	 * @return
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+
+	private void grow() {
+
+		long[] oldKeys = keys;
+		byte[] oldValues = values;
+
+		allocate(oldKeys.length << 1);
+
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldValues[j] == FREE)
+				continue;
+
+			int i = slot(oldKeys[j]);
+			while (values[i] != FREE) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+
+	}
+
+}
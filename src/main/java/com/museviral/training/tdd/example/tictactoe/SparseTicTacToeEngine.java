@@ -0,0 +1,116 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe;
+
+/**
+ * A K-in-a-row engine without board edges ("infinite" tic tac toe).
+ * <p>
+ *
+ * Any <code>int</code> coordinates may be used. Only the occupied cells are
+ * stored, in a {@link SparseBoard}, so the memory grows with the number of
+ * moves and not with the area covered. {@link #getWidth()} and
+ * {@link #getHeight()} return {@link Integer#MAX_VALUE}; the game never ends
+ * in a draw.
+ *
+ * @author Cyril
+ * @since 0.3.0
+ */
+public class SparseTicTacToeEngine extends KInARowEngine {
+
+	/**
+	 * The occupied cells. Created by {@link #createNewBoard()}, which is
+	 * called from the super constructor.
+	 */
+	protected SparseBoard cells;
+
+	/**
+	 * Create a new engine.
+	 *
+	 * @param winLength
+	 *            number of tokens in a row required to win.
+	 */
+	public SparseTicTacToeEngine(int winLength) {
+		super(Integer.MAX_VALUE, Integer.MAX_VALUE, winLength);
+	}
+
+	@Override
+	protected void createNewBoard() {
+
+		// clear the board, reusing the table of the previous game.
+		if (cells == null) {
+			cells = new SparseBoard();
+		} else {
+			cells.clear();
+		}
+
+	}
+
+	@Override
+	protected boolean isInsideBoard(int x, int y) {
+		return true;
+	}
+
+	@Override
+	public Token getToken(int x, int y) {
+		return cells.get(x, y);
+	}
+
+	@Override
+	protected void setToken(int x, int y, Token token) {
+		cells.put(x, y, token);
+	}
+
+	@Override
+	protected void removeToken(int x, int y, Token token) {
+		cells.remove(x, y);
+	}
+
+	/**
+	 * An unbounded board cannot have a key per cell; the keys are derived
+	 * from the coordinates instead.
+	 */
+	@Override
+	protected long[] createZobristKeys() {
+		return null;
+	}
+
+	/**
+	 * Returns the Zobrist key of a token, by mixing the packed coordinates
+	 * with the SplitMix64 finalizer.
+	 */
+	@Override
+	public long zobristKey(int x, int y, Token token) {
+
+		long z = packMove(x, y) + (token.ordinal() + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+
+	}
+
+	/**
+	 * An unbounded board never fills up.
+	 * <p>
+	 *
+	 * requirement_001700
+	 */
+	@Override
+	protected void checkDraw() {
+	}
+
+	/**
+	 * Returns the storage of the occupied cells.
+	 *
+	 * @return
+	 */
+	public SparseBoard getCells() {
+		return cells;
+	}
+
+	@Override
+	protected TicTacToeEngine newInstance() {
+		return new SparseTicTacToeEngine(getWinLength());
+	}
+
+}
@@ -6,8 +6,11 @@ package com.museviral.training.tdd.example.tictactoe;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 
 import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.ai.SearchResult;
+import com.museviral.training.tdd.example.tictactoe.ai.TicTacToeSolver;
 
 /**
  * A text console for the Tic Tac Toe game.
@@ -21,12 +24,59 @@ public class TicTacToeConsole {
 
 	private int inputX, inputY;
 
+	/**
+	 * The solver playing for {@link #computerToken}, or <code>null</code> if
+	 * both players are human.
+	 */
+	private TicTacToeSolver computer;
+
+	private Token computerToken;
+
+	/**
+	 * Draws the user interface in one write, or <code>null</code> to draw it
+	 * line by line with {@link #println(Object)}.
+	 */
+	private ConsoleRenderer renderer;
+
+	/**
+	 * The reader of all the input, created on the first read, so that the
+	 * data it reads ahead is not lost between two prompts.
+	 */
+	private BufferedReader input;
+
 	public TicTacToeConsole(final TicTacToeEngine engine) {
 		super();
 
 		this.engine = engine;
 	}
 
+	/**
+	 * Let the computer play the specified token.
+	 * 
+	 * @param token
+	 *            the token played by the computer.
+	 * @param solver
+	 *            the solver choosing the moves of the computer.
+	 * @since 0.4.0
+	 */
+	public void setComputerPlayer(Token token, TicTacToeSolver solver) {
+		this.computerToken = token;
+		this.computer = solver;
+	}
+
+	/**
+	 * Draw the user interface with a renderer instead of
+	 * {@link #println(Object)}.
+	 * 
+	 * @param renderer
+	 *            the renderer of the engine of this console, or
+	 *            <code>null</code> to draw line by line.
+	 * @since 0.4.0
+	 */
+	public void setRenderer(ConsoleRenderer renderer) {
+		this.renderer = renderer;
+	}
+
 	/**
 	 * Start the game. This function will return once the player choose not to
 	 * continue playing.
@@ -65,16 +115,17 @@ public class TicTacToeConsole {
 
 		println("Do you want to start a new game? (y/n) ");
 
-		BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-
 		boolean r = false;
 
 		while (true) {
 
 			try {
-				String s = br.readLine();
-				if (s != null)
-					s = s.trim();
+				// quit at the end of the input.
+				String s = readLine();
+				if (s == null)
+					break;
+
+				s = s.trim();
 
 				if ("y".equalsIgnoreCase(s) || "n".equalsIgnoreCase(s)) {
 					r = "y".equalsIgnoreCase(s) ? true : false;
@@ -126,13 +177,32 @@ public class TicTacToeConsole {
 
 			drawUI();
 
-			askUserInput();
+			if (computer != null && engine.getNextToken() == computerToken) {
+
+				playComputerMove();
 
-			handleInput();
+			} else {
+
+				askUserInput();
+
+				handleInput();
+
+			}
 
 		}
 	}
 
+	private void playComputerMove() {
+
+		SearchResult result = computer.search(engine);
+
+		engine.place(result.getX(), result.getY());
+
+		println("Computer plays " + (result.getX() + 1) + ", "
+				+ (result.getY() + 1));
+
+	}
+
 	private void handleInput() {
 
 		boolean valid = engine.place(inputX - 1, inputY - 1);
@@ -156,16 +226,10 @@ public class TicTacToeConsole {
 
 		int n;
 
-		BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-
 		while (true) {
 
 			print("Please enter X (1 to " + engine.getWidth() + "): ");
-			String s = null;
-			try {
-				s = br.readLine();
-			} catch (IOException e) {
-			}
+			String s = readInputLine();
 
 			try {
 				n = Integer.parseInt(s);
@@ -191,17 +255,10 @@ public class TicTacToeConsole {
 
 		int n;
 
-		BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-
 		while (true) {
 
-			print("Please enter Y (1 to " + engine.getWidth() + "): ");
-			String s = null;
-			try {
-				s = br.readLine();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			print("Please enter Y (1 to " + engine.getHeight() + "): ");
+			String s = readInputLine();
 
 			try {
 				n = Integer.parseInt(s);
@@ -212,7 +269,7 @@ public class TicTacToeConsole {
 
 			if (n <= 0) {
 				println("Must be non-zero positive integer");
-			} else if (n > engine.getWidth()) {
+			} else if (n > engine.getHeight()) {
 				println("Too large (>" + engine.getHeight() + ")");
 			} else {
 				break;
@@ -223,11 +280,54 @@ public class TicTacToeConsole {
 
 	}
 
+	/**
+	 * Read a line of the input.
+	 * 
+	 * @return the line, or <code>null</code> at the end of the input.
+	 * @throws IOException
+	 * @since 0.4.0
+	 */
+	protected String readLine() throws IOException {
+
+		if (input == null) {
+			input = new BufferedReader(new InputStreamReader(System.in));
+		}
+
+		return input.readLine();
+	}
+
+	/**
+	 * Read a line of a coordinate, which must be there.
+	 */
+	private String readInputLine() {
+
+		String s;
+		try {
+			s = readLine();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		if (s == null)
+			throw new IllegalStateException("End of input");
+
+		return s;
+	}
+
 	/**
 	 * Draw the user interface.
 	 */
 	public void drawUI() {
 
+		if (renderer != null) {
+			try {
+				renderer.render();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return;
+		}
+
 		drawCurrentPlayer();
 
 		drawBoard();
@@ -3,6 +3,16 @@
  */
 package com.museviral.training.tdd.example.tictactoe;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import com.museviral.training.tdd.example.tictactoe.event.GameEventListener;
+import com.museviral.training.tdd.example.tictactoe.jfr.FlightEvents;
+import com.museviral.training.tdd.example.tictactoe.jfr.PlaceEvent;
+import com.museviral.training.tdd.example.tictactoe.jfr.RestartEvent;
+import com.museviral.training.tdd.example.tictactoe.jfr.WinCheckEvent;
+import com.museviral.training.tdd.example.tictactoe.metrics.EngineMetrics;
+
 /**
  * 
  * 
@@ -28,6 +38,11 @@ public class TicTacToeEngine {
 
 	protected Token defaultNextToken = Token.CIRCLE;
 
+	/**
+	 * Dimensions of the board.
+	 */
+	private final int width, height;
+
 	protected Token nextToken;
 
 	protected Token board[][];
@@ -49,10 +64,106 @@ public class TicTacToeEngine {
 	protected Token winner;
 	
 	protected int tokenCount;
+
+	/**
+	 * Coordinates of the last placed token. Only the lines passing through
+	 * this cell can have changed since the previous move.
+	 */
+	protected int lastX, lastY;
+
+	/**
+	 * Number of tokens of each player in each row, indexed by
+	 * <code>[token.ordinal()][y]</code>.
+	 */
+	protected int[][] rowCounts;
+
+	/**
+	 * Number of tokens of each player in each column, indexed by
+	 * <code>[token.ordinal()][x]</code>.
+	 */
+	protected int[][] columnCounts;
+
+	/**
+	 * Number of tokens of each player on the two diagonals, indexed by
+	 * <code>[token.ordinal()]</code>.
+	 */
+	protected int[] diagonalCounts, antiDiagonalCounts;
+
+	/**
+	 * Coordinates of the placed tokens, packed by {@link #packMove(int, int)}.
+	 * The first {@link #tokenCount} entries are the moves on the board, the
+	 * following {@link #redoCount} entries are the moves which were undone
+	 * and can be redone.
+	 */
+	protected long[] moveHistory;
+
+	/**
+	 * Number of undone moves which can be redone.
+	 */
+	protected int redoCount;
+
+	/**
+	 * Upper bound of the move history allocated up front. Larger boards grow
+	 * it when needed.
+	 */
+	private static final int MAX_INITIAL_HISTORY = 1024;
+
+	/**
+	 * Seed of the Zobrist keys. Engines of the same size hash a position the
+	 * same way, so hashes can be shared between engines and threads.
+	 */
+	private static final long ZOBRIST_SEED = 0x5DEECE66DL;
+
+	/**
+	 * A random key per cell and token, indexed by
+	 * <code>(y * width + x) * 2 + token.ordinal()</code>. The array may be
+	 * longer than the board, and must not be modified.
+	 */
+	protected final long[] zobristKeys;
+
+	/**
+	 * The keys of the largest board created so far.
+	 */
+	private static volatile long[] sharedZobristKeys = new long[0];
+
+	/**
+	 * The Zobrist hash of the tokens on the board: the XOR of the keys of all
+	 * placed tokens.
+	 */
+	protected long positionHash;
+
+	/**
+	 * Receives the events of the game, or <code>null</code>.
+	 */
+	private GameEventListener listener;
+
+	/**
+	 * Whether the moves of this engine are counted in the
+	 * {@link EngineMetrics} and recorded as flight events, when they are
+	 * enabled.
+	 */
+	private boolean metricsEnabled = true;
 	
 	public TicTacToeEngine() {
+		this(3, 3);
+	}
+
+	/**
+	 * Create an engine with a board of the specified size. Only subclasses
+	 * which define their own winning conditions should use other sizes than
+	 * 3 x 3.
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	protected TicTacToeEngine(int width, int height) {
 		super();
 
+		this.width = width;
+		this.height = height;
+
+		zobristKeys = createZobristKeys();
+
 		initialize();
 	}
 
@@ -70,13 +181,53 @@ public class TicTacToeEngine {
 		// reset number of token.
 		tokenCount = 0;
 
+		// the hash of the empty board.
+		positionHash = 0;
+
+		// forget the moves of the previous game, keeping the storage.
+		redoCount = 0;
+		if (moveHistory == null) {
+			moveHistory = new long[(int) Math.min(MAX_INITIAL_HISTORY,
+					(long) getWidth() * getHeight())];
+		}
+
 	}
 
+	/**
+	 * Clear the board. The storage is allocated by the first call and
+	 * cleared in place by the next ones, so {@link #restart()} does not
+	 * allocate.
+	 */
 	protected void createNewBoard() {
-		
+
+		if (board == null) {
+
+			board = new Token[getWidth()][getHeight()];
+
+			int players = Token.values().length;
+			rowCounts = new int[players][getHeight()];
+			columnCounts = new int[players][getWidth()];
+			diagonalCounts = new int[players];
+			antiDiagonalCounts = new int[players];
+
+			return;
+		}
+
 		// clear the board
-		board = new Token[getWidth()][getHeight()];
-		
+		for (Token[] column : board) {
+			Arrays.fill(column, null);
+		}
+
+		// clear the line counters
+		for (int[] counts : rowCounts) {
+			Arrays.fill(counts, 0);
+		}
+		for (int[] counts : columnCounts) {
+			Arrays.fill(counts, 0);
+		}
+		Arrays.fill(diagonalCounts, 0);
+		Arrays.fill(antiDiagonalCounts, 0);
+
 	}
 
 	protected void resetNextToken() {
@@ -84,11 +235,32 @@ public class TicTacToeEngine {
 	}
 
 	public int getWidth() {
-		return 3;
+		return width;
 	}
 
 	public int getHeight() {
-		return 3;
+		return height;
+	}
+
+	/**
+	 * Returns the number of tokens in a row required to win. On the classic
+	 * board a whole row, column or diagonal is required.
+	 * 
+	 * @return
+	 */
+	public int getWinLength() {
+		return getWidth();
+	}
+
+	/**
+	 * Returns if the specified coordinates are inside the board.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	protected boolean isInsideBoard(int x, int y) {
+		return x >= 0 && y >= 0 && x < getWidth() && y < getHeight();
 	}
 
 	/**
@@ -116,31 +288,122 @@ public class TicTacToeEngine {
 
 	public boolean place(int x, int y) {
 
+		if (!FlightEvents.AVAILABLE || !metricsEnabled)
+			return placeToken(x, y);
+
+		PlaceEvent event = PlaceEvent.start();
+		boolean placed = placeToken(x, y);
+		if (event != null)
+			event.record(getWidth(), getHeight(), x, y, tokenCount, placed);
+
+		return placed;
+	}
+
+	private boolean placeToken(int x, int y) {
+
+		// without metrics, the JIT compiler removes the timing.
+		boolean metrics = EngineMetrics.ENABLED && metricsEnabled;
+		long start = metrics ? System.nanoTime() : 0;
+
 		// requirement_000400: if the specified index is out of bound, report
 		// error.
-		if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+		if (!isInsideBoard(x, y)) {
+			if (metrics)
+				EngineMetrics.get().rejectOutOfBounds();
 			return false;
 		}
 
 		// requirement_000300: check if the specified location is filled.
-		if (board[x][y] != null)
+		if (getToken(x, y) != null) {
+			if (metrics)
+				EngineMetrics.get().rejectOccupied();
 			return false;
+		}
 		
 		// requirement_000800: if game is finished, should stop further placement
 		if (gameState != GameState.InProgress) {
+			if (metrics)
+				EngineMetrics.get().rejectGameOver();
 			return false;
 		}
 		
 		// place the token on the board.
-		board[x][y] = getNextToken();
+		Token token = getNextToken();
+		setToken(x, y, token);
+		positionHash ^= zobristKey(x, y, token);
+		lastX = x;
+		lastY = y;
+		
+		// remember the move for undo, which invalidates the moves to redo.
+		if (tokenCount == moveHistory.length) {
+			moveHistory = Arrays.copyOf(moveHistory, moveHistory.length * 2);
+		}
+		moveHistory[tokenCount] = packMove(x, y);
+		redoCount = 0;
 		
 		// increment number of token placed counter.
 		tokenCount++;
 		
 		updateInteralState();
 
+		if (metrics)
+			EngineMetrics.get().recordMove(this, System.nanoTime() - start);
+
+		if (listener != null)
+			fireMoveEvents(x, y, token);
+
 		return true;
 	}
+
+	private void fireMoveEvents(int x, int y, Token token) {
+
+		listener.placed(x, y, token, tokenCount);
+
+		if (gameState == GameState.Complete) {
+			if (winner == null) {
+				listener.drawn(tokenCount);
+			} else {
+				listener.won(winner, tokenCount);
+			}
+		}
+	}
+
+	/**
+	 * Send the events of the game to a listener, from the thread which
+	 * plays. The tokens placed and the end of the game are sent by
+	 * {@link #place(int, int)} and {@link #redo()}, and
+	 * {@link #restart()} is sent; {@link #undo()}, {@link #copy()} and the
+	 * tokens entered by {@link #setPosition(Position)} send nothing.
+	 * 
+	 * @param listener
+	 *            the listener, or <code>null</code> to send no events.
+	 * @since 0.4.0
+	 */
+	public void setGameEventListener(GameEventListener listener) {
+		this.listener = listener;
+	}
+
+	public GameEventListener getGameEventListener() {
+		return listener;
+	}
+
+	/**
+	 * Count the moves and restarts of this engine in the
+	 * {@link EngineMetrics} and record them as flight events, when they are
+	 * enabled, which is the default. The searches turn it off on the
+	 * engines they play on, and {@link #copy()} and {@link #redo()} never
+	 * count their moves.
+	 * 
+	 * @param metricsEnabled
+	 * @since 0.4.0
+	 */
+	public void setMetricsEnabled(boolean metricsEnabled) {
+		this.metricsEnabled = metricsEnabled;
+	}
+
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
 	
 	/**
 	 * Calculate the internal state.
@@ -150,7 +413,20 @@ public class TicTacToeEngine {
 	 */
 	protected void updateInteralState() {
 		
-		checkWinningConditions();
+		WinCheckEvent event = FlightEvents.AVAILABLE && metricsEnabled ? WinCheckEvent
+				.start() : null;
+
+		if (EngineMetrics.ENABLED && metricsEnabled) {
+			long start = System.nanoTime();
+			checkWinningConditions();
+			EngineMetrics.get().recordWinCheck(System.nanoTime() - start);
+		} else {
+			checkWinningConditions();
+		}
+
+		if (event != null)
+			event.record(getWidth(), getHeight(), tokenCount,
+					gameState == GameState.Complete);
 		
 		updateNextToken();
 
@@ -197,167 +473,61 @@ public class TicTacToeEngine {
 	}
 	
 	/**
-	 * Check for winning conditions for horizontal lines.
+	 * Check for winning conditions for horizontal lines. Only the row of the
+	 * last placed token is checked.
 	 * <p>
 	 * 
 	 * Requirement: requirement_000600
 	 */
 	protected void checkHorizontalWin() {
 		
-		for (int y = 0; y < getHeight(); y++) {
-
-			Token potentialWinner = null;
-			
-			for (int x = 0; x < getWidth(); x++) {
-				
-				// stop checking the row if it is empty.
-				if (board[x][y] == null) {
-					potentialWinner = null;
-					break;
-				}
-				
-				// remember the first token we encountered.
-				if (potentialWinner == null) {
-					potentialWinner = board[x][y];
-					continue;
-				}
-				
-				// if we detect a line with different token, this line
-				// does not meet the winning criteria and we 
-				// skip to next row.
-				if (board[x][y] != potentialWinner) {
-					potentialWinner = null;
-					break;
-				}
-				
-			}	// for each column in a row
-			
-			// if this variable is non-null, the game is over and
-			// we stop checking further.
-			if (potentialWinner != null) {
-				this.gameState = GameState.Complete;
-				this.winner = potentialWinner;
-				break;
-			}
-			
-		}	// for each row.
+		Token potentialWinner = board[lastX][lastY];
+		
+		if (rowCounts[potentialWinner.ordinal()][lastY] == getWidth()) {
+			this.gameState = GameState.Complete;
+			this.winner = potentialWinner;
+		}
 		
 	}
 	
 	
 	/**
-	 * Check for winning conditions for vertical lines (columns)
+	 * Check for winning conditions for vertical lines (columns). Only the
+	 * column of the last placed token is checked.
 	 * <p>
 	 * 
 	 * Requirement: requirement_000900
 	 */
 	protected void checkVerticalWin() {
 		
-		for (int x = 0; x < getWidth(); x++) {
-
-			Token potentialWinner = null;
-			
-			for (int y = 0; y < getHeight(); y++) {
-				
-				// stop checking the row if it is empty.
-				if (board[x][y] == null) {
-					potentialWinner = null;
-					break;
-				}
-				
-				// remember the first token we encountered.
-				if (potentialWinner == null) {
-					potentialWinner = board[x][y];
-					continue;
-				}
-				
-				// if we detect a line with different token, this line
-				// does not meet the winning criteria and we 
-				// skip to next row.
-				if (board[x][y] != potentialWinner) {
-					potentialWinner = null;
-					break;
-				}
-				
-			}	// for each column in a row
-			
-			// if this variable is non-null, the game is over and
-			// we stop checking further.
-			if (potentialWinner != null) {
-				this.gameState = GameState.Complete;
-				this.winner = potentialWinner;
-				break;
-			}
-			
-		}	// for each row.
+		Token potentialWinner = board[lastX][lastY];
+		
+		if (columnCounts[potentialWinner.ordinal()][lastX] == getHeight()) {
+			this.gameState = GameState.Complete;
+			this.winner = potentialWinner;
+		}
 		
 	}
 	
 	/**
-	 * Check for diagonal winning conditions.
+	 * Check for diagonal winning conditions. Only the diagonals passing
+	 * through the last placed token are checked.
 	 * <p>
 	 * 
 	 * requirement_001100, requirement_001200
 	 */
 	protected void checkDiagonalWin() {
 		
-		for (int i = 0; i < 2; i++) {
-			
-			int x = -1;
-			int y = -1;
-			int xDiff = 0;
-			int yDiff = 0;
-			Token potentialWinner = null;
-
-			switch (i) {
-			case 0:
-				x = 0;
-				y = 0;
-				xDiff = 1;
-				yDiff = 1;
-				break;
-			case 1:
-				x = getWidth() - 1;
-				y = 0;
-				xDiff = -1;
-				yDiff = 1;
-				break;
-			default:
-				throw new RuntimeException("internal error");
-			}
+		// a full diagonal line only exists on a square board.
+		if (getWidth() != getHeight()) return;
 		
-			for (; x < getWidth() && y < getHeight() && x >= 0 && y >= 0; x += xDiff, y += yDiff) {
-				
-				// stop checking the row if it is empty.
-				if (board[x][y] == null) {
-					potentialWinner = null;
-					break;
-				}
-				
-				// remember the first token we encountered.
-				if (potentialWinner == null) {
-					potentialWinner = board[x][y];
-					continue;
-				}
-				
-				// if we detect a line with different token, this line
-				// does not meet the winning criteria and we 
-				// skip to next row.
-				if (board[x][y] != potentialWinner) {
-					potentialWinner = null;
-					break;
-				}				
-				
-			}
-			
-			// if this variable is non-null, the game is over and
-			// we stop checking further.
-			if (potentialWinner != null) {
-				this.gameState = GameState.Complete;
-				this.winner = potentialWinner;
-				break;
-			}
-			
+		Token potentialWinner = board[lastX][lastY];
+		int player = potentialWinner.ordinal();
+		
+		if ((lastX == lastY && diagonalCounts[player] == getWidth())
+				|| (lastX == getWidth() - 1 - lastY && antiDiagonalCounts[player] == getWidth())) {
+			this.gameState = GameState.Complete;
+			this.winner = potentialWinner;
 		}
 		
 	}
@@ -370,6 +540,58 @@ public class TicTacToeEngine {
 
 	}
 
+	/**
+	 * Remove the token from the specified location of the board. This is the
+	 * reverse of {@link #setToken(int, int, Token)}.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param token
+	 *            the token currently at the location.
+	 */
+	protected void removeToken(int x, int y, Token token) {
+
+		board[x][y] = null;
+
+		int player = token.ordinal();
+		rowCounts[player][y]--;
+		columnCounts[player][x]--;
+		if (x == y) {
+			diagonalCounts[player]--;
+		}
+		if (x == getWidth() - 1 - y) {
+			antiDiagonalCounts[player]--;
+		}
+
+	}
+
+	/**
+	 * Store the token at the specified location of the board. Subclasses which
+	 * use a different board representation should override this together with
+	 * {@link #getToken(int, int)} and {@link #createNewBoard()}.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param token
+	 */
+	protected void setToken(int x, int y, Token token) {
+
+		board[x][y] = token;
+
+		// requirement_000600: keep the line counters up to date so the
+		// winning conditions do not need to rescan the board.
+		int player = token.ordinal();
+		rowCounts[player][y]++;
+		columnCounts[player][x]++;
+		if (x == y) {
+			diagonalCounts[player]++;
+		}
+		if (x == getWidth() - 1 - y) {
+			antiDiagonalCounts[player]++;
+		}
+
+	}
+
 	protected void updateNextToken() {
 		
 		// requirement_000600: do nothing if the game is completed.
@@ -387,9 +609,380 @@ public class TicTacToeEngine {
 		return winner;
 	}
 
+	/**
+	 * Take back the last placed token. The game state, the winner and the
+	 * next token are restored to what they were before that move. No object
+	 * is allocated.
+	 * 
+	 * @return <code>false</code> if there is no move to undo.
+	 */
+	public boolean undo() {
+
+		if (tokenCount == 0)
+			return false;
+
+		tokenCount--;
+		redoCount++;
+
+		long move = moveHistory[tokenCount];
+		int x = unpackX(move);
+		int y = unpackY(move);
+		Token token = getToken(x, y);
+
+		removeToken(x, y, token);
+		positionHash ^= zobristKey(x, y, token);
+
+		// a move is only accepted while the game is in progress, and the
+		// player who made it was the next token at that time.
+		this.gameState = GameState.InProgress;
+		this.winner = null;
+		this.nextToken = token;
+
+		return true;
+	}
+
+	/**
+	 * Place again the last token taken back by {@link #undo()}.
+	 * 
+	 * @return <code>false</code> if there is no move to redo.
+	 */
+	public boolean redo() {
+
+		if (redoCount == 0)
+			return false;
+
+		int remaining = redoCount - 1;
+		long move = moveHistory[tokenCount];
+
+		// the move was counted when it was first played.
+		boolean metrics = metricsEnabled;
+		metricsEnabled = false;
+		try {
+			place(unpackX(move), unpackY(move));
+		} finally {
+			metricsEnabled = metrics;
+		}
+
+		// placing a token clears the redo moves, but this one was one of them.
+		redoCount = remaining;
+
+		return true;
+	}
+
+	/**
+	 * Returns the number of tokens on the board.
+	 * 
+	 * @return
+	 */
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	/**
+	 * Returns the packed coordinates of the move at the specified index,
+	 * starting from 0 for the first move of the game.
+	 * 
+	 * @param index
+	 * @return
+	 * @see #unpackX(long)
+	 * @see #unpackY(long)
+	 */
+	public long getMove(int index) {
+
+		if (index < 0 || index >= tokenCount) {
+			throw new IndexOutOfBoundsException("move " + index + " of "
+					+ tokenCount);
+		}
+
+		return moveHistory[index];
+	}
+
+	/**
+	 * Returns the 64-bit Zobrist hash of the tokens on the board. It is
+	 * updated incrementally by {@link #place(int, int)}, {@link #undo()},
+	 * {@link #redo()} and {@link #restart()}, so reading it is free.
+	 * <p>
+	 * 
+	 * The player to move is not part of the hash; in a game started by the
+	 * default token it follows from the number of tokens.
+	 * 
+	 * @return
+	 */
+	public long getPositionHash() {
+		return positionHash;
+	}
+
+	/**
+	 * Compute the Zobrist hash of the tokens on the board from scratch.
+	 * 
+	 * @return the same value as {@link #getPositionHash()}.
+	 */
+	public long computePositionHash() {
+
+		long hash = 0;
+		for (int i = 0; i < tokenCount; i++) {
+			int x = unpackX(moveHistory[i]);
+			int y = unpackY(moveHistory[i]);
+			hash ^= zobristKey(x, y, getToken(x, y));
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Returns the Zobrist key of a token at the specified location.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param token
+	 * @return
+	 */
+	public long zobristKey(int x, int y, Token token) {
+		return zobristKeys[(y * width + x) * 2 + token.ordinal()];
+	}
+
+	/**
+	 * Create the Zobrist keys of all cells. Called once from the constructor.
+	 * <p>
+	 * 
+	 * The keys of every size are a prefix of the same random sequence, so
+	 * all engines share one array, grown for the largest board so far. Many
+	 * small engines then cost no key storage each.
+	 * 
+	 * @return
+	 */
+	protected long[] createZobristKeys() {
+
+		int length = width * height * 2;
+
+		long[] keys = sharedZobristKeys;
+		if (keys.length >= length)
+			return keys;
+
+		SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+
+		keys = new long[length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextLong();
+		}
+
+		sharedZobristKeys = keys;
+		return keys;
+	}
+
+	/**
+	 * Pack the coordinates of a move into one <code>long</code>.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public static long packMove(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	public static int unpackX(long move) {
+		return (int) (move >> 32);
+	}
+
+	public static int unpackY(long move) {
+		return (int) move;
+	}
+
+	/**
+	 * Returns an immutable snapshot of the game. The moves are not part of
+	 * it.
+	 * 
+	 * @return
+	 * @throws UnsupportedOperationException
+	 *             if the board has more than {@link Position#MAX_CELLS} cells.
+	 * @since 0.4.0
+	 */
+	public Position getPosition() {
+
+		long cells = (long) getWidth() * getHeight();
+		if (cells > Position.MAX_CELLS) {
+			throw new UnsupportedOperationException("board too large: "
+					+ getWidth() + "x" + getHeight());
+		}
+
+		long header = Position.header(nextToken, gameState, winner);
+
+		if (Position.isPackable(getWidth(), getHeight())) {
+
+			long packed = header;
+			for (int i = 0; i < tokenCount; i++) {
+				int x = unpackX(moveHistory[i]);
+				int y = unpackY(moveHistory[i]);
+				packed |= Position.packedCell(y * getWidth() + x,
+						Position.code(getToken(x, y)));
+			}
+
+			return new Position(getWidth(), getHeight(), packed, null);
+		}
+
+		long[] words = new long[(int) ((cells + 31) / 32)];
+		for (int i = 0; i < tokenCount; i++) {
+			int x = unpackX(moveHistory[i]);
+			int y = unpackY(moveHistory[i]);
+			int index = y * getWidth() + x;
+			words[index >>> 5] |= (long) Position.code(getToken(x, y)) << (2 * (index & 31));
+		}
+
+		return new Position(getWidth(), getHeight(), header, words);
+	}
+
+	/**
+	 * Replace the game by a snapshot taken from an engine of the same size.
+	 * The tokens are entered as alternating moves of the two players, so
+	 * that they can be taken back with {@link #undo()}; the game state,
+	 * winner and next token are those of the snapshot.
+	 * 
+	 * @param position
+	 * @throws IllegalArgumentException
+	 *             if the position has another size, or its token counts
+	 *             cannot come from alternating moves.
+	 * @since 0.4.0
+	 */
+	public void setPosition(Position position) {
+
+		if (position.getWidth() != getWidth()
+				|| position.getHeight() != getHeight()) {
+			throw new IllegalArgumentException("position of another size: "
+					+ position.getWidth() + "x" + position.getHeight());
+		}
+
+		int cells = getWidth() * getHeight();
+		int firstCode = Position.code(defaultNextToken);
+
+		int first = 0;
+		int second = 0;
+		for (int index = 0; index < cells; index++) {
+			int code = position.cell(index);
+			if (code == firstCode) {
+				first++;
+			} else if (code != 0) {
+				second++;
+			}
+		}
+		if (first != second && first != second + 1) {
+			throw new IllegalArgumentException("not a position of a game: "
+					+ first + " and " + second + " tokens");
+		}
+
+		// not a restart of the game: no listener, metrics or flight event.
+		initialize();
+
+		if (moveHistory.length < first + second) {
+			moveHistory = Arrays.copyOf(moveHistory, first + second);
+		}
+
+		first = 0;
+		second = 0;
+		for (int index = 0; index < cells; index++) {
+
+			int code = position.cell(index);
+			if (code == 0)
+				continue;
+
+			int x = index % getWidth();
+			int y = index / getWidth();
+			Token token = (code == 1) ? Token.CIRCLE : Token.CROSS;
+
+			setToken(x, y, token);
+			positionHash ^= zobristKey(x, y, token);
+
+			// the moves of the first player go to the even plies.
+			int ply = (code == firstCode) ? 2 * first++ : 2 * second++ + 1;
+			moveHistory[ply] = packMove(x, y);
+		}
+
+		tokenCount = first + second;
+		if (tokenCount > 0) {
+			lastX = unpackX(moveHistory[tokenCount - 1]);
+			lastY = unpackY(moveHistory[tokenCount - 1]);
+		}
+
+		nextToken = position.getNextToken();
+		gameState = position.getGameState();
+		winner = position.getWinner();
+
+	}
+
+	/**
+	 * Create an independent engine in the same position, by replaying the
+	 * moves of this game on a new engine of the same kind. The moves to redo
+	 * are not copied.
+	 * 
+	 * @return
+	 */
+	public TicTacToeEngine copy() {
+
+		TicTacToeEngine copy = newInstance();
+		copy.defaultNextToken = defaultNextToken;
+		copy.resetNextToken();
+
+		// the moves were counted when they were played on this engine.
+		copy.metricsEnabled = false;
+		for (int i = 0; i < tokenCount; i++) {
+			copy.place(unpackX(moveHistory[i]), unpackY(moveHistory[i]));
+		}
+		copy.metricsEnabled = metricsEnabled;
+
+		return copy;
+	}
+
+	/**
+	 * Create an engine with an empty board, of the same kind and
+	 * configuration, without replaying the moves like {@link #copy()}.
+	 */
+	TicTacToeEngine newGame() {
+
+		TicTacToeEngine engine = newInstance();
+		engine.defaultNextToken = defaultNextToken;
+		engine.reset();
+
+		return engine;
+	}
+
+	/**
+	 * Start a new game as on a new engine, for the next user of a pooled
+	 * engine: the listener is removed and the metrics are counted again,
+	 * and the restart is not reported.
+	 */
+	void reset() {
+
+		listener = null;
+		metricsEnabled = true;
+		initialize();
+	}
+
+	/**
+	 * Create an empty engine of the same kind and configuration. Subclasses
+	 * must override this to support {@link #copy()}.
+	 * 
+	 * @return
+	 */
+	protected TicTacToeEngine newInstance() {
+		return new TicTacToeEngine(getWidth(), getHeight());
+	}
+
 	public void restart() {
 
+		RestartEvent event = FlightEvents.AVAILABLE && metricsEnabled ? RestartEvent
+				.start() : null;
+		int moves = tokenCount;
+
 		this.initialize();
+
+		if (EngineMetrics.ENABLED && metricsEnabled)
+			EngineMetrics.get().recordRestart();
+
+		if (listener != null)
+			listener.restarted();
+
+		if (event != null)
+			event.record(getWidth(), getHeight(), moves);
 		
 	}
 
@@ -0,0 +1,282 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.ai;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * The eight symmetries of a square board (rotations and reflections), used
+ * to store symmetric positions once in caches.
+ * <p>
+ *
+ * {@link #canonicalize(TicTacToeEngine)} returns the smallest key of the
+ * position over the eight transforms, together with the transform which
+ * produced it. Moves are mapped between the real board and the canonical
+ * board with {@link #toCanonical(int, int)} and
+ * {@link #fromCanonical(int, int)}. Cells are numbered
+ * <code>y * size + x</code>.
+ * <p>
+ *
+ * On the 3 x 3 board the key is the exact {@link PerfectPlayTable} index of
+ * the canonical board, computed from bitmasks with precomputed permutation
+ * tables. On larger boards it is the Zobrist hash of the canonical board,
+ * using the keys of the engine. An instance keeps a scratch buffer and is
+ * not thread-safe.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class BoardSymmetry {
+
+	/**
+	 * Number of symmetries of the square.
+	 */
+	public static final int TRANSFORMS = 8;
+
+	/**
+	 * The permuted bitmasks of the 3 x 3 board, indexed by
+	 * <code>[transform][mask]</code>.
+	 */
+	private static final int[][] PERMUTED_MASKS = createPermutedMasks();
+
+	private final int size;
+
+	/**
+	 * Cell of the canonical board for each transform and real cell.
+	 */
+	private final int[][] forward;
+
+	/**
+	 * Real cell for each transform and cell of the canonical board.
+	 */
+	private final int[][] inverse;
+
+	/**
+	 * Keys of the position under each transform, reused between calls.
+	 */
+	private final long[] keys = new long[TRANSFORMS];
+
+	/**
+	 * Create the symmetries of a board.
+	 *
+	 * @param size
+	 *            number of cells on a side.
+	 */
+	public BoardSymmetry(int size) {
+		super();
+
+		if (size <= 0) {
+			throw new IllegalArgumentException("size must be positive: "
+					+ size);
+		}
+
+		this.size = size;
+		this.forward = createPermutations(size);
+		this.inverse = new int[TRANSFORMS][size * size];
+
+		for (int t = 0; t < TRANSFORMS; t++) {
+			for (int cell = 0; cell < size * size; cell++) {
+				inverse[t][forward[t][cell]] = cell;
+			}
+		}
+	}
+
+	/**
+	 * Returns the cell of <code>(x, y)</code> under a transform:
+	 * identity, rotations by 90, 180 and 270 degrees, then the mirrors along
+	 * the vertical and horizontal axes and the two diagonals.
+	 */
+	private static int transform(int t, int x, int y, int size) {
+
+		int m = size - 1;
+
+		switch (t) {
+		case 0:
+			return y * size + x;
+		case 1:
+			return x * size + (m - y);
+		case 2:
+			return (m - y) * size + (m - x);
+		case 3:
+			return (m - x) * size + y;
+		case 4:
+			return y * size + (m - x);
+		case 5:
+			return (m - y) * size + x;
+		case 6:
+			return x * size + y;
+		case 7:
+			return (m - x) * size + (m - y);
+		default:
+			throw new IllegalArgumentException("transform " + t);
+		}
+	}
+
+	private static int[][] createPermutations(int size) {
+
+		int[][] permutations = new int[TRANSFORMS][size * size];
+
+		for (int t = 0; t < TRANSFORMS; t++) {
+			for (int y = 0; y < size; y++) {
+				for (int x = 0; x < size; x++) {
+					permutations[t][y * size + x] = transform(t, x, y, size);
+				}
+			}
+		}
+
+		return permutations;
+	}
+
+	private static int[][] createPermutedMasks() {
+
+		int[][] permutations = createPermutations(3);
+		int[][] masks = new int[TRANSFORMS][1 << 9];
+
+		for (int t = 0; t < TRANSFORMS; t++) {
+			for (int mask = 0; mask < masks[t].length; mask++) {
+				int permuted = 0;
+				for (int cell = 0; cell < 9; cell++) {
+					if ((mask & (1 << cell)) != 0)
+						permuted |= 1 << permutations[t][cell];
+				}
+				masks[t][mask] = permuted;
+			}
+		}
+
+		return masks;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the canonical key and transform of the position of the engine.
+	 *
+	 * @param engine
+	 *            an engine with a square board of this size.
+	 * @return the key in the upper 61 bits and the transform in the lower 3
+	 *         bits; use {@link #keyOf(long)} and {@link #transformOf(long)}.
+	 */
+	public long canonicalize(TicTacToeEngine engine) {
+
+		if (engine.getWidth() != size || engine.getHeight() != size) {
+			throw new IllegalArgumentException("not a " + size + "x" + size
+					+ " board");
+		}
+
+		if (size == 3) {
+			return canonicalize3x3(engine);
+		}
+
+		for (int t = 0; t < TRANSFORMS; t++) {
+			keys[t] = 0;
+		}
+
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+
+				Token token = engine.getToken(x, y);
+				if (token == null)
+					continue;
+
+				int cell = y * size + x;
+				for (int t = 0; t < TRANSFORMS; t++) {
+					int target = forward[t][cell];
+					keys[t] ^= engine.zobristKey(target % size, target / size,
+							token);
+				}
+			}
+		}
+
+		long best = Long.MAX_VALUE;
+		for (int t = 0; t < TRANSFORMS; t++) {
+			long candidate = (keys[t] >>> 3 << 3) | t;
+			if (candidate < best)
+				best = candidate;
+		}
+
+		return best;
+	}
+
+	private long canonicalize3x3(TicTacToeEngine engine) {
+
+		int circleMask;
+		int crossMask;
+
+		if (engine instanceof BitboardTicTacToeEngine) {
+			BitboardTicTacToeEngine bitboard = (BitboardTicTacToeEngine) engine;
+			circleMask = bitboard.getMask(Token.CIRCLE);
+			crossMask = bitboard.getMask(Token.CROSS);
+		} else {
+			circleMask = 0;
+			crossMask = 0;
+			for (int cell = 0; cell < 9; cell++) {
+				Token token = engine.getToken(cell % 3, cell / 3);
+				if (token == Token.CIRCLE) {
+					circleMask |= 1 << cell;
+				} else if (token == Token.CROSS) {
+					crossMask |= 1 << cell;
+				}
+			}
+		}
+
+		long best = Long.MAX_VALUE;
+		for (int t = 0; t < TRANSFORMS; t++) {
+			long candidate = ((long) PerfectPlayTable.index(
+					PERMUTED_MASKS[t][circleMask], PERMUTED_MASKS[t][crossMask]) << 3)
+					| t;
+			if (candidate < best)
+				best = candidate;
+		}
+
+		return best;
+	}
+
+	/**
+	 * Returns the key part of a result of {@link #canonicalize(TicTacToeEngine)}.
+	 *
+	 * @param canonical
+	 * @return
+	 */
+	public static long keyOf(long canonical) {
+		return canonical >>> 3;
+	}
+
+	/**
+	 * Returns the transform part of a result of
+	 * {@link #canonicalize(TicTacToeEngine)}.
+	 *
+	 * @param canonical
+	 * @return
+	 */
+	public static int transformOf(long canonical) {
+		return (int) canonical & 7;
+	}
+
+	/**
+	 * Map a cell of the real board to the canonical board.
+	 *
+	 * @param transform
+	 * @param cell
+	 * @return
+	 */
+	public int toCanonical(int transform, int cell) {
+		return forward[transform][cell];
+	}
+
+	/**
+	 * Map a cell of the canonical board back to the real board.
+	 *
+	 * @param transform
+	 * @param cell
+	 * @return
+	 */
+	public int fromCanonical(int transform, int cell) {
+		return inverse[transform][cell];
+	}
+
+}
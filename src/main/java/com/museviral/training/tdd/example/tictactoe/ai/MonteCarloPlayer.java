@@ -0,0 +1,484 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.ai;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * Chooses a move with a Monte Carlo tree search: random games are played
+ * from the position, and the tree of the most promising moves grows where
+ * they lead (UCT). This plays large boards where {@link TicTacToeSolver}
+ * cannot search deep enough.
+ * <p>
+ *
+ * Every thread of the pool walks the same tree. A thread going down a node
+ * adds a virtual loss to it, so the other threads prefer different branches
+ * until the result of its playout is known. The tree is a pool of nodes
+ * stored in primitive arrays, allocated once; the children of a node are
+ * contiguous. Each thread plays on its own {@link TicTacToeEngine#copy()}
+ * and undoes the moves after every playout.
+ * <p>
+ *
+ * On boards larger than 4 x 4 the tree only contains moves next to a token;
+ * the playouts use every empty cell.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class MonteCarloPlayer {
+
+	/**
+	 * Number of nodes of the default tree (20 MB).
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+
+	/**
+	 * Weight of the exploration term of UCT.
+	 */
+	private static final double EXPLORATION = Math.sqrt(2);
+
+	/**
+	 * Visits added to a node while a thread's playout through it runs.
+	 */
+	private static final int VIRTUAL_LOSS = 3;
+
+	/**
+	 * A leaf is expanded once it has been visited this often.
+	 */
+	private static final int EXPANSION_VISITS = 8;
+
+	/**
+	 * Values of {@link #firstChild} for leaves.
+	 */
+	private static final int UNEXPANDED = 0, EXPANDING = -1, FULL = -2;
+
+	private final ForkJoinPool pool;
+
+	private final int capacity;
+
+	/**
+	 * The cell played to reach each node.
+	 */
+	private final int[] moves;
+
+	private final int[] childCounts;
+
+	/**
+	 * Index of the first child of each node, or a leaf state. Setting it
+	 * publishes {@link #moves} and {@link #childCounts} of the children.
+	 */
+	private final AtomicIntegerArray firstChild;
+
+	private final AtomicIntegerArray visits;
+
+	/**
+	 * Sum of the playout results of each node for the player who moved into
+	 * it, in half points: 2 per win, 1 per draw.
+	 */
+	private final AtomicIntegerArray rewards;
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final AtomicLong playouts = new AtomicLong();
+
+	private long timeLimitMillis = 1000;
+
+	private long maxPlayouts = Long.MAX_VALUE;
+
+	private long seed = 0x5DEECE66DL;
+
+	/**
+	 * Create a player using the common pool and a tree of
+	 * {@link #DEFAULT_CAPACITY} nodes.
+	 */
+	public MonteCarloPlayer() {
+		this(ForkJoinPool.commonPool(), DEFAULT_CAPACITY);
+	}
+
+	public MonteCarloPlayer(ForkJoinPool pool, int capacity) {
+		super();
+
+		if (capacity < 2) {
+			throw new IllegalArgumentException("capacity too small: "
+					+ capacity);
+		}
+
+		this.pool = pool;
+		this.capacity = capacity;
+		this.moves = new int[capacity];
+		this.childCounts = new int[capacity];
+		this.firstChild = new AtomicIntegerArray(capacity);
+		this.visits = new AtomicIntegerArray(capacity);
+		this.rewards = new AtomicIntegerArray(capacity);
+	}
+
+	/**
+	 * Limit the time of a search. The default is one second.
+	 *
+	 * @param millis
+	 */
+	public void setTimeLimitMillis(long millis) {
+
+		if (millis <= 0) {
+			throw new IllegalArgumentException("time must be positive: "
+					+ millis);
+		}
+
+		this.timeLimitMillis = millis;
+	}
+
+	/**
+	 * Limit the number of playouts of a search. By default only the time is
+	 * limited.
+	 *
+	 * @param maxPlayouts
+	 */
+	public void setMaxPlayouts(long maxPlayouts) {
+
+		if (maxPlayouts <= 0) {
+			throw new IllegalArgumentException(
+					"playouts must be positive: " + maxPlayouts);
+		}
+
+		this.maxPlayouts = maxPlayouts;
+	}
+
+	/**
+	 * Set the seed of the random playouts. With a single thread and a
+	 * playout limit, searches are repeatable.
+	 *
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Search a move for the next token of the engine.
+	 *
+	 * @param engine
+	 *            the position to search; it is not modified.
+	 * @return the most visited move, with coordinates -1 if the game is over.
+	 * @throws IllegalArgumentException
+	 *             if the board has more than
+	 *             {@link TicTacToeSolver#MAX_CELLS} cells.
+	 */
+	public MonteCarloResult search(TicTacToeEngine engine) {
+
+		long start = System.nanoTime();
+
+		if (engine.getGameState() != GameState.InProgress) {
+			return new MonteCarloResult(-1, -1, 0, 0, 0, 0);
+		}
+
+		int width = engine.getWidth();
+		int height = engine.getHeight();
+		if ((long) width * height > TicTacToeSolver.MAX_CELLS) {
+			throw new IllegalArgumentException("board too large to search: "
+					+ width + "x" + height);
+		}
+
+		// the root is node 0.
+		size.set(1);
+		moves[0] = -1;
+		firstChild.set(0, UNEXPANDED);
+		visits.set(0, 0);
+		rewards.set(0, 0);
+		playouts.set(0);
+
+		if (expand(0, engine) == FULL) {
+			throw new IllegalStateException("tree too small for "
+					+ engine.getWidth() + "x" + engine.getHeight());
+		}
+
+		long deadline = start + timeLimitMillis * 1000000L;
+		int threads = pool.getParallelism();
+		SplittableRandom random = new SplittableRandom(seed);
+
+		Worker[] workers = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			TicTacToeEngine copy = engine.copy();
+			copy.setMetricsEnabled(false);
+			workers[i] = new Worker(copy, random.split(), deadline);
+		}
+		pool.invoke(new RecursiveAction() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(workers);
+			}
+		});
+
+		int best = -1;
+		int first = firstChild.get(0);
+		for (int child = first; child < first + childCounts[0]; child++) {
+			if (best < 0 || visits.get(child) > visits.get(best))
+				best = child;
+		}
+
+		double winRate = (visits.get(best) == 0) ? 0.5 : rewards.get(best)
+				/ (2.0 * visits.get(best));
+
+		return new MonteCarloResult(moves[best] % width, moves[best] / width,
+				winRate, Math.min(playouts.get(), maxPlayouts), Math.min(
+						size.get(), capacity), System.nanoTime() - start);
+	}
+
+	/**
+	 * Create the children of a leaf, unless another thread does it or the
+	 * pool is full.
+	 *
+	 * @return the first child, or a leaf state.
+	 */
+	private int expand(int node, TicTacToeEngine engine) {
+
+		if (!firstChild.compareAndSet(node, UNEXPANDED, EXPANDING))
+			return firstChild.get(node);
+
+		int width = engine.getWidth();
+		int height = engine.getHeight();
+		boolean local = width * height > 16;
+
+		int count = 0;
+		if (local && engine.getTokenCount() == 0) {
+			count = 1;
+		} else {
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (engine.getToken(x, y) == null
+							&& (!local || hasNeighbour(engine, x, y)))
+						count++;
+				}
+			}
+		}
+
+		if (size.get() + count > capacity) {
+			firstChild.set(node, FULL);
+			return FULL;
+		}
+
+		int first = size.getAndAdd(count);
+		if (first + count > capacity) {
+			firstChild.set(node, FULL);
+			return FULL;
+		}
+
+		int child = first;
+		if (local && engine.getTokenCount() == 0) {
+			moves[child++] = (height / 2) * width + width / 2;
+		} else {
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (engine.getToken(x, y) == null
+							&& (!local || hasNeighbour(engine, x, y)))
+						moves[child++] = y * width + x;
+				}
+			}
+		}
+
+		for (child = first; child < first + count; child++) {
+			childCounts[child] = 0;
+			visits.set(child, 0);
+			rewards.set(child, 0);
+			firstChild.set(child, UNEXPANDED);
+		}
+
+		childCounts[node] = count;
+		firstChild.set(node, first);
+
+		return first;
+	}
+
+	private static boolean hasNeighbour(TicTacToeEngine engine, int x, int y) {
+
+		int width = engine.getWidth();
+		int height = engine.getHeight();
+
+		for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+			for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+				if (engine.getToken(nx, ny) != null)
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the child with the best UCT value; children not visited yet
+	 * come first.
+	 */
+	private int select(int node, int first) {
+
+		double logVisits = Math.log(Math.max(1, visits.get(node)));
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+
+		for (int child = first; child < first + childCounts[node]; child++) {
+
+			int n = visits.get(child);
+			if (n == 0)
+				return child;
+
+			double value = rewards.get(child) / (2.0 * n) + EXPLORATION
+					* Math.sqrt(logVisits / n);
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Runs playouts on its own engine until the budget is spent.
+	 */
+	private final class Worker extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final TicTacToeEngine engine;
+
+		private final SplittableRandom random;
+
+		private final long deadline;
+
+		private final int width;
+
+		private final int rootTokens;
+
+		private final Token rootToken;
+
+		/**
+		 * The nodes visited by the current playout.
+		 */
+		private final int[] path;
+
+		/**
+		 * The empty cells of the root, and where each cell is in the list.
+		 */
+		private final int[] rootEmpty, rootPosition;
+
+		private final int rootEmptyCount;
+
+		private final int[] empty, position;
+
+		private int emptyCount;
+
+		Worker(TicTacToeEngine engine, SplittableRandom random, long deadline) {
+			this.engine = engine;
+			this.random = random;
+			this.deadline = deadline;
+			this.width = engine.getWidth();
+			this.rootTokens = engine.getTokenCount();
+			this.rootToken = engine.getNextToken();
+
+			int cells = width * engine.getHeight();
+			this.path = new int[cells + 1];
+			this.rootEmpty = new int[cells];
+			this.rootPosition = new int[cells];
+			this.empty = new int[cells];
+			this.position = new int[cells];
+
+			int count = 0;
+			for (int cell = 0; cell < cells; cell++) {
+				if (engine.getToken(cell % width, cell / width) == null) {
+					rootPosition[cell] = count;
+					rootEmpty[count++] = cell;
+				}
+			}
+			this.rootEmptyCount = count;
+		}
+
+		@Override
+		protected void compute() {
+
+			for (long n = 0;; n++) {
+
+				if ((n & 15) == 0 && System.nanoTime() - deadline > 0)
+					return;
+				if (playouts.getAndIncrement() >= maxPlayouts)
+					return;
+
+				playout();
+			}
+		}
+
+		private void playout() {
+
+			System.arraycopy(rootEmpty, 0, empty, 0, rootEmptyCount);
+			System.arraycopy(rootPosition, 0, position, 0, position.length);
+			emptyCount = rootEmptyCount;
+
+			// selection and expansion.
+			int node = 0;
+			int length = 0;
+			path[length++] = node;
+			visits.addAndGet(node, VIRTUAL_LOSS);
+
+			while (engine.getGameState() == GameState.InProgress) {
+
+				int first = firstChild.get(node);
+				if (first <= 0) {
+					if (first != UNEXPANDED
+							|| visits.get(node) < EXPANSION_VISITS
+									+ VIRTUAL_LOSS)
+						break;
+					first = expand(node, engine);
+					if (first <= 0)
+						break;
+				}
+
+				node = select(node, first);
+				play(moves[node]);
+				path[length++] = node;
+				visits.addAndGet(node, VIRTUAL_LOSS);
+			}
+
+			// random game.
+			while (engine.getGameState() == GameState.InProgress) {
+				play(empty[random.nextInt(emptyCount)]);
+			}
+
+			// back propagation, replacing the virtual loss by the result.
+			Token winner = engine.getWinner();
+			int reward = (winner == null) ? 1 : (winner == rootToken) ? 2 : 0;
+
+			for (int i = 1; i < length; i++) {
+				visits.addAndGet(path[i], 1 - VIRTUAL_LOSS);
+				rewards.addAndGet(path[i], reward);
+				reward = 2 - reward;
+			}
+			visits.addAndGet(0, 1 - VIRTUAL_LOSS);
+
+			while (engine.getTokenCount() > rootTokens) {
+				engine.undo();
+			}
+		}
+
+		private void play(int cell) {
+
+			int index = position[cell];
+			int last = empty[--emptyCount];
+			empty[index] = last;
+			position[last] = index;
+
+			engine.place(cell % width, cell / width);
+		}
+
+	}
+
+}
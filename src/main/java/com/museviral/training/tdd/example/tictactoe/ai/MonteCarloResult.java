@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.ai;
+
+/**
+ * The outcome of a Monte Carlo tree search: the most visited move and the
+ * statistics of the search.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class MonteCarloResult {
+
+	private final int x, y;
+
+	private final double winRate;
+
+	private final long playouts;
+
+	private final int treeSize;
+
+	private final long elapsedNanos;
+
+	public MonteCarloResult(int x, int y, double winRate, long playouts,
+			int treeSize, long elapsedNanos) {
+		super();
+
+		this.x = x;
+		this.y = y;
+		this.winRate = winRate;
+		this.playouts = playouts;
+		this.treeSize = treeSize;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the x coordinate of the move, or -1 if the game is over.
+	 *
+	 * @return
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the y coordinate of the move, or -1 if the game is over.
+	 *
+	 * @return
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Returns the average result of the playouts through the move for the
+	 * player to move: 1 for wins, 0.5 for draws, 0 for losses.
+	 *
+	 * @return
+	 */
+	public double getWinRate() {
+		return winRate;
+	}
+
+	/**
+	 * Returns the number of random games played.
+	 *
+	 * @return
+	 */
+	public long getPlayouts() {
+		return playouts;
+	}
+
+	/**
+	 * Returns the number of nodes of the search tree.
+	 *
+	 * @return
+	 */
+	public int getTreeSize() {
+		return treeSize;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of random games played per second, over all
+	 * threads.
+	 *
+	 * @return
+	 */
+	public long getPlayoutsPerSecond() {
+		return elapsedNanos == 0 ? 0 : playouts * 1000000000L / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + x + "," + y + ") winRate=" + winRate + " playouts="
+				+ playouts + " tree=" + treeSize;
+	}
+
+}
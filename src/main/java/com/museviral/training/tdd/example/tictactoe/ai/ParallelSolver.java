@@ -0,0 +1,409 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.jfr.FlightEvents;
+import com.museviral.training.tdd.example.tictactoe.jfr.SearchIterationEvent;
+
+/**
+ * Searches the best move like {@link TicTacToeSolver}, on all threads of a
+ * {@link ForkJoinPool}.
+ * <p>
+ *
+ * The tree is split in the young brothers wait style: at a node with enough
+ * remaining depth, the first (eldest) move is searched alone to get a good
+ * bound, then the remaining moves are forked as parallel tasks with that
+ * bound. Nodes closer to the leaves than {@link #setSplitDepth(int)} are
+ * searched by a serial {@link TicTacToeSolver} per worker thread. All
+ * threads share one lock-free {@link TranspositionTable}.
+ * <p>
+ *
+ * A task only holds its move; each worker thread keeps one
+ * {@link TicTacToeEngine#copy()} of the searched position per search, and
+ * moves it to the position of the task it runs by undoing and placing the
+ * moves which differ.
+ * <p>
+ *
+ * With a full-depth search the result has the same score as the serial
+ * search; the move may differ between moves of equal value.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class ParallelSolver {
+
+	private static final int DEFAULT_SPLIT_DEPTH = 5;
+
+	private final ForkJoinPool pool;
+
+	private final TranspositionTable table;
+
+	private final ThreadLocal<Worker> workers;
+
+	private final LongAdder nodes = new LongAdder();
+
+	private int maxDepth = Integer.MAX_VALUE;
+
+	private int splitDepth = DEFAULT_SPLIT_DEPTH;
+
+	/**
+	 * Create a solver using the common pool and a table of 2^22 entries
+	 * (64 MB).
+	 */
+	public ParallelSolver() {
+		this(ForkJoinPool.commonPool(), new TranspositionTable(22));
+	}
+
+	public ParallelSolver(ForkJoinPool pool, final TranspositionTable table) {
+		super();
+
+		this.pool = pool;
+		this.table = table;
+		this.workers = new ThreadLocal<Worker>() {
+			@Override
+			protected Worker initialValue() {
+				return new Worker(new TicTacToeSolver(table));
+			}
+		};
+	}
+
+	/**
+	 * Limit the number of plies searched. By default the search goes to the
+	 * end of the game.
+	 *
+	 * @param maxDepth
+	 */
+	public void setMaxDepth(int maxDepth) {
+
+		if (maxDepth <= 0) {
+			throw new IllegalArgumentException("depth must be positive: "
+					+ maxDepth);
+		}
+
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Nodes with less remaining depth are searched serially. Lower values
+	 * create more, smaller tasks.
+	 *
+	 * @param splitDepth
+	 */
+	public void setSplitDepth(int splitDepth) {
+		this.splitDepth = Math.max(1, splitDepth);
+	}
+
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Search the best move for the next token of the engine.
+	 *
+	 * @param engine
+	 *            the position to search; it is not modified.
+	 * @return the best move, with coordinates -1 if the game is over.
+	 * @throws IllegalArgumentException
+	 *             if the board has more than
+	 *             {@link TicTacToeSolver#MAX_CELLS} cells.
+	 */
+	public SearchResult search(TicTacToeEngine engine) {
+
+		long start = System.nanoTime();
+
+		if (engine.getGameState() != GameState.InProgress) {
+			return new SearchResult(-1, -1, 0, 0, 0, 0);
+		}
+
+		long cells = (long) engine.getWidth() * engine.getHeight();
+		if (cells > TicTacToeSolver.MAX_CELLS) {
+			throw new IllegalArgumentException("board too large to search: "
+					+ engine.getWidth() + "x" + engine.getHeight());
+		}
+
+		nodes.reset();
+
+		int width = engine.getWidth();
+		int empty = (int) cells - engine.getTokenCount();
+		int limit = Math.min(maxDepth, empty);
+
+		// like the serial search, solve to the end at once when possible.
+		int first = (limit == empty) ? limit : 1;
+
+		SearchTask root = null;
+		int completedDepth = 0;
+
+		// the workers copy this engine, once per search.
+		TicTacToeEngine copy = engine.copy();
+		copy.setMetricsEnabled(false);
+
+		for (int depth = first; depth <= limit; depth++) {
+
+			SearchIterationEvent event = FlightEvents.AVAILABLE ? SearchIterationEvent
+					.start() : null;
+			root = new SearchTask(copy, null, -1, depth, 0,
+					-TicTacToeSolver.INFINITY, TicTacToeSolver.INFINITY);
+			pool.invoke(root);
+			if (event != null)
+				event.record("ParallelSolver", width, engine.getHeight(),
+						engine.getTokenCount(), depth, root.score, nodes.sum(),
+						false);
+			completedDepth = depth;
+
+			if (root.score > TicTacToeSolver.WIN_THRESHOLD
+					|| root.score < -TicTacToeSolver.WIN_THRESHOLD)
+				break;
+		}
+
+		return new SearchResult(root.bestMove % width, root.bestMove / width,
+				root.score, completedDepth, nodes.sum(), System.nanoTime()
+						- start);
+	}
+
+	/**
+	 * The state of one worker thread: its serial solver, its copy of the
+	 * searched position and its move buffers.
+	 */
+	private static final class Worker {
+
+		final TicTacToeSolver solver;
+
+		/** The engine of the search {@link #engine} was copied from. */
+		private TicTacToeEngine root;
+
+		private TicTacToeEngine engine;
+
+		/** The cells played on {@link #engine} since the root. */
+		private int[] path = new int[0];
+
+		private int length;
+
+		/** The cells played to reach the position of a task. */
+		private int[] target = new int[0];
+
+		/** One move buffer per task running nested on this thread. */
+		private int[][] buffers = new int[0][];
+
+		private int level;
+
+		Worker(TicTacToeSolver solver) {
+			this.solver = solver;
+		}
+
+		/**
+		 * Bring the engine to the position of the task.
+		 */
+		TicTacToeEngine moveTo(SearchTask task) {
+
+			if (root != task.root) {
+				root = task.root;
+				engine = root.copy();
+				engine.setMetricsEnabled(false);
+				length = 0;
+
+				int cells = root.getWidth() * root.getHeight();
+				if (path.length < cells) {
+					path = new int[cells];
+					target = new int[cells];
+				}
+			}
+
+			for (SearchTask t = task; t.parent != null; t = t.parent) {
+				target[t.ply - 1] = t.move;
+			}
+
+			int common = 0;
+			while (common < length && common < task.ply
+					&& path[common] == target[common]) {
+				common++;
+			}
+			while (length > common) {
+				undo();
+			}
+			while (length < task.ply) {
+				place(target[length]);
+			}
+
+			return engine;
+		}
+
+		void place(int cell) {
+			int width = engine.getWidth();
+			engine.place(cell % width, cell / width);
+			path[length++] = cell;
+		}
+
+		void undo() {
+			engine.undo();
+			length--;
+		}
+
+		/**
+		 * Returns a buffer for the moves of a task, until {@link #release()}.
+		 */
+		int[] acquire() {
+
+			if (level == buffers.length) {
+				buffers = Arrays.copyOf(buffers, level + 8);
+			}
+			if (buffers[level] == null || buffers[level].length < path.length) {
+				buffers[level] = new int[path.length];
+			}
+
+			return buffers[level++];
+		}
+
+		void release() {
+			level--;
+		}
+
+	}
+
+	/**
+	 * Searches the node reached by {@link #move} from the node of
+	 * {@link #parent}; the result is in {@link #score} and {@link #bestMove}.
+	 */
+	private final class SearchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final TicTacToeEngine root;
+
+		private final SearchTask parent;
+
+		private final int move;
+
+		private final int depth, ply;
+
+		private int alpha;
+
+		private final int beta;
+
+		int score;
+
+		int bestMove = -1;
+
+		SearchTask(TicTacToeEngine root, SearchTask parent, int move,
+				int depth, int ply, int alpha, int beta) {
+			this.root = root;
+			this.parent = parent;
+			this.move = move;
+			this.depth = depth;
+			this.ply = ply;
+			this.alpha = alpha;
+			this.beta = beta;
+		}
+
+		@Override
+		protected void compute() {
+
+			Worker worker = workers.get();
+			TicTacToeSolver solver = worker.solver;
+			TicTacToeEngine engine = worker.moveTo(this);
+
+			if (depth < splitDepth) {
+				score = solver.searchWindow(engine, depth, ply, alpha, beta);
+				bestMove = solver.getLastBestMove();
+				nodes.add(solver.getLastNodes());
+				return;
+			}
+
+			nodes.increment();
+
+			int originalAlpha = alpha;
+			int[] moves = worker.acquire();
+			try {
+				searchMoves(worker, solver.candidateMoves(engine, moves), moves);
+			} finally {
+				worker.release();
+			}
+
+			// the other tasks run on this thread may have moved the engine.
+			engine = worker.moveTo(this);
+
+			int flag = (score <= originalAlpha) ? TranspositionTable.UPPER_BOUND
+					: (score >= beta) ? TranspositionTable.LOWER_BOUND
+							: TranspositionTable.EXACT;
+			table.store(engine.getPositionHash(), Math.min(depth, 255), flag,
+					TicTacToeSolver.toTable(score, ply), bestMove);
+
+		}
+
+		private void searchMoves(Worker worker, int count, int[] moves) {
+
+			score = -TicTacToeSolver.INFINITY;
+
+			// the eldest brother is searched first, alone.
+			SearchTask eldest = child(worker, moves[0]);
+			if (eldest != null) {
+				eldest.compute();
+				worker.moveTo(this);
+				update(-eldest.score, moves[0]);
+			}
+
+			if (alpha >= beta || count == 1)
+				return;
+
+			// the young brothers in parallel, with the bound of the eldest.
+			List<SearchTask> forked = new ArrayList<SearchTask>(count - 1);
+			for (int i = 1; i < count; i++) {
+				SearchTask task = child(worker, moves[i]);
+				if (task != null)
+					forked.add(task);
+			}
+
+			invokeAll(forked);
+
+			for (SearchTask task : forked) {
+				update(-task.score, task.move);
+			}
+		}
+
+		/**
+		 * Returns the task searching the cell, or null when the move ends the
+		 * game and its score is already taken.
+		 */
+		private SearchTask child(Worker worker, int cell) {
+
+			worker.place(cell);
+			boolean complete = worker.engine.getGameState() == GameState.Complete;
+			if (complete) {
+				update(terminalScore(worker.engine), cell);
+			}
+			worker.undo();
+
+			return complete ? null : new SearchTask(root, this, cell,
+					depth - 1, ply + 1, -beta, -alpha);
+		}
+
+		/**
+		 * Returns the score of a move which ended the game: the mover has
+		 * either won or filled the board.
+		 */
+		private int terminalScore(TicTacToeEngine child) {
+			return (child.getWinner() != null) ? TicTacToeSolver.WIN_SCORE
+					- (ply + 1) : 0;
+		}
+
+		private void update(int childScore, int cell) {
+			if (childScore > score) {
+				score = childScore;
+				bestMove = cell;
+				if (childScore > alpha)
+					alpha = childScore;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,294 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.ai;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * The best move and the game-theoretic outcome of every position of the 3 x
+ * 3 game, looked up without any search.
+ * <p>
+ *
+ * A position is indexed by its base-3 number: cell <code>(x, y)</code> is
+ * digit <code>y * 3 + x</code>, 0 for empty, 1 for
+ * {@link TicTacToeEngine.Token#CIRCLE} and 2 for
+ * {@link TicTacToeEngine.Token#CROSS}. The table holds one byte per index:
+ * the best move cell in the low 4 bits and the outcome for the player to
+ * move in the next 2 bits. Positions which cannot be reached from the start
+ * of a game have the outcome {@link #UNREACHABLE}.
+ * <p>
+ *
+ * The table is generated by {@link PerfectPlayTableGenerator} and shipped as
+ * the resource {@value #RESOURCE}, which is read in one pass the first time
+ * {@link #getInstance()} is called.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public final class PerfectPlayTable {
+
+	/**
+	 * Name of the table resource, relative to this class.
+	 */
+	public static final String RESOURCE = "perfect-play-3x3.bin";
+
+	public static final int UNREACHABLE = 0;
+
+	/**
+	 * The player to move wins with perfect play.
+	 */
+	public static final int WIN = 1;
+
+	public static final int DRAW = 2;
+
+	/**
+	 * The player to move loses against perfect play.
+	 */
+	public static final int LOSS = 3;
+
+	/**
+	 * Number of positions of the index space, 3^9.
+	 */
+	public static final int INDEX_COUNT = 19683;
+
+	/**
+	 * Value of the move bits when there is no move.
+	 */
+	private static final int NO_MOVE = 0xF;
+
+	private static final int MAGIC = 0x54545433; // "TTT3"
+
+	private static final int VERSION = 1;
+
+	/**
+	 * The base-3 index contribution of every bitmask of the 9 cells.
+	 */
+	private static final int[] TERNARY = createTernary();
+
+	private final byte[] entries;
+
+	private PerfectPlayTable(byte[] entries) {
+		super();
+
+		this.entries = entries;
+	}
+
+	private static final class Holder {
+
+		static final PerfectPlayTable INSTANCE = loadResource();
+
+		private static PerfectPlayTable loadResource() {
+
+			InputStream in = PerfectPlayTable.class
+					.getResourceAsStream(RESOURCE);
+			if (in == null) {
+				throw new IllegalStateException("missing resource " + RESOURCE);
+			}
+
+			try {
+				try {
+					return read(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("cannot read " + RESOURCE, e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the table loaded from the bundled resource.
+	 *
+	 * @return
+	 */
+	public static PerfectPlayTable getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Read a table written by {@link #write(OutputStream)}.
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static PerfectPlayTable read(InputStream in) throws IOException {
+
+		DataInputStream data = new DataInputStream(in);
+
+		if (data.readInt() != MAGIC) {
+			throw new IOException("not a perfect play table");
+		}
+
+		int version = data.readInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported version " + version);
+		}
+
+		int count = data.readInt();
+		if (count != INDEX_COUNT) {
+			throw new IOException("unexpected size " + count);
+		}
+
+		byte[] entries = new byte[count];
+		data.readFully(entries);
+
+		return new PerfectPlayTable(entries);
+	}
+
+	/**
+	 * Write the table in the format of {@link #read(InputStream)}.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(OutputStream out) throws IOException {
+
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(entries.length);
+		data.write(entries);
+		data.flush();
+
+	}
+
+	/**
+	 * Create a table from the entries computed by the generator.
+	 */
+	static PerfectPlayTable create(int[] bestMoves, int[] outcomes) {
+
+		byte[] entries = new byte[INDEX_COUNT];
+		for (int i = 0; i < INDEX_COUNT; i++) {
+			int move = (bestMoves[i] < 0) ? NO_MOVE : bestMoves[i];
+			entries[i] = (byte) (move | (outcomes[i] << 4));
+		}
+
+		return new PerfectPlayTable(entries);
+	}
+
+	private static int[] createTernary() {
+
+		int[] ternary = new int[1 << 9];
+		for (int mask = 0; mask < ternary.length; mask++) {
+			int value = 0;
+			int power = 1;
+			for (int cell = 0; cell < 9; cell++) {
+				if ((mask & (1 << cell)) != 0)
+					value += power;
+				power *= 3;
+			}
+			ternary[mask] = value;
+		}
+
+		return ternary;
+	}
+
+	/**
+	 * Returns the index of the position of a 3 x 3 engine.
+	 *
+	 * @param engine
+	 * @return
+	 */
+	public static int index(TicTacToeEngine engine) {
+
+		if (engine instanceof BitboardTicTacToeEngine) {
+			BitboardTicTacToeEngine bitboard = (BitboardTicTacToeEngine) engine;
+			return index(bitboard.getMask(Token.CIRCLE),
+					bitboard.getMask(Token.CROSS));
+		}
+
+		int index = 0;
+		for (int cell = 8; cell >= 0; cell--) {
+			Token token = engine.getToken(cell % 3, cell / 3);
+			index = index * 3 + ((token == null) ? 0 : token.ordinal() + 1);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Returns the index of the position given as bitmasks, bit
+	 * <code>y * 3 + x</code> for cell <code>(x, y)</code>.
+	 *
+	 * @param circleMask
+	 * @param crossMask
+	 * @return
+	 */
+	public static int index(int circleMask, int crossMask) {
+		return TERNARY[circleMask] + 2 * TERNARY[crossMask];
+	}
+
+	/**
+	 * Returns the best move of the position as cell index
+	 * <code>y * 3 + x</code>, or -1 if the game is over or the position is
+	 * unreachable.
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int getBestMove(int index) {
+		int move = entries[index] & 0xF;
+		return (move == NO_MOVE) ? -1 : move;
+	}
+
+	/**
+	 * Returns the outcome for the player to move: {@link #WIN}, {@link #DRAW},
+	 * {@link #LOSS} or {@link #UNREACHABLE}.
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int getOutcome(int index) {
+		return (entries[index] >> 4) & 0x3;
+	}
+
+	/**
+	 * Returns the best move of the current position of the engine.
+	 *
+	 * @param engine
+	 * @return
+	 * @see #getBestMove(int)
+	 */
+	public int getBestMove(TicTacToeEngine engine) {
+		return getBestMove(index(engine));
+	}
+
+	/**
+	 * Returns the outcome of the current position of the engine.
+	 *
+	 * @param engine
+	 * @return
+	 * @see #getOutcome(int)
+	 */
+	public int getOutcome(TicTacToeEngine engine) {
+		return getOutcome(index(engine));
+	}
+
+	/**
+	 * Returns the number of reachable positions.
+	 *
+	 * @return
+	 */
+	public int getPositionCount() {
+
+		int count = 0;
+		for (byte entry : entries) {
+			if (((entry >> 4) & 0x3) != UNREACHABLE)
+				count++;
+		}
+
+		return count;
+	}
+
+}
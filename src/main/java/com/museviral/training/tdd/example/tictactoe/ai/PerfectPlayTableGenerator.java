@@ -0,0 +1,162 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.ai;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+
+/**
+ * Generates the {@link PerfectPlayTable} by enumerating every position
+ * reachable from the start of a 3 x 3 game and solving it exactly.
+ * <p>
+ *
+ * Usage: <code>PerfectPlayTableGenerator &lt;output file&gt;</code>. The
+ * bundled resource is regenerated with:
+ *
+ * <pre>
+ * java -cp target/classes com.museviral.training.tdd.example.tictactoe.ai.PerfectPlayTableGenerator \
+ *     src/main/resources/com/museviral/training/tdd/example/tictactoe/ai/perfect-play-3x3.bin
+ * </pre>
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class PerfectPlayTableGenerator {
+
+	/**
+	 * Score of a win now; a win in <code>n</code> plies scores
+	 * <code>WIN - n</code>, so the quickest win and the slowest loss are
+	 * preferred.
+	 */
+	private static final int WIN = 100;
+
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+
+	private final TicTacToeEngine engine = new TicTacToeEngine();
+
+	private final int[] scores = new int[PerfectPlayTable.INDEX_COUNT];
+
+	private final int[] bestMoves = new int[PerfectPlayTable.INDEX_COUNT];
+
+	private final int[] outcomes = new int[PerfectPlayTable.INDEX_COUNT];
+
+	private int positionCount;
+
+	/**
+	 * Solve every reachable position.
+	 *
+	 * @return the table.
+	 */
+	public PerfectPlayTable generate() {
+
+		Arrays.fill(scores, UNKNOWN);
+		Arrays.fill(bestMoves, -1);
+		Arrays.fill(outcomes, PerfectPlayTable.UNREACHABLE);
+		positionCount = 0;
+
+		// the positions solved are not moves of a game.
+		engine.setMetricsEnabled(false);
+		engine.restart();
+		solve(PerfectPlayTable.index(engine));
+
+		return PerfectPlayTable.create(bestMoves, outcomes);
+	}
+
+	/**
+	 * Returns the number of positions found by the last
+	 * {@link #generate()}.
+	 *
+	 * @return
+	 */
+	public int getPositionCount() {
+		return positionCount;
+	}
+
+	/**
+	 * Returns the value of the current position for the player to move.
+	 */
+	private int solve(int index) {
+
+		if (scores[index] != UNKNOWN)
+			return scores[index];
+
+		positionCount++;
+
+		int best;
+		int bestMove = -1;
+
+		if (engine.getGameState() == GameState.Complete) {
+
+			// the previous player has either won or filled the board.
+			best = (engine.getWinner() != null) ? -WIN : 0;
+
+		} else {
+
+			best = Integer.MIN_VALUE;
+			int power = 1;
+
+			for (int cell = 0; cell < 9; cell++, power *= 3) {
+
+				if (engine.getToken(cell % 3, cell / 3) != null)
+					continue;
+
+				int digit = engine.getNextToken().ordinal() + 1;
+
+				engine.place(cell % 3, cell / 3);
+				int score = -solve(index + digit * power);
+				engine.undo();
+
+				// one ply further from the end of the game.
+				score += (score > 0) ? -1 : (score < 0) ? 1 : 0;
+
+				if (score > best) {
+					best = score;
+					bestMove = cell;
+				}
+			}
+		}
+
+		scores[index] = best;
+		bestMoves[index] = bestMove;
+		outcomes[index] = (best > 0) ? PerfectPlayTable.WIN
+				: (best < 0) ? PerfectPlayTable.LOSS : PerfectPlayTable.DRAW;
+
+		return best;
+	}
+
+	/**
+	 * @param args
+	 *            the output file.
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 1) {
+			System.err.println("usage: PerfectPlayTableGenerator <output file>");
+			System.exit(1);
+		}
+
+		PerfectPlayTableGenerator generator = new PerfectPlayTableGenerator();
+		PerfectPlayTable table = generator.generate();
+
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(
+				args[0]));
+		try {
+			table.write(out);
+		} finally {
+			out.close();
+		}
+
+		System.out.println("wrote " + generator.getPositionCount()
+				+ " positions to " + args[0]);
+
+	}
+
+}
@@ -0,0 +1,122 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.ai;
+
+/**
+ * The outcome of a search: the best move found and its value for the player
+ * to move.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class SearchResult {
+
+	private final int x, y;
+
+	private final int score;
+
+	private final int depth;
+
+	private final long nodes;
+
+	private final long elapsedNanos;
+
+	public SearchResult(int x, int y, int score, int depth, long nodes,
+			long elapsedNanos) {
+		super();
+
+		this.x = x;
+		this.y = y;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the x coordinate of the best move, or -1 if the game is over.
+	 *
+	 * @return
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the y coordinate of the best move, or -1 if the game is over.
+	 *
+	 * @return
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Returns the value of the best move for the player to move. Positive
+	 * values are good for him; a forced win or loss is reported as
+	 * {@link TicTacToeSolver#WIN_SCORE} minus the number of plies to the end
+	 * of the game.
+	 *
+	 * @return
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns if the player to move can force a win.
+	 *
+	 * @return
+	 */
+	public boolean isWin() {
+		return score > TicTacToeSolver.WIN_THRESHOLD;
+	}
+
+	/**
+	 * Returns if the opponent can force a win.
+	 *
+	 * @return
+	 */
+	public boolean isLoss() {
+		return score < -TicTacToeSolver.WIN_THRESHOLD;
+	}
+
+	/**
+	 * Returns the depth of the last completed iteration.
+	 *
+	 * @return
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the number of positions visited.
+	 *
+	 * @return
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of positions visited per second.
+	 *
+	 * @return
+	 */
+	public long getNodesPerSecond() {
+		return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + x + "," + y + ") score=" + score + " depth=" + depth
+				+ " nodes=" + nodes;
+	}
+
+}
@@ -0,0 +1,611 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.ai;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.event.GameEventListener;
+import com.museviral.training.tdd.example.tictactoe.jfr.FlightEvents;
+import com.museviral.training.tdd.example.tictactoe.jfr.SearchIterationEvent;
+
+/**
+ * Finds the best move for {@link TicTacToeEngine#getNextToken()}.
+ * <p>
+ *
+ * The search is an iterative deepening negamax with alpha-beta pruning. Moves
+ * are tried in the order: best move from the {@link TranspositionTable},
+ * then by history heuristic and closeness to the centre. On boards larger
+ * than 4 x 4 only the cells next to a token are considered.
+ * <p>
+ *
+ * The search plays the moves on the given engine and takes them back with
+ * {@link TicTacToeEngine#undo()}, so the engine is left in its original
+ * position (without the moves to redo) and no object is created per node. A
+ * solver is not thread-safe; use one per thread.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class TicTacToeSolver {
+
+	/**
+	 * Score of a win on the next move. A win in <code>n</code> plies scores
+	 * <code>WIN_SCORE - n</code>.
+	 */
+	public static final int WIN_SCORE = 1000000;
+
+	/**
+	 * Scores above this value (or below its negation) are forced wins (or
+	 * losses).
+	 */
+	public static final int WIN_THRESHOLD = WIN_SCORE - 100000;
+
+	static final int INFINITY = WIN_SCORE + 1;
+
+	/**
+	 * Largest board the solver accepts.
+	 */
+	public static final int MAX_CELLS = 4096;
+
+	/**
+	 * Boards up to this number of cells consider every empty cell.
+	 */
+	private static final int FULL_WIDTH_CELLS = 16;
+
+	private static final int[][] DIRECTIONS = { { 1, 0 }, { 0, 1 }, { 1, 1 },
+			{ 1, -1 } };
+
+	private final TranspositionTable table;
+
+	private int maxDepth = Integer.MAX_VALUE;
+
+	private boolean useSymmetry;
+
+	private long timeLimitNanos;
+
+	//
+	// state of the current search, reused between searches.
+	//
+
+	private TicTacToeEngine engine;
+
+	private int width, height, cells, winLength;
+
+	private int[][] moveBuffer;
+
+	private int[][] scoreBuffer;
+
+	private int[] history;
+
+	private long nodes;
+
+	private long deadline;
+
+	private boolean aborted;
+
+	private int rootBestMove;
+
+	/**
+	 * The ply at which the current search started; the best move is
+	 * recorded at that ply.
+	 */
+	private int rootPly;
+
+	/**
+	 * Symmetries of the board when {@link #useSymmetry} is on and the board
+	 * is square, otherwise <code>null</code>.
+	 */
+	private BoardSymmetry symmetry;
+
+	/**
+	 * Create a solver with a transposition table of 2^20 entries (16 MB).
+	 */
+	public TicTacToeSolver() {
+		this(new TranspositionTable(20));
+	}
+
+	public TicTacToeSolver(TranspositionTable table) {
+		super();
+
+		this.table = table;
+	}
+
+	/**
+	 * Limit the number of plies searched. By default the search goes to the
+	 * end of the game.
+	 *
+	 * @param maxDepth
+	 */
+	public void setMaxDepth(int maxDepth) {
+
+		if (maxDepth <= 0) {
+			throw new IllegalArgumentException("depth must be positive: "
+					+ maxDepth);
+		}
+
+		this.maxDepth = maxDepth;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Limit the time of a search. The result of the last completed iteration
+	 * is returned when the time is up. 0 means no limit.
+	 *
+	 * @param millis
+	 */
+	public void setTimeLimitMillis(long millis) {
+		this.timeLimitNanos = millis * 1000000L;
+	}
+
+	/**
+	 * Store symmetric positions of a square board once in the transposition
+	 * table, keyed by {@link BoardSymmetry#canonicalize(TicTacToeEngine)}.
+	 * This fits up to 8 times more positions in the table, for the cost of
+	 * computing the canonical key at every node.
+	 *
+	 * @param useSymmetry
+	 */
+	public void setUseSymmetry(boolean useSymmetry) {
+
+		// the stored entries are keyed the other way.
+		if (useSymmetry != this.useSymmetry) {
+			table.clear();
+		}
+
+		this.useSymmetry = useSymmetry;
+	}
+
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Search the best move for the next token of the engine.
+	 *
+	 * @param engine
+	 *            the position to search. It is modified during the search and
+	 *            restored before returning.
+	 * @return the best move, with coordinates -1 if the game is over.
+	 * @throws IllegalArgumentException
+	 *             if the board has more than {@link #MAX_CELLS} cells.
+	 */
+	public SearchResult search(TicTacToeEngine engine) {
+
+		long start = System.nanoTime();
+
+		if (engine.getGameState() != GameState.InProgress) {
+			return new SearchResult(-1, -1, 0, 0, 0, 0);
+		}
+
+		// the moves tried by the search are not moves of the game.
+		GameEventListener listener = engine.getGameEventListener();
+		boolean metrics = engine.isMetricsEnabled();
+		engine.setGameEventListener(null);
+		engine.setMetricsEnabled(false);
+		try {
+			return iterate(engine, start);
+		} finally {
+			engine.setGameEventListener(listener);
+			engine.setMetricsEnabled(metrics);
+		}
+	}
+
+	/**
+	 * Deepen the search until the limits.
+	 */
+	private SearchResult iterate(TicTacToeEngine engine, long start) {
+
+		prepare(engine);
+
+		nodes = 0;
+		aborted = false;
+		rootPly = 0;
+		deadline = (timeLimitNanos > 0) ? start + timeLimitNanos : 0;
+
+		int empty = cells - engine.getTokenCount();
+		int limit = Math.min(maxDepth, empty);
+
+		int bestMove = -1;
+		int bestScore = 0;
+		int completedDepth = 0;
+
+		// a small board is solved to the end at once, deepening step by step
+		// only pays off when the move ordering matters.
+		int first = (cells <= FULL_WIDTH_CELLS && limit == empty
+				&& deadline == 0) ? limit : 1;
+
+		for (int depth = first; depth <= limit; depth++) {
+
+			rootBestMove = -1;
+			SearchIterationEvent event = FlightEvents.AVAILABLE ? SearchIterationEvent
+					.start() : null;
+			int score = negamax(depth, 0, -INFINITY, INFINITY);
+			if (event != null)
+				event.record("TicTacToeSolver", width, height,
+						engine.getTokenCount(), depth, score, nodes, aborted);
+
+			if (aborted)
+				break;
+
+			bestMove = rootBestMove;
+			bestScore = score;
+			completedDepth = depth;
+
+			// a forced result does not change with a deeper search.
+			if (score > WIN_THRESHOLD || score < -WIN_THRESHOLD)
+				break;
+		}
+
+		// out of time before the first iteration completed: take the first
+		// candidate.
+		if (bestMove < 0) {
+			generateMoves(0, -1);
+			bestMove = moveBuffer[0][0];
+		}
+
+		this.engine = null;
+
+		return new SearchResult(bestMove % width, bestMove / width,
+				bestScore, completedDepth, nodes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Search the position to a fixed depth inside a window, as a subtree of
+	 * a larger search. Used by {@link ParallelSolver} on its worker threads.
+	 *
+	 * @param engine
+	 * @param depth
+	 *            remaining depth.
+	 * @param ply
+	 *            distance to the root of the larger search.
+	 * @param alpha
+	 * @param beta
+	 * @return the score; {@link #getLastBestMove()} and
+	 *         {@link #getLastNodes()} describe the search.
+	 */
+	int searchWindow(TicTacToeEngine engine, int depth, int ply, int alpha,
+			int beta) {
+
+		prepare(engine);
+
+		nodes = 0;
+		aborted = false;
+		deadline = 0;
+		rootPly = ply;
+		rootBestMove = -1;
+
+		int score = negamax(depth, ply, alpha, beta);
+
+		this.engine = null;
+
+		return score;
+	}
+
+	/**
+	 * Fill the array with the candidate moves of the position, best first.
+	 *
+	 * @param engine
+	 * @param moves
+	 *            an array with one element per cell.
+	 * @return the number of candidate moves.
+	 */
+	int candidateMoves(TicTacToeEngine engine, int[] moves) {
+
+		prepare(engine);
+
+		long entry = table.probe(engine.getPositionHash());
+		int tableMove = (entry == TranspositionTable.MISS) ? -1
+				: TranspositionTable.move(entry);
+
+		int count = generateMoves(0, tableMove);
+		System.arraycopy(moveBuffer[0], 0, moves, 0, count);
+
+		this.engine = null;
+
+		return count;
+	}
+
+	long getLastNodes() {
+		return nodes;
+	}
+
+	int getLastBestMove() {
+		return rootBestMove;
+	}
+
+	private void prepare(TicTacToeEngine engine) {
+
+		long size = (long) engine.getWidth() * engine.getHeight();
+		if (size > MAX_CELLS) {
+			throw new IllegalArgumentException("board too large to search: "
+					+ engine.getWidth() + "x" + engine.getHeight());
+		}
+
+		// the scores of another board or win length are not valid here, and
+		// the hashes of its positions collide with these ones.
+		boolean changed = history == null || engine.getWidth() != width
+				|| engine.getHeight() != height
+				|| engine.getWinLength() != winLength;
+
+		this.engine = engine;
+		this.width = engine.getWidth();
+		this.height = engine.getHeight();
+		this.winLength = engine.getWinLength();
+
+		if (useSymmetry && width == height) {
+			if (symmetry == null || symmetry.getSize() != width) {
+				symmetry = new BoardSymmetry(width);
+			}
+		} else {
+			symmetry = null;
+		}
+
+		if (changed) {
+			if (history != null) {
+				table.clear();
+			}
+
+			cells = (int) size;
+			history = new int[cells];
+			moveBuffer = null;
+		} else {
+			// keep a little of the history of the previous searches.
+			for (int i = 0; i < cells; i++) {
+				history[i] >>= 2;
+			}
+		}
+
+		int plies = Math.min(maxDepth, cells) + 1;
+		if (moveBuffer == null || moveBuffer.length < plies) {
+			moveBuffer = new int[plies][cells];
+			scoreBuffer = new int[plies][cells];
+		}
+
+	}
+
+	private int negamax(int depth, int ply, int alpha, int beta) {
+
+		nodes++;
+		if (deadline != 0 && (nodes & 1023) == 0
+				&& System.nanoTime() > deadline) {
+			aborted = true;
+		}
+		if (aborted)
+			return 0;
+
+		int originalAlpha = alpha;
+		int tableMove = -1;
+
+		long hash;
+		int transform = 0;
+		if (symmetry != null) {
+			long canonical = symmetry.canonicalize(engine);
+			hash = BoardSymmetry.keyOf(canonical);
+			transform = BoardSymmetry.transformOf(canonical);
+		} else {
+			hash = engine.getPositionHash();
+		}
+
+		long entry = table.probe(hash);
+		if (entry != TranspositionTable.MISS) {
+
+			tableMove = TranspositionTable.move(entry);
+			if (symmetry != null && tableMove >= 0) {
+				tableMove = symmetry.fromCanonical(transform, tableMove);
+			}
+
+			if (TranspositionTable.depth(entry) >= depth && tableMove >= 0) {
+
+				int score = fromTable(TranspositionTable.score(entry), ply);
+
+				switch (TranspositionTable.flag(entry)) {
+				case TranspositionTable.EXACT:
+					alpha = beta = score;
+					break;
+				case TranspositionTable.LOWER_BOUND:
+					alpha = Math.max(alpha, score);
+					break;
+				case TranspositionTable.UPPER_BOUND:
+					beta = Math.min(beta, score);
+					break;
+				default:
+					break;
+				}
+
+				if (alpha >= beta) {
+					if (ply == rootPly)
+						rootBestMove = tableMove;
+					return score;
+				}
+			}
+		}
+
+		if (depth == 0)
+			return evaluate();
+
+		int count = generateMoves(ply, tableMove);
+		int[] moves = moveBuffer[ply];
+
+		int best = -INFINITY;
+		int bestMove = -1;
+
+		for (int i = 0; i < count; i++) {
+
+			int cell = moves[i];
+
+			engine.place(cell % width, cell / width);
+
+			int score;
+			if (engine.getGameState() == GameState.Complete) {
+				// the mover has either won or filled the board.
+				score = (engine.getWinner() != null) ? WIN_SCORE - (ply + 1)
+						: 0;
+			} else {
+				score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+			}
+
+			engine.undo();
+
+			if (aborted)
+				return 0;
+
+			if (score > best) {
+				best = score;
+				bestMove = cell;
+
+				if (score > alpha) {
+					alpha = score;
+
+					if (alpha >= beta) {
+						history[cell] += depth * depth;
+						break;
+					}
+				}
+			}
+		}
+
+		if (ply == rootPly)
+			rootBestMove = bestMove;
+
+		int flag = (best <= originalAlpha) ? TranspositionTable.UPPER_BOUND
+				: (best >= beta) ? TranspositionTable.LOWER_BOUND
+						: TranspositionTable.EXACT;
+		table.store(hash, Math.min(depth, 255), flag, toTable(best, ply),
+				(symmetry != null && bestMove >= 0) ? symmetry.toCanonical(
+						transform, bestMove) : bestMove);
+
+		return best;
+	}
+
+	/**
+	 * Convert a score relative to the root to a score relative to the node,
+	 * so that a forced win found in another branch has the right distance.
+	 */
+	static int toTable(int score, int ply) {
+		if (score > WIN_THRESHOLD)
+			return score + ply;
+		if (score < -WIN_THRESHOLD)
+			return score - ply;
+		return score;
+	}
+
+	static int fromTable(int score, int ply) {
+		if (score > WIN_THRESHOLD)
+			return score - ply;
+		if (score < -WIN_THRESHOLD)
+			return score + ply;
+		return score;
+	}
+
+	/**
+	 * Fill the move buffer of the ply with the candidate cells, best first.
+	 *
+	 * @return the number of candidates.
+	 */
+	private int generateMoves(int ply, int tableMove) {
+
+		int[] moves = moveBuffer[ply];
+		int[] scores = scoreBuffer[ply];
+
+		// the centre is the only sensible opening on a large board.
+		if (cells > FULL_WIDTH_CELLS && engine.getTokenCount() == 0) {
+			moves[0] = (height / 2) * width + width / 2;
+			return 1;
+		}
+
+		boolean local = cells > FULL_WIDTH_CELLS;
+		int count = 0;
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+
+				if (engine.getToken(x, y) != null)
+					continue;
+
+				if (local && !hasNeighbour(x, y))
+					continue;
+
+				int cell = y * width + x;
+				int score = (cell == tableMove) ? Integer.MAX_VALUE
+						: history[cell] * 64 - Math.abs(2 * x - width + 1)
+								- Math.abs(2 * y - height + 1);
+
+				// insertion sort, best first.
+				int i = count++;
+				while (i > 0 && scores[i - 1] < score) {
+					moves[i] = moves[i - 1];
+					scores[i] = scores[i - 1];
+					i--;
+				}
+				moves[i] = cell;
+				scores[i] = score;
+			}
+		}
+
+		return count;
+	}
+
+	private boolean hasNeighbour(int x, int y) {
+
+		for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+			for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+				if (engine.getToken(nx, ny) != null)
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Static evaluation for the player to move at the depth limit: every
+	 * window of {@link #winLength} cells which only contains tokens of one
+	 * player counts for that player, more for fuller windows.
+	 */
+	private int evaluate() {
+
+		Token me = engine.getNextToken();
+		int score = 0;
+
+		for (int[] direction : DIRECTIONS) {
+
+			int dx = direction[0];
+			int dy = direction[1];
+
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+
+					int endX = x + dx * (winLength - 1);
+					int endY = y + dy * (winLength - 1);
+					if (endX >= width || endY < 0 || endY >= height)
+						continue;
+
+					int mine = 0;
+					int theirs = 0;
+					for (int i = 0; i < winLength; i++) {
+						Token token = engine.getToken(x + dx * i, y + dy * i);
+						if (token == me) {
+							mine++;
+						} else if (token != null) {
+							theirs++;
+						}
+					}
+
+					if (theirs == 0 && mine > 0) {
+						score += 1 << Math.min(3 * mine, 24);
+					} else if (mine == 0 && theirs > 0) {
+						score -= 1 << Math.min(3 * theirs, 24);
+					}
+				}
+			}
+		}
+
+		return Math.max(-WIN_THRESHOLD, Math.min(WIN_THRESHOLD, score));
+	}
+
+}
@@ -0,0 +1,163 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.ai;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results, keyed by the 64-bit hash of a
+ * position.
+ * <p>
+ *
+ * The table is two primitive arrays: the keys, and one <code>long</code> per
+ * entry packing the score, the best move, the search depth and the bound
+ * type. No object is created per entry, and the memory is fixed at
+ * construction.
+ * <p>
+ *
+ * The table can be shared by threads without locking. The key slot stores
+ * <code>key ^ entry</code>, so an entry whose two halves were written by
+ * different threads does not verify against its key and is reported as a
+ * miss instead of returning mixed data.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class TranspositionTable {
+
+	/**
+	 * The score is the exact value of the position.
+	 */
+	public static final int EXACT = 1;
+
+	/**
+	 * The score is a lower bound of the value (the search failed high).
+	 */
+	public static final int LOWER_BOUND = 2;
+
+	/**
+	 * The score is an upper bound of the value (the search failed low).
+	 */
+	public static final int UPPER_BOUND = 3;
+
+	/**
+	 * Returned by {@link #probe(long)} when the position is not stored.
+	 */
+	public static final long MISS = 0;
+
+	private final long[] keys;
+
+	private final long[] data;
+
+	private final int mask;
+
+	/**
+	 * Create a table.
+	 *
+	 * @param sizeBits
+	 *            the table has <code>2^sizeBits</code> entries of 16 bytes.
+	 */
+	public TranspositionTable(int sizeBits) {
+		super();
+
+		if (sizeBits < 1 || sizeBits > 30) {
+			throw new IllegalArgumentException("size bits out of range: "
+					+ sizeBits);
+		}
+
+		keys = new long[1 << sizeBits];
+		data = new long[1 << sizeBits];
+		mask = (1 << sizeBits) - 1;
+	}
+
+	/**
+	 * Look up a position.
+	 *
+	 * @param key
+	 *            the hash of the position.
+	 * @return the packed entry, or {@link #MISS}.
+	 */
+	public long probe(long key) {
+
+		int index = index(key);
+		long entry = data[index];
+
+		if ((keys[index] ^ entry) != key)
+			return MISS;
+
+		return entry;
+	}
+
+	/**
+	 * Store the result of a search. An entry of a different position is
+	 * always replaced, an entry of the same position only by a search which
+	 * is at least as deep.
+	 *
+	 * @param key
+	 *            the hash of the position.
+	 * @param depth
+	 *            the remaining depth of the search, 0 to 255.
+	 * @param flag
+	 *            {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}.
+	 * @param score
+	 * @param move
+	 *            the best move as a cell index, or -1 if none.
+	 */
+	public void store(long key, int depth, int flag, int score, int move) {
+
+		int index = index(key);
+		long old = data[index];
+
+		if ((keys[index] ^ old) == key && depth(old) > depth)
+			return;
+
+		long entry = pack(depth, flag, score, move);
+		keys[index] = key ^ entry;
+		data[index] = entry;
+
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(data, MISS);
+	}
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	private int index(long key) {
+		return (int) (key ^ (key >>> 32)) & mask;
+	}
+
+	static long pack(int depth, int flag, int score, int move) {
+		return (score & 0xFFFFFFFFL) | ((long) ((move + 1) & 0xFFFF) << 32)
+				| ((long) (depth & 0xFF) << 48) | ((long) flag << 56);
+	}
+
+	public static int score(long entry) {
+		return (int) entry;
+	}
+
+	public static int move(long entry) {
+		return (int) ((entry >>> 32) & 0xFFFF) - 1;
+	}
+
+	public static int depth(long entry) {
+		return (int) ((entry >>> 48) & 0xFF);
+	}
+
+	public static int flag(long entry) {
+		return (int) ((entry >>> 56) & 0x3);
+	}
+
+}
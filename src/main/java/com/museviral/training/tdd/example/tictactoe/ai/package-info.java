@@ -0,0 +1,10 @@
+/**
+ * 
+ */
+/**
+ * Computer players for the tic tac toe engine.
+ * 
+ * @author Cyril
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.ai;
@@ -0,0 +1,33 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.event;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * A {@link GameEventListener} which ignores all events, to extend for the
+ * events of interest.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public abstract class GameEventAdapter implements GameEventListener {
+
+	@Override
+	public void placed(int x, int y, Token token, int moveNumber) {
+	}
+
+	@Override
+	public void won(Token winner, int moves) {
+	}
+
+	@Override
+	public void drawn(int moves) {
+	}
+
+	@Override
+	public void restarted() {
+	}
+
+}
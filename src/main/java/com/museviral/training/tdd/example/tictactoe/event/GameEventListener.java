@@ -0,0 +1,58 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.event;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * Receives the events of a game, see
+ * {@link TicTacToeEngine#setGameEventListener(GameEventListener)}. The
+ * events only carry primitives and tokens, so sending them creates no
+ * object.
+ * <p>
+ *
+ * The methods are called on the thread which plays, while it plays; a slow
+ * listener should be behind a {@link RingBufferDispatcher}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public interface GameEventListener {
+
+	/**
+	 * A token was placed.
+	 *
+	 * @param x
+	 * @param y
+	 * @param token
+	 *            the player of the move.
+	 * @param moveNumber
+	 *            the number of tokens on the board, from 1.
+	 */
+	void placed(int x, int y, Token token, int moveNumber);
+
+	/**
+	 * The last placed token won the game.
+	 *
+	 * @param winner
+	 * @param moves
+	 *            the number of tokens on the board.
+	 */
+	void won(Token winner, int moves);
+
+	/**
+	 * The last placed token filled the board without a winner.
+	 *
+	 * @param moves
+	 *            the number of tokens on the board.
+	 */
+	void drawn(int moves);
+
+	/**
+	 * The game was restarted: the board is empty.
+	 */
+	void restarted();
+
+}
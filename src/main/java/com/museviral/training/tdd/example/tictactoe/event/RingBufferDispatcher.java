@@ -0,0 +1,297 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.event;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * Sends the events of a game to a listener on a thread of its own, so that
+ * a slow listener does not slow down the game.
+ * <p>
+ *
+ * The events are encoded as two longs in a ring buffer allocated once:
+ * publishing an event writes them and moves the tail, without lock and
+ * without creating an object. There must be a single producer: the events
+ * may come from several engines, but from one thread at a time. When the
+ * listener is so slow that the buffer is full, the new events are dropped
+ * and counted rather than waited for.
+ * <p>
+ *
+ * The dispatching thread spins, then sleeps while there are no events, so
+ * that publishing never has to wake it up: {@link #IDLE_NANOS} first, twice
+ * as long each time after that, up to {@link #MAX_IDLE_NANOS}. An event
+ * published after a long idle time thus waits up to a millisecond.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class RingBufferDispatcher implements GameEventListener, Closeable {
+
+	/**
+	 * How long the dispatching thread sleeps first when there are no events.
+	 */
+	public static final long IDLE_NANOS = 50000;
+
+	/**
+	 * The longest sleep of the dispatching thread when there are no events.
+	 */
+	public static final long MAX_IDLE_NANOS = 1000000;
+
+	private static final int SPINS = 100;
+
+	private static final int PLACED = 1, WON = 2, DRAWN = 3, RESTARTED = 4;
+
+	private static final Token[] TOKENS = Token.values();
+
+	private final GameEventListener listener;
+
+	/**
+	 * Two longs per event: the kind, the token and the move number, then the
+	 * coordinates.
+	 */
+	private final long[] events;
+
+	private final int mask;
+
+	/**
+	 * The next event to dispatch, moved by the dispatching thread.
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * The next event to publish, moved by the producer.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * The head as last seen by the producer, so that it only reads the
+	 * shared one when the buffer looks full.
+	 */
+	private long knownHead;
+
+	private volatile long dropped;
+
+	private volatile long failures;
+
+	private volatile boolean closed;
+
+	private final Thread thread;
+
+	/**
+	 * Start dispatching.
+	 *
+	 * @param listener
+	 *            the listener, called on the dispatching thread.
+	 * @param capacity
+	 *            the number of events the buffer holds, rounded up to a
+	 *            power of two.
+	 */
+	public RingBufferDispatcher(GameEventListener listener, int capacity) {
+		super();
+
+		if (listener == null)
+			throw new IllegalArgumentException("Missing listener");
+		if (capacity <= 0 || capacity > 1 << 28)
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+
+		this.listener = listener;
+		this.events = new long[2 * size];
+		this.mask = size - 1;
+
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				dispatch();
+			}
+		}, "game-events");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Returns the number of events dropped because the buffer was full.
+	 *
+	 * @return
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Returns the number of events for which the listener threw an
+	 * exception.
+	 *
+	 * @return
+	 */
+	public long getFailures() {
+		return failures;
+	}
+
+	@Override
+	public void placed(int x, int y, Token token, int moveNumber) {
+		publish(PLACED, token, moveNumber, x, y);
+	}
+
+	@Override
+	public void won(Token winner, int moves) {
+		publish(WON, winner, moves, 0, 0);
+	}
+
+	@Override
+	public void drawn(int moves) {
+		publish(DRAWN, null, moves, 0, 0);
+	}
+
+	@Override
+	public void restarted() {
+		publish(RESTARTED, null, 0, 0, 0);
+	}
+
+	private void publish(int kind, Token token, int moves, int x, int y) {
+
+		if (closed) {
+			dropped++;
+			return;
+		}
+
+		long next = tail.get();
+		if (next - knownHead > mask) {
+			knownHead = head.get();
+			if (next - knownHead > mask) {
+				dropped++;
+				return;
+			}
+		}
+
+		int index = (int) (next & mask) << 1;
+		events[index] = kind | (token == null ? 0 : token.ordinal() + 1) << 8
+				| (long) moves << 32;
+		events[index + 1] = (long) x << 32 | (y & 0xFFFFFFFFL);
+
+		// the event is written before the tail moves past it.
+		tail.lazySet(next + 1);
+
+		if (closed) {
+			publishedLate(next);
+		}
+	}
+
+	/**
+	 * Count the event as dropped if the dispatching thread stopped before it
+	 * was published: close() was called meanwhile.
+	 */
+	private void publishedLate(long event) {
+
+		// a listener publishing on the dispatching thread is still served.
+		if (Thread.currentThread() == thread)
+			return;
+
+		awaitDispatcher();
+		if (head.get() <= event) {
+			dropped++;
+		}
+	}
+
+	private void dispatch() {
+
+		long next = head.get();
+		int idle = 0;
+		long sleep = IDLE_NANOS;
+
+		while (true) {
+
+			long end = tail.get();
+			if (next == end) {
+				if (closed && tail.get() == next)
+					return;
+
+				if (idle++ < SPINS) {
+					Thread.yield();
+				} else {
+					LockSupport.parkNanos(this, sleep);
+					sleep = Math.min(2 * sleep, MAX_IDLE_NANOS);
+				}
+				continue;
+			}
+
+			idle = 0;
+			sleep = IDLE_NANOS;
+			for (; next < end; next++) {
+				int index = (int) (next & mask) << 1;
+				try {
+					send(events[index], events[index + 1]);
+				} catch (RuntimeException e) {
+					failures++;
+				}
+			}
+
+			// the producer may now write over the dispatched events.
+			head.lazySet(next);
+		}
+	}
+
+	private void send(long event, long coordinates) {
+
+		int moves = (int) (event >>> 32);
+		int token = (int) (event >>> 8) & 0xFF;
+
+		switch ((int) event & 0xFF) {
+		case PLACED:
+			listener.placed((int) (coordinates >> 32), (int) coordinates,
+					TOKENS[token - 1], moves);
+			break;
+		case WON:
+			listener.won(TOKENS[token - 1], moves);
+			break;
+		case DRAWN:
+			listener.drawn(moves);
+			break;
+		default:
+			listener.restarted();
+			break;
+		}
+	}
+
+	/**
+	 * Dispatch the events published so far, then stop the dispatching
+	 * thread. The events published after that are dropped.
+	 */
+	@Override
+	public void close() {
+
+		closed = true;
+		LockSupport.unpark(thread);
+		awaitDispatcher();
+	}
+
+	private void awaitDispatcher() {
+
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
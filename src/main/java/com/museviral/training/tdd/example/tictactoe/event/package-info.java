@@ -0,0 +1,10 @@
+/**
+ * 
+ */
+/**
+ * Events of the games, sent to listeners directly or through a ring buffer.
+ * 
+ * @author Cyril
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.event;
@@ -0,0 +1,46 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.jfr;
+
+/**
+ * Tells whether the flight recorder events can be created. The events are
+ * defined with the <code>jdk.jfr</code> API, which older Java 8 runtimes
+ * do not have: the code creating them tests {@link #AVAILABLE} first, so
+ * that the event classes are never loaded there.
+ * <p>
+ *
+ * The events are disabled unless a recording enables them by name, e.g.
+ * with the <code>tictactoe.jfc</code> settings of this package, so they
+ * cost close to nothing when nobody records them.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public final class FlightEvents {
+
+	/**
+	 * The category of all the events, under which Mission Control groups
+	 * them.
+	 */
+	public static final String CATEGORY = "Tic Tac Toe";
+
+	/**
+	 * Whether the runtime has the flight recorder.
+	 */
+	public static final boolean AVAILABLE = isAvailable();
+
+	private FlightEvents() {
+		super();
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import com.museviral.training.tdd.example.tictactoe.ConsoleRenderer;
+
+/**
+ * A frame drawn by {@link ConsoleRenderer}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@Name("com.museviral.tictactoe.Frame")
+@Label("Console Frame")
+@Category({ FlightEvents.CATEGORY, "Console" })
+@Description("The current player and the board written to the console")
+@StackTrace(false)
+@Enabled(false)
+public class FrameEvent extends jdk.jfr.Event {
+
+	/**
+	 * Tells whether the event is enabled, without creating one.
+	 */
+	private static final FrameEvent PROBE = new FrameEvent();
+
+	@Label("Width")
+	private int width;
+
+	@Label("Height")
+	private int height;
+
+	@Label("ANSI")
+	@Description("Whether only the changed cells were drawn")
+	private boolean ansi;
+
+	@Label("Bytes")
+	@Description("The size of the frame written")
+	private int bytes;
+
+	/**
+	 * Start an event, if it is recorded.
+	 *
+	 * @return the started event, or <code>null</code> if it is not
+	 *         recorded.
+	 */
+	public static FrameEvent start() {
+
+		if (!PROBE.isEnabled())
+			return null;
+
+		FrameEvent event = new FrameEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Commit the event.
+	 */
+	public void record(int width, int height, boolean ansi, int bytes) {
+
+		if (!shouldCommit())
+			return;
+
+		this.width = width;
+		this.height = height;
+		this.ansi = ansi;
+		this.bytes = bytes;
+		commit();
+	}
+
+}
@@ -0,0 +1,87 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+
+/**
+ * A call of {@link TicTacToeEngine#place(int, int)}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@Name("com.museviral.tictactoe.Place")
+@Label("Place")
+@Category({ FlightEvents.CATEGORY, "Engine" })
+@Description("A token placed on the board, or a rejected move")
+@StackTrace(false)
+@Enabled(false)
+public class PlaceEvent extends jdk.jfr.Event {
+
+	/**
+	 * Tells whether the event is enabled, without creating one.
+	 */
+	private static final PlaceEvent PROBE = new PlaceEvent();
+
+	@Label("Width")
+	private int width;
+
+	@Label("Height")
+	private int height;
+
+	@Label("X")
+	private int x;
+
+	@Label("Y")
+	private int y;
+
+	@Label("Move Number")
+	@Description("The number of tokens on the board after the move")
+	private int moveNumber;
+
+	@Label("Accepted")
+	private boolean accepted;
+
+	/**
+	 * Start an event, if it is recorded.
+	 *
+	 * @return the started event, or <code>null</code> if it is not
+	 *         recorded.
+	 */
+	public static PlaceEvent start() {
+
+		if (!PROBE.isEnabled())
+			return null;
+
+		PlaceEvent event = new PlaceEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Commit the event.
+	 */
+	public void record(int width, int height, int x, int y, int moveNumber,
+			boolean accepted) {
+
+		if (!shouldCommit())
+			return;
+
+		this.width = width;
+		this.height = height;
+		this.x = x;
+		this.y = y;
+		this.moveNumber = moveNumber;
+		this.accepted = accepted;
+		commit();
+	}
+
+}
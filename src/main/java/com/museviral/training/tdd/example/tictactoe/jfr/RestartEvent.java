@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+
+/**
+ * A call of {@link TicTacToeEngine#restart()}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@Name("com.museviral.tictactoe.Restart")
+@Label("Restart")
+@Category({ FlightEvents.CATEGORY, "Engine" })
+@Description("The board cleared for a new game")
+@StackTrace(false)
+@Enabled(false)
+public class RestartEvent extends jdk.jfr.Event {
+
+	/**
+	 * Tells whether the event is enabled, without creating one.
+	 */
+	private static final RestartEvent PROBE = new RestartEvent();
+
+	@Label("Width")
+	private int width;
+
+	@Label("Height")
+	private int height;
+
+	@Label("Moves")
+	@Description("The number of tokens on the board before the restart")
+	private int moves;
+
+	/**
+	 * Start an event, if it is recorded.
+	 *
+	 * @return the started event, or <code>null</code> if it is not
+	 *         recorded.
+	 */
+	public static RestartEvent start() {
+
+		if (!PROBE.isEnabled())
+			return null;
+
+		RestartEvent event = new RestartEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Commit the event.
+	 */
+	public void record(int width, int height, int moves) {
+
+		if (!shouldCommit())
+			return;
+
+		this.width = width;
+		this.height = height;
+		this.moves = moves;
+		commit();
+	}
+
+}
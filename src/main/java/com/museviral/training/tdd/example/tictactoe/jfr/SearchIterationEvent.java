@@ -0,0 +1,98 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import com.museviral.training.tdd.example.tictactoe.ai.TicTacToeSolver;
+
+/**
+ * One iteration of the iterative deepening of {@link TicTacToeSolver} or
+ * of the parallel solver.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@Name("com.museviral.tictactoe.SearchIteration")
+@Label("Search Iteration")
+@Category({ FlightEvents.CATEGORY, "Search" })
+@Description("A search of the game tree to one depth")
+@StackTrace(false)
+@Enabled(false)
+public class SearchIterationEvent extends jdk.jfr.Event {
+
+	/**
+	 * Tells whether the event is enabled, without creating one.
+	 */
+	private static final SearchIterationEvent PROBE = new SearchIterationEvent();
+
+	@Label("Solver")
+	private String solver;
+
+	@Label("Width")
+	private int width;
+
+	@Label("Height")
+	private int height;
+
+	@Label("Move Number")
+	@Description("The number of tokens on the board of the search")
+	private int moveNumber;
+
+	@Label("Depth")
+	private int depth;
+
+	@Label("Score")
+	private int score;
+
+	@Label("Nodes")
+	@Description("The nodes searched since the start of the search")
+	private long nodes;
+
+	@Label("Aborted")
+	@Description("Whether the time limit stopped the iteration")
+	private boolean aborted;
+
+	/**
+	 * Start an event, if it is recorded.
+	 *
+	 * @return the started event, or <code>null</code> if it is not
+	 *         recorded.
+	 */
+	public static SearchIterationEvent start() {
+
+		if (!PROBE.isEnabled())
+			return null;
+
+		SearchIterationEvent event = new SearchIterationEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Commit the event.
+	 */
+	public void record(String solver, int width, int height,
+			int moveNumber, int depth, int score, long nodes, boolean aborted) {
+
+		if (!shouldCommit())
+			return;
+
+		this.solver = solver;
+		this.width = width;
+		this.height = height;
+		this.moveNumber = moveNumber;
+		this.depth = depth;
+		this.score = score;
+		this.nodes = nodes;
+		this.aborted = aborted;
+		commit();
+	}
+
+}
@@ -0,0 +1,80 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+
+/**
+ * The winning check of {@link TicTacToeEngine} after a move.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+@Name("com.museviral.tictactoe.WinCheck")
+@Label("Win Check")
+@Category({ FlightEvents.CATEGORY, "Engine" })
+@Description("The check of the lines through the last placed token")
+@StackTrace(false)
+@Enabled(false)
+public class WinCheckEvent extends jdk.jfr.Event {
+
+	/**
+	 * Tells whether the event is enabled, without creating one.
+	 */
+	private static final WinCheckEvent PROBE = new WinCheckEvent();
+
+	@Label("Width")
+	private int width;
+
+	@Label("Height")
+	private int height;
+
+	@Label("Move Number")
+	@Description("The number of tokens on the board")
+	private int moveNumber;
+
+	@Label("Complete")
+	@Description("Whether the move ended the game")
+	private boolean complete;
+
+	/**
+	 * Start an event, if it is recorded.
+	 *
+	 * @return the started event, or <code>null</code> if it is not
+	 *         recorded.
+	 */
+	public static WinCheckEvent start() {
+
+		if (!PROBE.isEnabled())
+			return null;
+
+		WinCheckEvent event = new WinCheckEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Commit the event.
+	 */
+	public void record(int width, int height, int moveNumber,
+			boolean complete) {
+
+		if (!shouldCommit())
+			return;
+
+		this.width = width;
+		this.height = height;
+		this.moveNumber = moveNumber;
+		this.complete = complete;
+		commit();
+	}
+
+}
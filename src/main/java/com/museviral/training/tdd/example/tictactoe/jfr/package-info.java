@@ -0,0 +1,10 @@
+/**
+ * 
+ */
+/**
+ * Java Flight Recorder events of the engines, the search and the console.
+ * 
+ * @author Cyril
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.jfr;
@@ -0,0 +1,147 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.journal;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * Reads the records of a {@link MoveJournal}, from a position up to the
+ * first empty or incomplete record.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class JournalReader {
+
+	private static final String PREFIX = "moves-";
+
+	private static final String SUFFIX = ".journal";
+
+	private final File directory;
+
+	public JournalReader(File directory) {
+		super();
+
+		this.directory = directory;
+	}
+
+	static File segmentFile(File directory, long index) {
+		return new File(directory, String.format("%s%010d%s", PREFIX, index,
+				SUFFIX));
+	}
+
+	/**
+	 * Returns the indexes of the segment files of a journal, in order.
+	 */
+	static long[] listSegments(File directory) {
+
+		String[] names = directory.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+			}
+		});
+		if (names == null)
+			return new long[0];
+
+		long[] indexes = new long[names.length];
+		for (int i = 0; i < names.length; i++) {
+			indexes[i] = Long.parseLong(names[i].substring(PREFIX.length(),
+					names[i].length() - SUFFIX.length()));
+		}
+		Arrays.sort(indexes);
+
+		return indexes;
+	}
+
+	/**
+	 * Pass the records to a visitor.
+	 *
+	 * @param from
+	 *            the position of the first record, e.g. 0 or a position
+	 *            returned by {@link MoveJournal#getPosition()}.
+	 * @param visitor
+	 * @return the position after the last record.
+	 * @throws IOException
+	 *             if a segment cannot be read.
+	 */
+	public long read(long from, JournalVisitor visitor) throws IOException {
+
+		if (from < 0 || from % MoveJournal.RECORD_SIZE != 0)
+			throw new IllegalArgumentException("Invalid position: " + from);
+
+		long[] indexes = listSegments(directory);
+		if (indexes.length == 0)
+			return from;
+
+		long segmentSize = segmentFile(directory, indexes[0]).length();
+		long index = from / segmentSize;
+		int offset = (int) (from % segmentSize);
+
+		while (true) {
+
+			File file = segmentFile(directory, index);
+			if (!file.exists())
+				return index * segmentSize + offset;
+
+			MappedByteBuffer segment;
+			RandomAccessFile input = new RandomAccessFile(file, "r");
+			try {
+				segment = input.getChannel().map(MapMode.READ_ONLY, 0,
+						segmentSize);
+			} finally {
+				input.close();
+			}
+			segment.order(ByteOrder.LITTLE_ENDIAN);
+
+			for (; offset < segmentSize; offset += MoveJournal.RECORD_SIZE) {
+
+				long header = segment.getLong(offset);
+				int x = segment.getInt(offset + 8);
+				int y = segment.getInt(offset + 12);
+				if (!MoveJournal.isWritten(header, x, y))
+					return index * segmentSize + offset;
+
+				visit(header, x, y, visitor, index * segmentSize + offset);
+			}
+
+			index++;
+			offset = 0;
+		}
+	}
+
+	private static void visit(long header, int x, int y,
+			JournalVisitor visitor, long position) {
+
+		long game = header & MoveJournal.MAX_GAME_ID;
+		int kind = (int) (header >>> MoveJournal.KIND_SHIFT);
+
+		switch (kind) {
+		case MoveJournal.CIRCLE:
+			visitor.move(position, game, x, y, Token.CIRCLE);
+			break;
+		case MoveJournal.CROSS:
+			visitor.move(position, game, x, y, Token.CROSS);
+			break;
+		case MoveJournal.RESTART:
+			visitor.restart(position, game);
+			break;
+		case MoveJournal.CLOSE:
+			visitor.close(position, game);
+			break;
+		default:
+			throw new IllegalStateException("Invalid record at " + position);
+		}
+	}
+
+}
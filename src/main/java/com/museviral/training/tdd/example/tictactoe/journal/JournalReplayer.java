@@ -0,0 +1,153 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * Rebuilds the games of a {@link MoveJournal}: every move is played again
+ * with {@link TicTacToeEngine#place(int, int)} on an engine of the game.
+ * Closed games are dropped.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class JournalReplayer implements JournalVisitor {
+
+	private final TicTacToeEngine prototype;
+
+	private final Map<Long, TicTacToeEngine> games;
+
+	/**
+	 * Replay the games on engines like the prototype.
+	 */
+	public JournalReplayer(TicTacToeEngine prototype) {
+		this(prototype, new HashMap<Long, TicTacToeEngine>());
+	}
+
+	/**
+	 * Replay on top of existing games, e.g. restored from a snapshot.
+	 *
+	 * @param prototype
+	 *            the kind of engine of the new games.
+	 * @param games
+	 *            the games by id, updated by the replay.
+	 */
+	public JournalReplayer(TicTacToeEngine prototype,
+			Map<Long, TicTacToeEngine> games) {
+		super();
+
+		this.prototype = prototype;
+		this.games = games;
+	}
+
+	/**
+	 * Returns the open games, by id.
+	 *
+	 * @return
+	 */
+	public Map<Long, TicTacToeEngine> getGames() {
+		return games;
+	}
+
+	private TicTacToeEngine game(long game) {
+
+		TicTacToeEngine engine = games.get(game);
+		if (engine == null) {
+			engine = prototype.copy();
+			engine.restart();
+			games.put(game, engine);
+		}
+
+		return engine;
+	}
+
+	@Override
+	public void move(long position, long game, int x, int y, Token token) {
+
+		TicTacToeEngine engine = game(game);
+		if (engine.getNextToken() != token || !engine.place(x, y))
+			throw new IllegalStateException("Move " + x + "," + y
+					+ " of game " + game + " cannot be replayed");
+	}
+
+	@Override
+	public void restart(long position, long game) {
+		game(game).restart();
+	}
+
+	@Override
+	public void close(long position, long game) {
+		games.remove(game);
+	}
+
+	/**
+	 * Rebuild the open games of a journal.
+	 *
+	 * @param directory
+	 *            the directory of the journal.
+	 * @param prototype
+	 *            the kind of engine of the games.
+	 * @return the games by id.
+	 * @throws IOException
+	 *             if the journal cannot be read.
+	 */
+	public static Map<Long, TicTacToeEngine> replay(File directory,
+			TicTacToeEngine prototype) throws IOException {
+
+		JournalReplayer replayer = new JournalReplayer(prototype);
+		new JournalReader(directory).read(0, replayer);
+
+		return replayer.getGames();
+	}
+
+	/**
+	 * Rebuild one game of a journal.
+	 *
+	 * @param directory
+	 *            the directory of the journal.
+	 * @param prototype
+	 *            the kind of engine of the game.
+	 * @param game
+	 *            the id of the game.
+	 * @return the game, or <code>null</code> if it is closed or was never
+	 *         played.
+	 * @throws IOException
+	 *             if the journal cannot be read.
+	 */
+	public static TicTacToeEngine replay(File directory,
+			TicTacToeEngine prototype, final long game) throws IOException {
+
+		final JournalReplayer replayer = new JournalReplayer(prototype);
+		new JournalReader(directory).read(0, new JournalVisitor() {
+			@Override
+			public void move(long position, long id, int x, int y,
+					Token token) {
+				if (id == game)
+					replayer.move(position, id, x, y, token);
+			}
+
+			@Override
+			public void restart(long position, long id) {
+				if (id == game)
+					replayer.restart(position, id);
+			}
+
+			@Override
+			public void close(long position, long id) {
+				if (id == game)
+					replayer.close(position, id);
+			}
+		});
+
+		return replayer.getGames().get(game);
+	}
+
+}
@@ -0,0 +1,33 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.journal;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * Receives the records of a {@link MoveJournal}, in order, from a
+ * {@link JournalReader}. Each record comes with its position in the
+ * journal.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public interface JournalVisitor {
+
+	/**
+	 * A token was placed.
+	 */
+	void move(long position, long game, int x, int y, Token token);
+
+	/**
+	 * A new game was started.
+	 */
+	void restart(long position, long game);
+
+	/**
+	 * The game was closed.
+	 */
+	void close(long position, long game);
+
+}
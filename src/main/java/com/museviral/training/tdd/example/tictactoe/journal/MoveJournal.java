@@ -0,0 +1,445 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * An append-only journal of the moves of many games, in memory-mapped
+ * segment files of a fixed size.
+ * <p>
+ *
+ * A record takes {@link #RECORD_SIZE} bytes, little-endian: a long with the
+ * kind of record in its high byte, a check of the whole record in the next
+ * two bytes and the game id below, then x and y as ints. The long is
+ * written last, and a record whose long is still 0 or does not match its
+ * check ends the journal, so a record cut by the end of the process is
+ * never read, even when its stores reached the disk out of order.
+ * <p>
+ *
+ * Any number of threads can append at the same time: a record is a slot
+ * taken with one atomic add, then written with plain stores in the mapped
+ * page, without lock and without system call. The records of one game are
+ * in the order of their appends when the game is only changed by one
+ * thread at a time, like a session of the registry.
+ * <p>
+ *
+ * The pages are written to the disk by the operating system, by a
+ * background thread every few milliseconds, or by {@link #flush()}. Threads
+ * flushing at the same time share the same write: one of them forces the
+ * segments, and the others find their records already on the disk. A flush
+ * only counts the records up to the first one still being written, so that
+ * the thread writing it forces it again when it flushes.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class MoveJournal implements Closeable {
+
+	/**
+	 * Length of a record, in bytes.
+	 */
+	public static final int RECORD_SIZE = 16;
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+
+	/**
+	 * Largest game id; the byte above holds the kind of record.
+	 */
+	public static final long MAX_GAME_ID = (1L << 40) - 1;
+
+	static final int KIND_SHIFT = 56;
+
+	static final int CHECK_SHIFT = 40;
+
+	static final int CIRCLE = 1;
+
+	static final int CROSS = 2;
+
+	static final int RESTART = 3;
+
+	static final int CLOSE = 4;
+
+	private final File directory;
+
+	private final int segmentSize;
+
+	/**
+	 * The position of the next record.
+	 */
+	private final AtomicLong tail;
+
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+	private final Object flushLock = new Object();
+
+	/**
+	 * The position up to which the records were written and forced to the
+	 * disk.
+	 */
+	private long flushed;
+
+	private final Thread flusher;
+
+	private volatile boolean closed;
+
+	/**
+	 * Open a journal with the default segment size and flush interval.
+	 */
+	public MoveJournal(File directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * Open a journal, and append after its last record if it exists.
+	 *
+	 * @param directory
+	 *            the directory of the segment files, created if needed.
+	 * @param segmentSize
+	 *            the length of a segment file, a multiple of
+	 *            {@link #RECORD_SIZE}.
+	 * @param flushIntervalMillis
+	 *            the period of the background flush, or 0 for none.
+	 * @throws IOException
+	 *             if the journal cannot be read.
+	 */
+	public MoveJournal(File directory, int segmentSize,
+			final long flushIntervalMillis) throws IOException {
+		super();
+
+		if (segmentSize <= 0 || segmentSize % RECORD_SIZE != 0)
+			throw new IllegalArgumentException("Invalid segment size: "
+					+ segmentSize);
+		if (flushIntervalMillis < 0)
+			throw new IllegalArgumentException("Invalid flush interval: "
+					+ flushIntervalMillis);
+
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create " + directory);
+
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+
+		long[] existing = JournalReader.listSegments(directory);
+		long end = 0;
+		if (existing.length > 0) {
+
+			long last = existing[existing.length - 1];
+			if (JournalReader.segmentFile(directory, last).length() != segmentSize)
+				throw new IllegalArgumentException("Segments of " + directory
+						+ " are not of size " + segmentSize);
+
+			end = openTail(last);
+		}
+
+		this.tail = new AtomicLong(end);
+		this.flushed = end;
+
+		if (flushIntervalMillis > 0) {
+			this.flusher = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (!closed) {
+						try {
+							Thread.sleep(flushIntervalMillis);
+						} catch (InterruptedException e) {
+							return;
+						}
+						flush();
+					}
+				}
+			}, "move-journal-flusher");
+			this.flusher.setDaemon(true);
+			this.flusher.start();
+		} else {
+			this.flusher = null;
+		}
+	}
+
+	/**
+	 * Find the end of the last segment and clear what follows it, which
+	 * may be records written after a record cut by a crash.
+	 */
+	private long openTail(long index) {
+
+		MappedByteBuffer segment = segment(index);
+
+		int offset = 0;
+		while (offset < segmentSize && isWritten(segment, offset)) {
+			offset += RECORD_SIZE;
+		}
+
+		for (int i = offset; i < segmentSize; i += 8) {
+			if (segment.getLong(i) != 0) {
+				segment.putLong(i, 0);
+			}
+		}
+
+		return index * segmentSize + offset;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Returns the position of the next record, which is the length of the
+	 * journal in bytes.
+	 *
+	 * @return
+	 */
+	public long getPosition() {
+		return tail.get();
+	}
+
+	/**
+	 * Returns the position up to which the records are on the disk.
+	 *
+	 * @return
+	 */
+	public long getFlushedPosition() {
+		synchronized (flushLock) {
+			return flushed;
+		}
+	}
+
+	/**
+	 * Record a move.
+	 *
+	 * @param game
+	 * @param x
+	 * @param y
+	 * @param token
+	 *            the token placed.
+	 * @return the position of the record.
+	 */
+	public long appendMove(long game, int x, int y, Token token) {
+		return append(game, (token == Token.CROSS) ? CROSS : CIRCLE, x, y);
+	}
+
+	/**
+	 * Record the start of a new game.
+	 *
+	 * @param game
+	 * @return the position of the record.
+	 */
+	public long appendRestart(long game) {
+		return append(game, RESTART, 0, 0);
+	}
+
+	/**
+	 * Record the end of a game.
+	 *
+	 * @param game
+	 * @return the position of the record.
+	 */
+	public long appendClose(long game) {
+		return append(game, CLOSE, 0, 0);
+	}
+
+	private long append(long game, int kind, int x, int y) {
+
+		if (closed)
+			throw new IllegalStateException("Journal closed");
+		if (game < 0 || game > MAX_GAME_ID)
+			throw new IllegalArgumentException("Invalid game id: " + game);
+
+		long position = tail.getAndAdd(RECORD_SIZE);
+		MappedByteBuffer segment = segment(position / segmentSize);
+		int offset = (int) (position % segmentSize);
+
+		write(segment, offset, header(kind, game, x, y), x, y);
+
+		return position;
+	}
+
+	/**
+	 * Write a record in the slot taken for it.
+	 */
+	protected void write(MappedByteBuffer segment, int offset, long header,
+			int x, int y) {
+		segment.putInt(offset + 8, x);
+		segment.putInt(offset + 12, y);
+		segment.putLong(offset, header);
+	}
+
+	static long header(int kind, long game, int x, int y) {
+		long header = ((long) kind << KIND_SHIFT) | game;
+		return header | check(header, x, y) << CHECK_SHIFT;
+	}
+
+	/**
+	 * Returns 16 bits mixed from all the bits of a record but its check.
+	 */
+	private static long check(long header, int x, int y) {
+
+		long h = (header & ~(0xFFFFL << CHECK_SHIFT)) * 0x9E3779B97F4A7C15L
+				^ (((long) x << 32) | (y & 0xFFFFFFFFL));
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+
+		return h >>> 48;
+	}
+
+	/**
+	 * Returns whether a record is complete: its header is written, and
+	 * matches its coordinates.
+	 */
+	static boolean isWritten(long header, int x, int y) {
+		return header != 0
+				&& (header >>> CHECK_SHIFT & 0xFFFF) == check(header, x, y);
+	}
+
+	private static boolean isWritten(MappedByteBuffer segment, int offset) {
+		return isWritten(segment.getLong(offset),
+				segment.getInt(offset + 8), segment.getInt(offset + 12));
+	}
+
+	private MappedByteBuffer segment(long index) {
+
+		MappedByteBuffer[] current = segments;
+		if (index < current.length) {
+			MappedByteBuffer segment = current[(int) index];
+			if (segment != null)
+				return segment;
+		}
+
+		return map(index);
+	}
+
+	private synchronized MappedByteBuffer map(long index) {
+
+		MappedByteBuffer[] current = segments;
+		if (index < current.length && current[(int) index] != null)
+			return current[(int) index];
+
+		MappedByteBuffer segment;
+		try {
+			RandomAccessFile file = new RandomAccessFile(
+					JournalReader.segmentFile(directory, index), "rw");
+			try {
+				segment = file.getChannel().map(MapMode.READ_WRITE, 0,
+						segmentSize);
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		segment.order(ByteOrder.LITTLE_ENDIAN);
+
+		MappedByteBuffer[] grown = Arrays.copyOf(current,
+				(index < current.length) ? current.length : (int) Math.max(
+						index + 1, current.length * 2));
+		grown[(int) index] = segment;
+		segments = grown;
+
+		return segment;
+	}
+
+	/**
+	 * Forget the segments before a segment, they are on the disk.
+	 */
+	private synchronized void release(long index) {
+
+		MappedByteBuffer[] current = segments.clone();
+		for (int i = 0; i < index && i < current.length; i++) {
+			current[i] = null;
+		}
+		segments = current;
+	}
+
+	/**
+	 * Write the records appended so far to the disk.
+	 */
+	public void flush() {
+
+		long target = tail.get();
+
+		synchronized (flushLock) {
+
+			// a flush which started after our records were appended.
+			if (flushed >= target)
+				return;
+
+			// the records seen complete before the force are on the disk
+			// after it; the slots still being written are forced again by
+			// the next flush.
+			long end = tail.get();
+			MappedByteBuffer[] current = segments;
+			long written = written(current, end);
+
+			long last = Math.min((end - 1) / segmentSize, current.length - 1);
+			for (long i = flushed / segmentSize; i <= last; i++) {
+				MappedByteBuffer segment = current[(int) i];
+				if (segment != null) {
+					segment.force();
+				}
+			}
+
+			flushed = written;
+			if (written / segmentSize > 0) {
+				release(written / segmentSize);
+			}
+		}
+	}
+
+	/**
+	 * Returns the position of the first record after the flushed ones which
+	 * is not written yet, or the end.
+	 */
+	private long written(MappedByteBuffer[] current, long end) {
+
+		long position = flushed;
+		while (position < end) {
+
+			long index = position / segmentSize;
+			if (index >= current.length || current[(int) index] == null)
+				return position;
+
+			if (!isWritten(current[(int) index],
+					(int) (position % segmentSize)))
+				return position;
+
+			position += RECORD_SIZE;
+		}
+
+		return position;
+	}
+
+	/**
+	 * Flush, and refuse new records.
+	 */
+	@Override
+	public void close() {
+
+		if (closed)
+			return;
+
+		closed = true;
+		if (flusher != null) {
+			flusher.interrupt();
+		}
+		flush();
+	}
+
+}
@@ -0,0 +1,197 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.journal;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import com.museviral.training.tdd.example.tictactoe.Position;
+
+/**
+ * The snapshots of the games of a {@link MoveJournal}, in a directory. A
+ * snapshot holds the position of every open game and where the replay of
+ * the journal starts, so that only the tail of the journal is read on
+ * recovery. The latest two snapshots are kept.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class SnapshotStore {
+
+	private static final String PREFIX = "snapshot-";
+
+	private static final String SUFFIX = ".snapshot";
+
+	private static final String TEMPORARY = ".tmp";
+
+	private static final int KEPT = 2;
+
+	private final File directory;
+
+	/**
+	 * Open a store, and remove the snapshots left unfinished by a crash.
+	 *
+	 * @param directory
+	 *            the directory of the snapshots, created if needed.
+	 * @throws IOException
+	 */
+	public SnapshotStore(File directory) throws IOException {
+		super();
+
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create " + directory);
+
+		this.directory = directory;
+
+		for (String name : list(TEMPORARY)) {
+			Files.deleteIfExists(new File(directory, name).toPath());
+		}
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	private String[] list(final String suffix) {
+
+		String[] names = directory.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith(PREFIX) && name.endsWith(suffix);
+			}
+		});
+		if (names == null)
+			return new String[0];
+
+		// the journal positions have a fixed number of digits.
+		Arrays.sort(names);
+		return names;
+	}
+
+	/**
+	 * Start a snapshot.
+	 *
+	 * @param journalPosition
+	 *            the position of the journal before the first game is
+	 *            written.
+	 * @param nextId
+	 *            the next game id, read after the journal position.
+	 * @param width
+	 * @param height
+	 * @return
+	 * @throws IOException
+	 */
+	public SnapshotWriter begin(long journalPosition, long nextId, int width,
+			int height) throws IOException {
+
+		String name = String.format("%s%020d", PREFIX, journalPosition);
+		return new SnapshotWriter(this, new File(directory, name + TEMPORARY),
+				new File(directory, name + SUFFIX), journalPosition, nextId,
+				width, height);
+	}
+
+	/**
+	 * Write the entries of the directory to the disk, so that a snapshot
+	 * renamed in it is still there after a power loss. Platforms which
+	 * cannot open a directory do not need it.
+	 */
+	void force() throws IOException {
+
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(directory.toPath(),
+					StandardOpenOption.READ);
+		} catch (IOException e) {
+			return;
+		}
+
+		try {
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Remove the old snapshots.
+	 */
+	void prune() throws IOException {
+
+		String[] names = list(SUFFIX);
+		for (int i = 0; i < names.length - KEPT; i++) {
+			Files.deleteIfExists(new File(directory, names[i]).toPath());
+		}
+	}
+
+	/**
+	 * Read the latest complete snapshot. A snapshot which is damaged is
+	 * skipped for the one before it.
+	 *
+	 * @param visitor
+	 * @return <code>false</code> if there is no snapshot.
+	 * @throws IOException
+	 *             if a snapshot cannot be read.
+	 */
+	public boolean readLatest(SnapshotVisitor visitor) throws IOException {
+
+		String[] names = list(SUFFIX);
+		for (int i = names.length - 1; i >= 0; i--) {
+
+			byte[] bytes = Files.readAllBytes(new File(directory, names[i])
+					.toPath());
+			ByteBuffer buffer = ByteBuffer.wrap(bytes).order(
+					ByteOrder.LITTLE_ENDIAN);
+
+			if (isComplete(buffer)) {
+				read(buffer, visitor);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean isComplete(ByteBuffer buffer) {
+
+		int length = buffer.limit();
+		if (length < SnapshotWriter.HEADER_SIZE + SnapshotWriter.TRAILER_SIZE)
+			return false;
+
+		if (buffer.getInt(0) != SnapshotWriter.MAGIC
+				|| buffer.getInt(4) != SnapshotWriter.VERSION
+				|| buffer.getLong(length - SnapshotWriter.TRAILER_SIZE) != SnapshotWriter.END)
+			return false;
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, length - 8);
+		return buffer.getLong(length - 8) == crc.getValue();
+	}
+
+	private static void read(ByteBuffer buffer, SnapshotVisitor visitor) {
+
+		buffer.position(8);
+		long journalPosition = buffer.getLong();
+		long nextId = buffer.getLong();
+		int width = buffer.getInt();
+		int height = buffer.getInt();
+		long count = buffer.getLong(buffer.limit() - 16);
+
+		visitor.start(journalPosition, nextId, width, height);
+
+		for (long i = 0; i < count; i++) {
+			long game = buffer.getLong();
+			long journalEnd = buffer.getLong();
+			visitor.game(game, journalEnd, Position.read(buffer, width, height));
+		}
+	}
+
+}
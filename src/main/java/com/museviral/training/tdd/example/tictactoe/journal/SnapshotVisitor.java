@@ -0,0 +1,44 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.journal;
+
+import com.museviral.training.tdd.example.tictactoe.Position;
+
+/**
+ * Receives a snapshot from a {@link SnapshotStore}: first its header, then
+ * its games.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public interface SnapshotVisitor {
+
+	/**
+	 * The header of the snapshot.
+	 *
+	 * @param journalPosition
+	 *            where the replay of the journal starts.
+	 * @param nextId
+	 *            the next game id when the snapshot started; the games
+	 *            below it which are not in the snapshot were closed.
+	 * @param width
+	 * @param height
+	 */
+	void start(long journalPosition, long nextId, int width, int height);
+
+	/**
+	 * A game of the snapshot.
+	 *
+	 * @param game
+	 *            the id of the game.
+	 * @param journalEnd
+	 *            the position after the last record of the game in the
+	 *            snapshot; the records of the game before it must not be
+	 *            replayed.
+	 * @param position
+	 *            the game.
+	 */
+	void game(long game, long journalEnd, Position position);
+
+}
@@ -0,0 +1,187 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.museviral.training.tdd.example.tictactoe.Position;
+
+/**
+ * Writes one snapshot of a {@link SnapshotStore}. The games go to a
+ * temporary file, which only becomes the snapshot on {@link #commit()},
+ * once it is complete and on the disk: a snapshot cut by a crash is never
+ * found.
+ * <p>
+ *
+ * The file is little-endian: a header of {@link #HEADER_SIZE} bytes (magic
+ * number, version, journal position, next game id, width, height), then
+ * for each game its id, its journal end and the bytes of its
+ * {@link Position}, and a trailer with an end mark, the number of games
+ * and the CRC-32 of everything before it.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class SnapshotWriter implements Closeable {
+
+	static final int MAGIC = 0x54545453;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 32;
+
+	static final int TRAILER_SIZE = 24;
+
+	/**
+	 * The end mark, in place of a game id.
+	 */
+	static final long END = -1;
+
+	private final SnapshotStore store;
+
+	private final File temporary;
+
+	private final File target;
+
+	private final FileChannel channel;
+
+	private final CRC32 crc = new CRC32();
+
+	private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(
+			ByteOrder.LITTLE_ENDIAN);
+
+	private long count;
+
+	private boolean finished;
+
+	SnapshotWriter(SnapshotStore store, File temporary, File target,
+			long journalPosition, long nextId, int width, int height)
+			throws IOException {
+		super();
+
+		this.store = store;
+		this.temporary = temporary;
+		this.target = target;
+		this.channel = FileChannel.open(temporary.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(journalPosition);
+		buffer.putLong(nextId);
+		buffer.putInt(width);
+		buffer.putInt(height);
+	}
+
+	/**
+	 * Add a game.
+	 *
+	 * @param game
+	 *            the id of the game.
+	 * @param journalEnd
+	 *            the position after the last record of the game, see
+	 *            {@link SnapshotVisitor#game(long, long, Position)}.
+	 * @param position
+	 *            the game.
+	 * @throws IOException
+	 */
+	public void write(long game, long journalEnd, Position position)
+			throws IOException {
+
+		if (finished)
+			throw new IllegalStateException("Snapshot finished");
+
+		int size = 16 + position.getByteSize();
+		if (buffer.remaining() < size) {
+			drain();
+			if (buffer.capacity() < size) {
+				buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+
+		buffer.putLong(game);
+		buffer.putLong(journalEnd);
+		position.write(buffer);
+		count++;
+	}
+
+	/**
+	 * Returns the number of games written.
+	 *
+	 * @return
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	private void drain() throws IOException {
+
+		buffer.flip();
+		crc.update(buffer.array(), 0, buffer.limit());
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Write the trailer, force the file to the disk and make it the latest
+	 * snapshot.
+	 *
+	 * @throws IOException
+	 */
+	public void commit() throws IOException {
+
+		if (finished)
+			throw new IllegalStateException("Snapshot finished");
+
+		if (buffer.remaining() < TRAILER_SIZE) {
+			drain();
+		}
+		buffer.putLong(END);
+		buffer.putLong(count);
+		drain();
+
+		buffer.putLong(crc.getValue());
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+
+		channel.force(true);
+		channel.close();
+		finished = true;
+
+		Files.move(temporary.toPath(), target.toPath(),
+				StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		store.force();
+		store.prune();
+	}
+
+	/**
+	 * Drop the snapshot, unless it is committed.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (finished)
+			return;
+
+		finished = true;
+		channel.close();
+		Files.deleteIfExists(temporary.toPath());
+	}
+
+}
@@ -0,0 +1,11 @@
+/**
+ * 
+ */
+/**
+ * Recording the moves of many games in an append-only journal, and
+ * rebuilding the games from it.
+ * 
+ * @author Cyril
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.journal;
@@ -0,0 +1,332 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * What all the engines of the process did: the moves accepted and rejected
+ * and why, how the games ended, and the durations of the moves and of the
+ * winning checks.
+ * <p>
+ *
+ * The metrics are only recorded when the system property
+ * {@link #PROPERTY} is <code>true</code>. The engines test the constant
+ * {@link #ENABLED} before recording, so when it is <code>false</code> the
+ * JIT compiler removes the recording code and the moves cost the same as
+ * without metrics. When it is <code>true</code>, the metrics are registered
+ * in the platform MBean server under {@link #NAME}.
+ * <p>
+ *
+ * The counters are {@link LongAdder}s and the histograms are striped by
+ * thread, so that engines played by many threads do not contend.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public final class EngineMetrics implements EngineMetricsMXBean {
+
+	/**
+	 * The system property which enables the metrics.
+	 */
+	public static final String PROPERTY = "tictactoe.metrics";
+
+	/**
+	 * Whether the engines record metrics, read once from {@link #PROPERTY}.
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+	/**
+	 * The JMX object name of the metrics.
+	 */
+	public static final String NAME = "com.museviral.training.tdd.example.tictactoe:type=EngineMetrics";
+
+	private static final EngineMetrics INSTANCE = new EngineMetrics();
+
+	static {
+		if (ENABLED) {
+			register();
+		}
+	}
+
+	private final LongAdder placed = new LongAdder();
+
+	private final LongAdder rejectedOutOfBounds = new LongAdder();
+
+	private final LongAdder rejectedOccupied = new LongAdder();
+
+	private final LongAdder rejectedGameOver = new LongAdder();
+
+	private final LongAdder circleWins = new LongAdder();
+
+	private final LongAdder crossWins = new LongAdder();
+
+	private final LongAdder draws = new LongAdder();
+
+	private final LongAdder restarts = new LongAdder();
+
+	private final LatencyHistogram[] moveNanos;
+
+	private final LatencyHistogram[] winCheckNanos;
+
+	private EngineMetrics() {
+		super();
+
+		int stripes = Integer.highestOneBit(Math.min(8, Runtime.getRuntime()
+				.availableProcessors()));
+		moveNanos = new LatencyHistogram[stripes];
+		winCheckNanos = new LatencyHistogram[stripes];
+		for (int i = 0; i < stripes; i++) {
+			moveNanos[i] = new LatencyHistogram();
+			winCheckNanos[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Returns the metrics of the process.
+	 *
+	 * @return
+	 */
+	public static EngineMetrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Register the metrics in the platform MBean server, unless they are
+	 * already. This is done when the class is loaded if {@link #ENABLED}.
+	 *
+	 * @return the name of the metrics.
+	 */
+	public static ObjectName register() {
+
+		ObjectName name;
+		try {
+			name = new ObjectName(NAME);
+		} catch (MalformedObjectNameException e) {
+			throw new IllegalStateException(e);
+		}
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (!server.isRegistered(name)) {
+				server.registerMBean(INSTANCE, name);
+			}
+		} catch (InstanceAlreadyExistsException e) {
+			// registered by another thread.
+		} catch (JMException e) {
+			throw new IllegalStateException("Cannot register " + NAME, e);
+		}
+
+		return name;
+	}
+
+	private static int stripe(LatencyHistogram[] histograms) {
+		return (int) Thread.currentThread().getId() & (histograms.length - 1);
+	}
+
+	/**
+	 * Count a move rejected because it is outside the board.
+	 */
+	public void rejectOutOfBounds() {
+		rejectedOutOfBounds.increment();
+	}
+
+	/**
+	 * Count a move rejected because the cell is not empty.
+	 */
+	public void rejectOccupied() {
+		rejectedOccupied.increment();
+	}
+
+	/**
+	 * Count a move rejected because the game is over.
+	 */
+	public void rejectGameOver() {
+		rejectedGameOver.increment();
+	}
+
+	/**
+	 * Count an accepted move, and the end of the game if it ended it.
+	 *
+	 * @param engine
+	 *            the engine after the move.
+	 * @param nanos
+	 *            the duration of the move.
+	 */
+	public void recordMove(TicTacToeEngine engine, long nanos) {
+
+		placed.increment();
+		moveNanos[stripe(moveNanos)].record(nanos);
+
+		if (engine.getGameState() == GameState.Complete) {
+			Token winner = engine.getWinner();
+			if (winner == null) {
+				draws.increment();
+			} else if (winner == Token.CIRCLE) {
+				circleWins.increment();
+			} else {
+				crossWins.increment();
+			}
+		}
+	}
+
+	/**
+	 * Record the duration of a winning check.
+	 *
+	 * @param nanos
+	 */
+	public void recordWinCheck(long nanos) {
+		winCheckNanos[stripe(winCheckNanos)].record(nanos);
+	}
+
+	/**
+	 * Count a restart.
+	 */
+	public void recordRestart() {
+		restarts.increment();
+	}
+
+	/**
+	 * Returns the durations of the accepted moves, of all the threads.
+	 *
+	 * @return a copy of the histogram.
+	 */
+	public LatencyHistogram getMoveNanos() {
+		return merge(moveNanos);
+	}
+
+	/**
+	 * Returns the durations of the winning checks, of all the threads.
+	 *
+	 * @return a copy of the histogram.
+	 */
+	public LatencyHistogram getWinCheckNanos() {
+		return merge(winCheckNanos);
+	}
+
+	private static LatencyHistogram merge(LatencyHistogram[] histograms) {
+
+		LatencyHistogram merged = new LatencyHistogram();
+		for (LatencyHistogram histogram : histograms) {
+			merged.add(histogram);
+		}
+
+		return merged;
+	}
+
+	@Override
+	public long getPlaced() {
+		return placed.sum();
+	}
+
+	@Override
+	public long getRejectedOutOfBounds() {
+		return rejectedOutOfBounds.sum();
+	}
+
+	@Override
+	public long getRejectedOccupied() {
+		return rejectedOccupied.sum();
+	}
+
+	@Override
+	public long getRejectedGameOver() {
+		return rejectedGameOver.sum();
+	}
+
+	@Override
+	public long getCircleWins() {
+		return circleWins.sum();
+	}
+
+	@Override
+	public long getCrossWins() {
+		return crossWins.sum();
+	}
+
+	@Override
+	public long getDraws() {
+		return draws.sum();
+	}
+
+	@Override
+	public long getRestarts() {
+		return restarts.sum();
+	}
+
+	@Override
+	public long getMoveNanosP50() {
+		return getMoveNanos().getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getMoveNanosP99() {
+		return getMoveNanos().getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getMoveNanosP999() {
+		return getMoveNanos().getValueAtPercentile(99.9);
+	}
+
+	@Override
+	public long getMoveNanosMax() {
+		return getMoveNanos().getMax();
+	}
+
+	@Override
+	public long getWinCheckCount() {
+		return getWinCheckNanos().getCount();
+	}
+
+	@Override
+	public long getWinCheckNanosP50() {
+		return getWinCheckNanos().getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getWinCheckNanosP99() {
+		return getWinCheckNanos().getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getWinCheckNanosP999() {
+		return getWinCheckNanos().getValueAtPercentile(99.9);
+	}
+
+	@Override
+	public long getWinCheckNanosMax() {
+		return getWinCheckNanos().getMax();
+	}
+
+	@Override
+	public void reset() {
+
+		placed.reset();
+		rejectedOutOfBounds.reset();
+		rejectedOccupied.reset();
+		rejectedGameOver.reset();
+		circleWins.reset();
+		crossWins.reset();
+		draws.reset();
+		restarts.reset();
+
+		for (int i = 0; i < moveNanos.length; i++) {
+			moveNanos[i].reset();
+			winCheckNanos[i].reset();
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.metrics;
+
+/**
+ * The JMX view of {@link EngineMetrics}. The durations are in nanoseconds.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public interface EngineMetricsMXBean {
+
+	long getPlaced();
+
+	long getRejectedOutOfBounds();
+
+	long getRejectedOccupied();
+
+	long getRejectedGameOver();
+
+	long getCircleWins();
+
+	long getCrossWins();
+
+	long getDraws();
+
+	long getRestarts();
+
+	long getMoveNanosP50();
+
+	long getMoveNanosP99();
+
+	long getMoveNanosP999();
+
+	long getMoveNanosMax();
+
+	long getWinCheckCount();
+
+	long getWinCheckNanosP50();
+
+	long getWinCheckNanosP99();
+
+	long getWinCheckNanosP999();
+
+	long getWinCheckNanosMax();
+
+	/**
+	 * Set all the counters and histograms back to 0.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in buckets which grow with the value, like an HDR
+ * histogram: exact below 64, then 32 buckets per power of two, so a
+ * percentile is within about 3% of the recorded value. Recording is safe
+ * from any thread and does not allocate.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class LatencyHistogram {
+
+	private static final int LINEAR = 64;
+
+	private static final int SUB_BUCKETS = 32;
+
+	private static final int BUCKETS = LINEAR + 57 * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	static int bucket(long value) {
+
+		if (value < LINEAR)
+			return (int) Math.max(0, value);
+
+		int shift = 58 - Long.numberOfLeadingZeros(value);
+		return LINEAR + (shift - 1) * SUB_BUCKETS
+				+ (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * Returns the highest value counted in a bucket.
+	 */
+	static long highestValue(int bucket) {
+
+		if (bucket < LINEAR)
+			return bucket;
+
+		int shift = (bucket - LINEAR) / SUB_BUCKETS + 1;
+		long sub = (bucket - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	/**
+	 * Count a value; negative values count as 0.
+	 *
+	 * @param value
+	 */
+	public void record(long value) {
+		counts.incrementAndGet(bucket(value));
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 *
+	 * @return
+	 */
+	public long getCount() {
+
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the value below or at which a percentage of the recorded
+	 * values are, or 0 if nothing was recorded.
+	 *
+	 * @param percentile
+	 *            between 0 and 100.
+	 * @return
+	 */
+	public long getValueAtPercentile(double percentile) {
+
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentile out of range: "
+					+ percentile);
+
+		long count = getCount();
+		long target = Math.max(1, (long) Math.ceil(count * percentile / 100));
+
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= target)
+				return highestValue(i);
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Returns the largest recorded value, or 0 if nothing was recorded.
+	 *
+	 * @return
+	 */
+	public long getMax() {
+
+		for (int i = BUCKETS - 1; i >= 0; i--) {
+			if (counts.get(i) != 0)
+				return highestValue(i);
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Forget the recorded values. The values recorded at the same time may
+	 * be kept or not.
+	 */
+	public void reset() {
+
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+	}
+
+	/**
+	 * Add the counts of another histogram to this one.
+	 *
+	 * @param other
+	 */
+	public void add(LatencyHistogram other) {
+
+		for (int i = 0; i < BUCKETS; i++) {
+			long count = other.counts.get(i);
+			if (count != 0) {
+				counts.addAndGet(i, count);
+			}
+		}
+	}
+
+}
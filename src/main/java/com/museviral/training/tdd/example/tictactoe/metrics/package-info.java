@@ -0,0 +1,10 @@
+/**
+ * 
+ */
+/**
+ * Counters and latency histograms of the engines, exported over JMX.
+ * 
+ * @author Cyril
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.metrics;
@@ -0,0 +1,131 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The frames of {@link NioGameServer}. A cell is sent as its index
+ * <code>y * width + x</code>: one byte <code>0xxxxxxx</code> below 128,
+ * otherwise two bytes <code>10xxxxxx xxxxxxxx</code>, so boards have at
+ * most {@link #MAX_CELLS} cells.
+ * <p>
+ *
+ * The client sends a cell to play it for whoever is next,
+ * {@link #RESTART} or {@link #QUIT}. The server sends {@link #GAME} once,
+ * then one reply per command: {@link #PLACED} followed by the cell,
+ * {@link #REJECTED} or {@link #RESTARTED}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public final class BinaryProtocol {
+
+	/**
+	 * Largest number of cells of a board.
+	 */
+	public static final int MAX_CELLS = 1 << 14;
+
+	/**
+	 * First byte of a cell of two bytes.
+	 */
+	public static final int LONG_CELL = 0x80;
+
+	/**
+	 * Client command: start a new game.
+	 */
+	public static final int RESTART = 0xC0;
+
+	/**
+	 * Client command: close the connection.
+	 */
+	public static final int QUIT = 0xC1;
+
+	/**
+	 * Server frame: <code>GAME width height</code>, one byte each.
+	 */
+	public static final int GAME = 0x01;
+
+	/**
+	 * Server frame: the new game is started.
+	 */
+	public static final int RESTARTED = 0x02;
+
+	/**
+	 * Server frame: <code>PLACED | flags</code>, then the cell.
+	 */
+	public static final int PLACED = 0x10;
+
+	/**
+	 * Flag of {@link #PLACED}: the token is a cross, otherwise a circle.
+	 */
+	public static final int CROSS = 0x01;
+
+	/**
+	 * Flag of {@link #PLACED}: the move won the game.
+	 */
+	public static final int WON = 0x02;
+
+	/**
+	 * Flag of {@link #PLACED}: the move filled the board without winner.
+	 */
+	public static final int DRAWN = 0x04;
+
+	/**
+	 * Server frame: <code>REJECTED | status</code>, where status is the
+	 * ordinal of the {@link MoveStatus}.
+	 */
+	public static final int REJECTED = 0x20;
+
+	private BinaryProtocol() {
+		super();
+	}
+
+	/**
+	 * Write a cell in one or two bytes.
+	 */
+	public static void putCell(ByteBuffer buffer, int cell) {
+
+		if (cell < LONG_CELL) {
+			buffer.put((byte) cell);
+		} else {
+			buffer.put((byte) (LONG_CELL | (cell >>> 8)));
+			buffer.put((byte) cell);
+		}
+	}
+
+	/**
+	 * Read a cell written by {@link #putCell(ByteBuffer, int)}.
+	 */
+	public static int getCell(ByteBuffer buffer) {
+
+		int first = buffer.get() & 0xFF;
+		if (first < LONG_CELL)
+			return first;
+
+		return ((first & 0x3F) << 8) | (buffer.get() & 0xFF);
+	}
+
+	/**
+	 * Returns the length of the server frame at the position of the buffer,
+	 * or 0 if not enough bytes are there to know it.
+	 */
+	public static int frameLength(ByteBuffer buffer) {
+
+		if (!buffer.hasRemaining())
+			return 0;
+
+		int type = buffer.get(buffer.position()) & 0xFF;
+		if (type == GAME)
+			return 3;
+		if ((type & 0xF0) != PLACED)
+			return 1;
+		if (buffer.remaining() < 2)
+			return 0;
+
+		int cell = buffer.get(buffer.position() + 1) & 0xFF;
+		return (cell < LONG_CELL) ? 2 : 3;
+	}
+
+}
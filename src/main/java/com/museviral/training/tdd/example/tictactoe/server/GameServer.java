@@ -0,0 +1,413 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.museviral.training.tdd.example.tictactoe.Position;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * A TCP server playing the console game over a line protocol, with one
+ * thread per connection: a virtual thread when the JVM has them (Java 21
+ * and later), otherwise a platform thread with a small stack.
+ * <p>
+ *
+ * Each connection plays its own game of a {@link GameSessionRegistry}, for
+ * both players, like {@link com.museviral.training.tdd.example.tictactoe.TicTacToeConsole}.
+ * Lines are ASCII and end with <code>\n</code>. The server sends:
+ *
+ * <pre>
+ * GAME &lt;id&gt; &lt;width&gt; &lt;height&gt;   once, after connecting
+ * BOARD &lt;row&gt; &lt;row&gt; ...          after every change; a row is like O.X
+ * TURN &lt;O|X&gt;                     the prompt for the next move
+ * ERROR &lt;reason&gt;                  the move was not played
+ * RESULT WIN &lt;O|X&gt; or RESULT DRAW  the game is over
+ * AGAIN?                         the prompt for a new game
+ * BYE                            before closing
+ * </pre>
+ *
+ * The client answers <code>TURN</code> with <code>x y</code> (or
+ * <code>MOVE x y</code>) and <code>AGAIN?</code> with <code>y</code> or
+ * <code>n</code>; <code>QUIT</code> ends the connection at any time.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GameServer implements Closeable {
+
+	/**
+	 * Default TCP port.
+	 */
+	public static final int DEFAULT_PORT = 7777;
+
+	/**
+	 * Longest accepted line; longer lines close the connection.
+	 */
+	private static final int MAX_LINE = 128;
+
+	/**
+	 * Stack size of the platform threads, when there are no virtual threads.
+	 */
+	private static final long STACK_SIZE = 256 * 1024;
+
+	/**
+	 * How long the acceptor waits after a failed accept, e.g. when the
+	 * process is out of file descriptors.
+	 */
+	static final long ACCEPT_BACKOFF_MILLIS = 10;
+
+	private final GameSessionRegistry registry;
+
+	private final ServerSocket serverSocket;
+
+	private final ExecutorService connections;
+
+	private final Set<Socket> sockets = Collections
+			.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+
+	private final Thread acceptor;
+
+	private volatile boolean closed;
+
+	/**
+	 * Start a server.
+	 *
+	 * @param registry
+	 *            where the games are created.
+	 * @param port
+	 *            the TCP port, or 0 for any free port.
+	 * @throws IOException
+	 *             if the port cannot be opened.
+	 */
+	public GameServer(GameSessionRegistry registry, int port)
+			throws IOException {
+		super();
+
+		this.registry = registry;
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.bind(new InetSocketAddress(port), 4096);
+		this.connections = newConnectionExecutor();
+
+		this.acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "game-server-acceptor");
+		this.acceptor.setDaemon(true);
+		this.acceptor.start();
+	}
+
+	/**
+	 * Returns a virtual thread per task executor if the JVM has one,
+	 * otherwise a pool of daemon platform threads with small stacks.
+	 */
+	static ExecutorService newConnectionExecutor() {
+
+		try {
+			Method method = Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// before Java 21.
+		}
+
+		final AtomicInteger count = new AtomicInteger();
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(null, r, "game-connection-"
+						+ count.incrementAndGet(), STACK_SIZE);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Returns the number of open connections.
+	 *
+	 * @return
+	 */
+	public int getConnectionCount() {
+		return sockets.size();
+	}
+
+	private void accept() {
+
+		while (!closed) {
+
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				if (closed || !backOff())
+					return;
+				continue;
+			}
+
+			// registered before close() may walk the sockets, or closed
+			// here when it already did.
+			sockets.add(socket);
+			if (closed) {
+				discard(socket);
+				return;
+			}
+
+			try {
+				socket.setTcpNoDelay(true);
+				connections.execute(new Runnable() {
+					@Override
+					public void run() {
+						serve(socket);
+					}
+				});
+			} catch (IOException e) {
+				discard(socket);
+			} catch (RejectedExecutionException e) {
+				// the server is closing.
+				discard(socket);
+			}
+		}
+	}
+
+	/**
+	 * Wait a little before accepting again.
+	 *
+	 * @return <code>false</code> if the thread was interrupted.
+	 */
+	static boolean backOff() {
+		try {
+			Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+			return true;
+		} catch (InterruptedException e) {
+			return false;
+		}
+	}
+
+	private void discard(Socket socket) {
+		sockets.remove(socket);
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// already closed.
+		}
+	}
+
+	/**
+	 * Stop accepting connections and close the open ones.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		connections.shutdownNow();
+
+		// blocked reads are not interrupted, closing the sockets ends them.
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+	}
+
+	private void serve(Socket socket) {
+
+		GameSession session = registry.create();
+
+		try {
+			new Connection(socket, session).run();
+		} catch (IOException e) {
+			// the client went away.
+		} finally {
+			registry.close(session.getId());
+			discard(socket);
+		}
+	}
+
+	/**
+	 * The conversation with one client.
+	 */
+	private static final class Connection {
+
+		private final InputStream in;
+
+		private final OutputStream out;
+
+		private final GameSession session;
+
+		private final StringBuilder line = new StringBuilder(MAX_LINE);
+
+		Connection(Socket socket, GameSession session) throws IOException {
+			this.in = new BufferedInputStream(socket.getInputStream(), 256);
+			this.out = new BufferedOutputStream(socket.getOutputStream(), 512);
+			this.session = session;
+		}
+
+		void run() throws IOException {
+
+			Position position = session.getPosition();
+			send("GAME " + session.getId() + " " + position.getWidth() + " "
+					+ position.getHeight());
+
+			boolean changed = true;
+
+			while (true) {
+
+				position = session.getPosition();
+				if (changed) {
+					sendBoard(position);
+					changed = false;
+				}
+
+				if (position.getGameState() == GameState.Complete) {
+
+					Token winner = position.getWinner();
+					send((winner == null) ? "RESULT DRAW" : "RESULT WIN "
+							+ tokenToString(winner));
+					send("AGAIN?");
+
+					String answer = readLine();
+					if (answer == null || !answer.equalsIgnoreCase("y"))
+						break;
+
+					session.restart();
+					changed = true;
+					continue;
+				}
+
+				send("TURN " + tokenToString(position.getNextToken()));
+
+				String command = readLine();
+				if (command == null || command.equalsIgnoreCase("QUIT"))
+					break;
+
+				int[] move = parseMove(command);
+				if (move == null) {
+					send("ERROR SYNTAX");
+					continue;
+				}
+
+				MoveStatus status = session.play(null, move[0], move[1]);
+				if (status == MoveStatus.ACCEPTED) {
+					changed = true;
+				} else {
+					send("ERROR " + status);
+				}
+			}
+
+			send("BYE");
+		}
+
+		/**
+		 * Returns the coordinates of <code>x y</code> or
+		 * <code>MOVE x y</code>, or <code>null</code>.
+		 */
+		private static int[] parseMove(String command) {
+
+			String[] parts = command.trim().split("\\s+");
+			int first = (parts.length == 3 && parts[0].equalsIgnoreCase("MOVE")) ? 1
+					: 0;
+			if (parts.length - first != 2)
+				return null;
+
+			try {
+				return new int[] { Integer.parseInt(parts[first]),
+						Integer.parseInt(parts[first + 1]) };
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		private void sendBoard(Position position) throws IOException {
+
+			StringBuilder sb = new StringBuilder("BOARD");
+			for (int y = 0; y < position.getHeight(); y++) {
+				sb.append(' ');
+				for (int x = 0; x < position.getWidth(); x++) {
+					Token token = position.getToken(x, y);
+					sb.append(token == null ? "." : tokenToString(token));
+				}
+			}
+
+			send(sb.toString());
+		}
+
+		private static String tokenToString(Token token) {
+			return (token == Token.CIRCLE) ? "O" : "X";
+		}
+
+		private void send(String message) throws IOException {
+			out.write(message.getBytes(StandardCharsets.US_ASCII));
+			out.write('\n');
+			out.flush();
+		}
+
+		/**
+		 * Returns the next line without its end, or <code>null</code> at the
+		 * end of the stream.
+		 */
+		private String readLine() throws IOException {
+
+			line.setLength(0);
+
+			while (true) {
+				int c = in.read();
+				if (c < 0)
+					return (line.length() == 0) ? null : line.toString();
+				if (c == '\n')
+					break;
+				if (c == '\r')
+					continue;
+				if (line.length() == MAX_LINE)
+					throw new SocketException("line too long");
+				line.append((char) c);
+			}
+
+			return line.toString().trim();
+		}
+
+	}
+
+	/**
+	 * Run a server until the process is stopped.
+	 *
+	 * @param args
+	 *            optional <code>port</code>.
+	 */
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+		GameServer server = new GameServer(new GameSessionRegistry(), port);
+		System.out.println("Listening on port " + server.getPort());
+
+		server.acceptor.join();
+	}
+
+}
@@ -0,0 +1,219 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.server;
+
+import java.io.IOException;
+
+import com.museviral.training.tdd.example.tictactoe.Position;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.journal.MoveJournal;
+import com.museviral.training.tdd.example.tictactoe.journal.SnapshotWriter;
+
+/**
+ * One game of a {@link GameSessionRegistry}. The engine is only used while
+ * holding the lock of the session, so the moves of a game are applied one
+ * at a time, in the order they get the lock, with the validity rules of
+ * {@link TicTacToeEngine#place(int, int)}. The changes are recorded in the
+ * journal of the registry, if any, while holding the same lock.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GameSession {
+
+	private final long id;
+
+	private TicTacToeEngine engine;
+
+	private final MoveJournal journal;
+
+	/**
+	 * The position in the journal after the last record of the game.
+	 */
+	private long journalEnd;
+
+	GameSession(long id, TicTacToeEngine engine, MoveJournal journal) {
+		super();
+
+		this.id = id;
+		this.engine = engine;
+		this.journal = journal;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Place a token for a player.
+	 *
+	 * @param token
+	 *            the player, or <code>null</code> for whoever is next.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public synchronized MoveStatus play(Token token, int x, int y) {
+
+		if (engine == null)
+			return MoveStatus.UNKNOWN_GAME;
+
+		if (engine.getGameState() != GameState.InProgress)
+			return MoveStatus.GAME_OVER;
+
+		if (token != null && token != engine.getNextToken())
+			return MoveStatus.WRONG_TURN;
+
+		Token next = engine.getNextToken();
+		if (!engine.place(x, y))
+			return MoveStatus.ILLEGAL;
+
+		if (journal != null)
+			journalEnd = journal.appendMove(id, x, y, next)
+					+ MoveJournal.RECORD_SIZE;
+
+		return MoveStatus.ACCEPTED;
+	}
+
+	/**
+	 * Place a token for whoever is next, without allocating.
+	 *
+	 * @return the reply of {@link BinaryProtocol}: {@link BinaryProtocol#PLACED}
+	 *         with its flags, or {@link BinaryProtocol#REJECTED} with the
+	 *         status.
+	 */
+	synchronized int playBinary(int x, int y) {
+
+		Token token = (engine == null) ? null : engine.getNextToken();
+		MoveStatus status = play(null, x, y);
+		if (status != MoveStatus.ACCEPTED)
+			return BinaryProtocol.REJECTED | status.ordinal();
+
+		int reply = BinaryProtocol.PLACED;
+		if (token == Token.CROSS) {
+			reply |= BinaryProtocol.CROSS;
+		}
+		if (engine.getGameState() == GameState.Complete) {
+			reply |= (engine.getWinner() == null) ? BinaryProtocol.DRAWN
+					: BinaryProtocol.WON;
+		}
+
+		return reply;
+	}
+
+	/**
+	 * Returns a snapshot of the game, or <code>null</code> if the session is
+	 * closed.
+	 *
+	 * @return
+	 */
+	public synchronized Position getPosition() {
+		return (engine == null) ? null : engine.getPosition();
+	}
+
+	/**
+	 * Start a new game in this session.
+	 *
+	 * @return <code>false</code> if the session is closed.
+	 */
+	public synchronized boolean restart() {
+
+		if (engine == null)
+			return false;
+
+		engine.restart();
+		if (journal != null)
+			journalEnd = journal.appendRestart(id) + MoveJournal.RECORD_SIZE;
+
+		return true;
+	}
+
+	public synchronized boolean isClosed() {
+		return engine == null;
+	}
+
+	/**
+	 * Close the session and returns its engine; the next calls see an
+	 * unknown game.
+	 */
+	synchronized TicTacToeEngine close() {
+		TicTacToeEngine closed = engine;
+		if (closed != null && journal != null)
+			journal.appendClose(id);
+
+		engine = null;
+		return closed;
+	}
+
+	/**
+	 * Add the game to a snapshot, unless the session is closed.
+	 */
+	void snapshot(SnapshotWriter writer) throws IOException {
+
+		Position position;
+		long end;
+		synchronized (this) {
+			if (engine == null)
+				return;
+
+			position = engine.getPosition();
+			end = journalEnd;
+		}
+
+		writer.write(id, end, position);
+	}
+
+	/**
+	 * Put back the game of a snapshot.
+	 */
+	synchronized void restore(long journalEnd, Position position) {
+		engine.setPosition(position);
+		this.journalEnd = journalEnd;
+	}
+
+	/**
+	 * Replay a move of the journal, unless the game already has it.
+	 */
+	synchronized void replayMove(long position, int x, int y, Token token) {
+
+		if (position < journalEnd)
+			return;
+
+		if (engine.getNextToken() != token || !engine.place(x, y))
+			throw new IllegalStateException("Move " + x + "," + y
+					+ " of game " + id + " cannot be replayed");
+
+		journalEnd = position + MoveJournal.RECORD_SIZE;
+	}
+
+	/**
+	 * Replay a restart of the journal, unless the game already has it.
+	 */
+	synchronized void replayRestart(long position) {
+
+		if (position < journalEnd)
+			return;
+
+		engine.restart();
+		journalEnd = position + MoveJournal.RECORD_SIZE;
+	}
+
+	/**
+	 * Replay a close of the journal, without recording it again.
+	 *
+	 * @return the engine, or <code>null</code> if the game already has it.
+	 */
+	synchronized TicTacToeEngine replayClose(long position) {
+
+		if (position < journalEnd)
+			return null;
+
+		TicTacToeEngine closed = engine;
+		engine = null;
+		return closed;
+	}
+
+}
@@ -0,0 +1,287 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.server;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.museviral.training.tdd.example.tictactoe.EnginePool;
+import com.museviral.training.tdd.example.tictactoe.Position;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.journal.MoveJournal;
+import com.museviral.training.tdd.example.tictactoe.journal.SnapshotStore;
+import com.museviral.training.tdd.example.tictactoe.journal.SnapshotWriter;
+
+/**
+ * Creates, finds and closes the games played at the same time, by id.
+ * <p>
+ *
+ * The registry is safe for any number of threads. Sessions are found in a
+ * {@link ConcurrentHashMap}, and each session has its own lock, so threads
+ * only wait for each other when they play in the same game. The engines
+ * come from an {@link EnginePool} and go back to it when a session is
+ * closed.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GameSessionRegistry {
+
+	private final ConcurrentHashMap<Long, GameSession> sessions;
+
+	private final EnginePool engines;
+
+	private final MoveJournal journal;
+
+	private final int width, height;
+
+	private final AtomicLong nextId = new AtomicLong(1);
+
+	/**
+	 * Shared by the games being created from the moment they take their id
+	 * until they are in the map, and taken alone by a snapshot to read the
+	 * next id, so that every game below it is in the map.
+	 */
+	private final ReadWriteLock idLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Create a registry of classic games.
+	 */
+	public GameSessionRegistry() {
+		this(new TicTacToeEngine());
+	}
+
+	/**
+	 * Create a registry.
+	 *
+	 * @param prototype
+	 *            the kind of engine of the games.
+	 */
+	public GameSessionRegistry(TicTacToeEngine prototype) {
+		this(prototype, null);
+	}
+
+	/**
+	 * Create a registry which records the moves of its games.
+	 *
+	 * @param prototype
+	 *            the kind of engine of the games.
+	 * @param journal
+	 *            where the moves, restarts and closes are appended, or
+	 *            <code>null</code>.
+	 */
+	public GameSessionRegistry(TicTacToeEngine prototype, MoveJournal journal) {
+		super();
+
+		int processors = Runtime.getRuntime().availableProcessors();
+		this.sessions = new ConcurrentHashMap<Long, GameSession>(1024, 0.75f,
+				processors);
+		this.engines = new EnginePool(prototype);
+		this.journal = journal;
+		this.width = prototype.getWidth();
+		this.height = prototype.getHeight();
+	}
+
+	/**
+	 * Start a new game.
+	 *
+	 * @return the session of the game.
+	 */
+	public GameSession create() {
+
+		TicTacToeEngine engine = engines.acquire();
+
+		idLock.readLock().lock();
+		try {
+			long id = nextId.getAndIncrement();
+			GameSession session = new GameSession(id, engine, journal);
+			sessions.put(id, session);
+
+			return session;
+		} finally {
+			idLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the session of a game, or <code>null</code>.
+	 *
+	 * @param id
+	 * @return
+	 */
+	public GameSession get(long id) {
+		return sessions.get(id);
+	}
+
+	/**
+	 * Place a token in a game.
+	 *
+	 * @param id
+	 * @param token
+	 *            the player, or <code>null</code> for whoever is next.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public MoveStatus play(long id, Token token, int x, int y) {
+
+		GameSession session = sessions.get(id);
+		if (session == null)
+			return MoveStatus.UNKNOWN_GAME;
+
+		return session.play(token, x, y);
+	}
+
+	/**
+	 * Returns a snapshot of a game, or <code>null</code> if there is none.
+	 *
+	 * @param id
+	 * @return
+	 */
+	public Position getPosition(long id) {
+
+		GameSession session = sessions.get(id);
+		return (session == null) ? null : session.getPosition();
+	}
+
+	/**
+	 * End a game and forget it.
+	 *
+	 * @param id
+	 * @return <code>false</code> if there was no such game.
+	 */
+	public boolean close(long id) {
+
+		GameSession session = sessions.remove(id);
+		if (session == null)
+			return false;
+
+		TicTacToeEngine engine = session.close();
+		if (engine != null)
+			engines.release(engine);
+
+		return true;
+	}
+
+	/**
+	 * Returns the number of open games.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return sessions.size();
+	}
+
+	/**
+	 * Write a snapshot of the open games. The games keep being played
+	 * meanwhile: each game is written with the position of its last record
+	 * in the journal, so that a replay from the journal position of the
+	 * snapshot skips the moves it already has.
+	 *
+	 * @return the number of games written.
+	 */
+	long snapshot(SnapshotStore store) throws IOException {
+
+		// the journal position before the next id, see replayed().
+		long position, next;
+		idLock.writeLock().lock();
+		try {
+			position = (journal == null) ? 0 : journal.getPosition();
+			next = nextId.get();
+		} finally {
+			idLock.writeLock().unlock();
+		}
+
+		SnapshotWriter writer = store.begin(position, next, width, height);
+		try {
+			for (GameSession session : sessions.values()) {
+				session.snapshot(writer);
+			}
+
+			// the snapshot must not be ahead of the journal on the disk.
+			if (journal != null)
+				journal.flush();
+
+			writer.commit();
+		} finally {
+			writer.close();
+		}
+
+		return writer.getCount();
+	}
+
+	/**
+	 * Open a game of a snapshot, or an empty game, with its id.
+	 */
+	GameSession restore(long id, long journalEnd, Position position) {
+
+		GameSession session = new GameSession(id, engines.acquire(), journal);
+		if (position != null)
+			session.restore(journalEnd, position);
+
+		sessions.put(id, session);
+		if (nextId.get() <= id)
+			nextId.set(id + 1);
+
+		return session;
+	}
+
+	/**
+	 * Make sure new games get ids from at least the given one.
+	 */
+	void reserveIds(long next) {
+		if (nextId.get() < next)
+			nextId.set(next);
+	}
+
+	/**
+	 * Returns the game of a record being replayed.
+	 *
+	 * @param firstNewId
+	 *            the next game id of the snapshot: a game below it which is
+	 *            not open was closed after the snapshot started, and its
+	 *            records are skipped.
+	 */
+	private GameSession replayed(long game, long firstNewId) {
+
+		GameSession session = sessions.get(game);
+		if (session == null && game >= firstNewId)
+			session = restore(game, 0, null);
+
+		return session;
+	}
+
+	void replayMove(long position, long game, int x, int y, Token token,
+			long firstNewId) {
+
+		GameSession session = replayed(game, firstNewId);
+		if (session != null)
+			session.replayMove(position, x, y, token);
+	}
+
+	void replayRestart(long position, long game, long firstNewId) {
+
+		GameSession session = replayed(game, firstNewId);
+		if (session != null)
+			session.replayRestart(position);
+	}
+
+	void replayClose(long position, long game) {
+
+		GameSession session = sessions.get(game);
+		if (session == null)
+			return;
+
+		TicTacToeEngine engine = session.replayClose(position);
+		if (engine != null) {
+			sessions.remove(game);
+			engines.release(engine);
+		}
+	}
+
+}
@@ -0,0 +1,249 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.museviral.training.tdd.example.tictactoe.Position;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.journal.JournalReader;
+import com.museviral.training.tdd.example.tictactoe.journal.JournalVisitor;
+import com.museviral.training.tdd.example.tictactoe.journal.MoveJournal;
+import com.museviral.training.tdd.example.tictactoe.journal.SnapshotStore;
+import com.museviral.training.tdd.example.tictactoe.journal.SnapshotVisitor;
+
+/**
+ * A {@link GameSessionRegistry} whose games survive the end of the process.
+ * <p>
+ *
+ * Every change of a game is recorded in a {@link MoveJournal}, and the open
+ * games are written from time to time to a {@link SnapshotStore}. Opening
+ * the store recovers the games: the latest snapshot is loaded, then only
+ * the records of the journal written since it started are replayed. A
+ * crash may lose the empty games created after the latest snapshot, but
+ * never a move which is in the journal.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GameSessionStore implements Closeable {
+
+	private final MoveJournal journal;
+
+	private final SnapshotStore snapshots;
+
+	private final GameSessionRegistry registry;
+
+	private long recoveryNanos;
+
+	private long replayedRecords;
+
+	private ScheduledExecutorService scheduler;
+
+	private volatile IOException snapshotFailure;
+
+	/**
+	 * Open a store of classic games.
+	 */
+	public GameSessionStore(File directory) throws IOException {
+		this(directory, new TicTacToeEngine());
+	}
+
+	/**
+	 * Open a store, and recover its games.
+	 *
+	 * @param directory
+	 *            the directory of the journal and the snapshots, created if
+	 *            needed.
+	 * @param prototype
+	 *            the kind of engine of the games; it must be the same as
+	 *            when the games were played.
+	 * @throws IOException
+	 *             if the games cannot be read.
+	 */
+	public GameSessionStore(File directory, TicTacToeEngine prototype)
+			throws IOException {
+		super();
+
+		long start = System.nanoTime();
+
+		this.journal = new MoveJournal(new File(directory, "journal"));
+		this.snapshots = new SnapshotStore(new File(directory, "snapshots"));
+		this.registry = new GameSessionRegistry(prototype, journal);
+
+		try {
+			recover(prototype);
+		} catch (RuntimeException e) {
+			journal.close();
+			throw e;
+		}
+
+		recoveryNanos = System.nanoTime() - start;
+	}
+
+	private void recover(final TicTacToeEngine prototype) throws IOException {
+
+		// the journal position and the next game id of the snapshot.
+		final long[] header = new long[2];
+
+		snapshots.readLatest(new SnapshotVisitor() {
+			@Override
+			public void start(long journalPosition, long nextId, int width,
+					int height) {
+				if (width != prototype.getWidth()
+						|| height != prototype.getHeight())
+					throw new IllegalArgumentException("Snapshot of "
+							+ width + "x" + height + " games");
+
+				header[0] = journalPosition;
+				header[1] = nextId;
+			}
+
+			@Override
+			public void game(long game, long journalEnd, Position position) {
+				registry.restore(game, journalEnd, position);
+			}
+		});
+
+		final long firstNewId = header[1];
+
+		new JournalReader(journal.getDirectory()).read(header[0],
+				new JournalVisitor() {
+					@Override
+					public void move(long position, long game, int x, int y,
+							Token token) {
+						registry.replayMove(position, game, x, y, token,
+								firstNewId);
+						replayedRecords++;
+					}
+
+					@Override
+					public void restart(long position, long game) {
+						registry.replayRestart(position, game, firstNewId);
+						replayedRecords++;
+					}
+
+					@Override
+					public void close(long position, long game) {
+						registry.replayClose(position, game);
+						replayedRecords++;
+					}
+				});
+
+		registry.reserveIds(firstNewId);
+	}
+
+	public GameSessionRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Returns how long the recovery took when the store was opened.
+	 *
+	 * @return
+	 */
+	public long getRecoveryNanos() {
+		return recoveryNanos;
+	}
+
+	/**
+	 * Returns the number of journal records replayed by the recovery.
+	 *
+	 * @return
+	 */
+	public long getReplayedRecords() {
+		return replayedRecords;
+	}
+
+	/**
+	 * Write a snapshot of the open games now.
+	 *
+	 * @return the number of games written.
+	 * @throws IOException
+	 */
+	public synchronized long snapshot() throws IOException {
+		return registry.snapshot(snapshots);
+	}
+
+	/**
+	 * Write a snapshot periodically, in a background thread.
+	 *
+	 * @param periodMillis
+	 *            the delay between the end of a snapshot and the start of
+	 *            the next one.
+	 */
+	public synchronized void startSnapshots(long periodMillis) {
+
+		if (periodMillis <= 0)
+			throw new IllegalArgumentException("Invalid period: "
+					+ periodMillis);
+		if (scheduler != null)
+			throw new IllegalStateException("Snapshots already started");
+
+		scheduler = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "game-snapshots");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					snapshot();
+					snapshotFailure = null;
+				} catch (IOException e) {
+					snapshotFailure = e;
+				}
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns why the latest periodic snapshot failed, or <code>null</code>
+	 * if it succeeded.
+	 *
+	 * @return
+	 */
+	public IOException getSnapshotFailure() {
+		return snapshotFailure;
+	}
+
+	/**
+	 * Stop the snapshots and close the journal. The games are recovered by
+	 * the next store opened on the directory.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		ScheduledExecutorService current;
+		synchronized (this) {
+			current = scheduler;
+			scheduler = null;
+		}
+
+		if (current != null) {
+			current.shutdown();
+			try {
+				current.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		journal.close();
+	}
+
+}
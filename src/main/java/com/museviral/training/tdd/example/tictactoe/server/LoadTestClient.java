@@ -0,0 +1,208 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens many connections to a {@link GameServer}: some only stay idle,
+ * the others play random games, and the moves per second are counted.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class LoadTestClient {
+
+	private final String host;
+
+	private final int port;
+
+	private final AtomicLong moves = new AtomicLong();
+
+	private final AtomicLong games = new AtomicLong();
+
+	private final AtomicLong failures = new AtomicLong();
+
+	public LoadTestClient(String host, int port) {
+		super();
+
+		this.host = host;
+		this.port = port;
+	}
+
+	/**
+	 * Returns the number of moves accepted by the server.
+	 *
+	 * @return
+	 */
+	public long getMoves() {
+		return moves.get();
+	}
+
+	/**
+	 * Returns the number of finished games.
+	 *
+	 * @return
+	 */
+	public long getGames() {
+		return games.get();
+	}
+
+	/**
+	 * Returns the number of connections which failed.
+	 *
+	 * @return
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * Connect, play, and wait until all players are done.
+	 *
+	 * @param idle
+	 *            connections which stay open without playing until the
+	 *            players are done.
+	 * @param players
+	 *            connections which play.
+	 * @param gamesPerPlayer
+	 *            games played on each connection.
+	 * @return the elapsed time of the players, in nanoseconds.
+	 */
+	public long run(int idle, int players, final int gamesPerPlayer)
+			throws IOException, InterruptedException {
+
+		List<Socket> idleSockets = new ArrayList<Socket>(idle);
+		ExecutorService executor = GameServer.newConnectionExecutor();
+
+		try {
+			for (int i = 0; i < idle; i++) {
+				idleSockets.add(connect());
+			}
+
+			final CountDownLatch done = new CountDownLatch(players);
+			long start = System.nanoTime();
+
+			for (int i = 0; i < players; i++) {
+				final long seed = i;
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							play(gamesPerPlayer, new SplittableRandom(seed));
+						} catch (IOException e) {
+							failures.incrementAndGet();
+						} finally {
+							done.countDown();
+						}
+					}
+				});
+			}
+
+			done.await();
+			return System.nanoTime() - start;
+
+		} finally {
+			for (Socket socket : idleSockets) {
+				socket.close();
+			}
+			executor.shutdownNow();
+		}
+	}
+
+	private Socket connect() throws IOException {
+		Socket socket = new Socket();
+		socket.setTcpNoDelay(true);
+		socket.connect(new InetSocketAddress(host, port));
+		return socket;
+	}
+
+	/**
+	 * Play random games on one connection.
+	 */
+	private void play(int gameCount, SplittableRandom random)
+			throws IOException {
+
+		Socket socket = connect();
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), StandardCharsets.US_ASCII), 256);
+			OutputStream stream = socket.getOutputStream();
+			Writer out = new OutputStreamWriter(stream,
+					StandardCharsets.US_ASCII);
+
+			String[] game = in.readLine().split(" ");
+			int width = Integer.parseInt(game[2]);
+			int height = Integer.parseInt(game[3]);
+
+			int played = 0;
+			String line;
+			while ((line = in.readLine()) != null) {
+
+				if (line.startsWith("TURN")) {
+					out.write(random.nextInt(width) + " "
+							+ random.nextInt(height) + "\n");
+					out.flush();
+				} else if (line.startsWith("BOARD")) {
+					moves.incrementAndGet();
+				} else if (line.startsWith("RESULT")) {
+					games.incrementAndGet();
+				} else if (line.equals("AGAIN?")) {
+					played++;
+					out.write(played < gameCount ? "y\n" : "n\n");
+					out.flush();
+				} else if (line.equals("BYE")) {
+					break;
+				}
+			}
+
+			// every game starts with the board of the empty game.
+			moves.addAndGet(-played);
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Run a load test.
+	 *
+	 * @param args
+	 *            <code>host port idle players games</code>
+	 */
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+
+		String host = (args.length > 0) ? args[0] : "localhost";
+		int port = (args.length > 1) ? Integer.parseInt(args[1])
+				: GameServer.DEFAULT_PORT;
+		int idle = (args.length > 2) ? Integer.parseInt(args[2]) : 10000;
+		int players = (args.length > 3) ? Integer.parseInt(args[3]) : 1000;
+		int games = (args.length > 4) ? Integer.parseInt(args[4]) : 100;
+
+		LoadTestClient client = new LoadTestClient(host, port);
+		long nanos = client.run(idle, players, games);
+
+		System.out.println(idle + " idle and " + players
+				+ " playing connections");
+		System.out.println(client.getGames() + " games, " + client.getMoves()
+				+ " moves, " + client.getFailures() + " failures");
+		System.out.println(client.getMoves() * 1000000000L / nanos
+				+ " moves/s");
+	}
+
+}
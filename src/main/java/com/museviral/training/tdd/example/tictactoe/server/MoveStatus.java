@@ -0,0 +1,39 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.server;
+
+/**
+ * The answer to a move sent to a {@link GameSession}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public enum MoveStatus {
+
+	/**
+	 * The token was placed.
+	 */
+	ACCEPTED,
+
+	/**
+	 * It is the turn of the other player.
+	 */
+	WRONG_TURN,
+
+	/**
+	 * The cell is outside the board or already taken.
+	 */
+	ILLEGAL,
+
+	/**
+	 * The game is over.
+	 */
+	GAME_OVER,
+
+	/**
+	 * There is no game with this id, or it was closed.
+	 */
+	UNKNOWN_GAME
+
+}
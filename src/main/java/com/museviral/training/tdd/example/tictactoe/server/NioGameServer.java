@@ -0,0 +1,458 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.museviral.training.tdd.example.tictactoe.Position;
+
+/**
+ * A TCP server playing the games of a {@link GameSessionRegistry} with the
+ * frames of {@link BinaryProtocol}, on a few event loop threads instead of
+ * one thread per connection.
+ * <p>
+ *
+ * One thread accepts the connections and hands them to the event loops in
+ * turn. Each event loop owns a {@link Selector} and two direct buffers,
+ * for all its connections: the bytes read from a connection are decoded
+ * and played at once, and the replies are written back before the next
+ * connection is served. A connection only gets a buffer of its own when
+ * the socket cannot take all its replies, and it is not read again until
+ * they are written.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class NioGameServer implements Closeable {
+
+	/**
+	 * Default TCP port.
+	 */
+	public static final int DEFAULT_PORT = 7778;
+
+	private static final int READ_BUFFER = 8 * 1024;
+
+	/**
+	 * Every byte read gives at most a reply of 3 bytes.
+	 */
+	private static final int WRITE_BUFFER = 3 * READ_BUFFER;
+
+	private final GameSessionRegistry registry;
+
+	private final ServerSocketChannel serverChannel;
+
+	private final EventLoop[] loops;
+
+	private final Thread acceptor;
+
+	private final AtomicInteger connectionCount = new AtomicInteger();
+
+	private volatile boolean closed;
+
+	/**
+	 * Start a server with one event loop per processor, up to 4.
+	 */
+	public NioGameServer(GameSessionRegistry registry, int port)
+			throws IOException {
+		this(registry, port, Math.min(4, Runtime.getRuntime()
+				.availableProcessors()));
+	}
+
+	/**
+	 * Start a server.
+	 *
+	 * @param registry
+	 *            where the games are created.
+	 * @param port
+	 *            the TCP port, or 0 for any free port.
+	 * @param eventLoops
+	 *            the number of threads serving the connections.
+	 * @throws IOException
+	 *             if the port cannot be opened.
+	 */
+	public NioGameServer(GameSessionRegistry registry, int port,
+			int eventLoops) throws IOException {
+		super();
+
+		if (eventLoops < 1)
+			throw new IllegalArgumentException("Invalid event loop count: "
+					+ eventLoops);
+
+		this.registry = registry;
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.bind(new InetSocketAddress(port), 4096);
+
+		this.loops = new EventLoop[eventLoops];
+		for (int i = 0; i < eventLoops; i++) {
+			loops[i] = new EventLoop();
+			Thread thread = new Thread(loops[i], "nio-game-server-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		this.acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "nio-game-server-acceptor");
+		this.acceptor.setDaemon(true);
+		this.acceptor.start();
+	}
+
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Returns the number of open connections.
+	 *
+	 * @return
+	 */
+	public int getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	private void accept() {
+
+		int next = 0;
+		while (!closed) {
+
+			SocketChannel channel;
+			try {
+				channel = serverChannel.accept();
+			} catch (IOException e) {
+				if (closed || !GameServer.backOff())
+					return;
+				continue;
+			}
+
+			try {
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				channel.configureBlocking(false);
+			} catch (IOException e) {
+				closeChannel(channel);
+				continue;
+			}
+
+			loops[next].add(channel);
+			next = (next + 1) % loops.length;
+		}
+	}
+
+	private static void closeChannel(SocketChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// already closed.
+		}
+	}
+
+	/**
+	 * Stop accepting connections and close the open ones.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverChannel.close();
+		for (EventLoop loop : loops) {
+			loop.selector.wakeup();
+		}
+	}
+
+	/**
+	 * The state of one connection, between two reads.
+	 */
+	private static final class Connection {
+
+		final SocketChannel channel;
+
+		final GameSession session;
+
+		final int width;
+
+		final int cells;
+
+		/**
+		 * The first byte of a cell of two bytes, or -1.
+		 */
+		int high = -1;
+
+		/**
+		 * The replies the socket did not take yet, or <code>null</code>.
+		 */
+		ByteBuffer pending;
+
+		boolean quit;
+
+		Connection(SocketChannel channel, GameSession session, int width,
+				int cells) {
+			this.channel = channel;
+			this.session = session;
+			this.width = width;
+			this.cells = cells;
+		}
+
+	}
+
+	private final class EventLoop implements Runnable {
+
+		final Selector selector;
+
+		final Queue<SocketChannel> added = new ConcurrentLinkedQueue<SocketChannel>();
+
+		final ByteBuffer in = ByteBuffer.allocateDirect(READ_BUFFER);
+
+		final ByteBuffer out = ByteBuffer.allocateDirect(WRITE_BUFFER);
+
+		EventLoop() throws IOException {
+			this.selector = Selector.open();
+		}
+
+		void add(SocketChannel channel) {
+			added.add(channel);
+			if (closed) {
+				// the loop may have stopped before seeing it.
+				closeAdded();
+			} else {
+				selector.wakeup();
+			}
+		}
+
+		/**
+		 * Close the channels which were not registered.
+		 */
+		void closeAdded() {
+			SocketChannel channel;
+			while ((channel = added.poll()) != null) {
+				closeChannel(channel);
+			}
+		}
+
+		@Override
+		public void run() {
+
+			try {
+				while (!closed) {
+
+					selector.select();
+					register();
+
+					Iterator<SelectionKey> keys = selector.selectedKeys()
+							.iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						serve(key);
+					}
+				}
+			} catch (IOException e) {
+				// the selector is broken, the connections are closed below.
+			} finally {
+				for (SelectionKey key : selector.keys()) {
+					close(key);
+				}
+				closeAdded();
+				try {
+					selector.close();
+				} catch (IOException e) {
+					// nothing left to do.
+				}
+			}
+		}
+
+		private void register() {
+
+			SocketChannel channel;
+			while ((channel = added.poll()) != null) {
+
+				GameSession session = registry.create();
+				Position position = session.getPosition();
+				int width = position.getWidth();
+				int height = position.getHeight();
+
+				SelectionKey key;
+				try {
+					key = channel.register(selector, SelectionKey.OP_READ);
+				} catch (ClosedChannelException e) {
+					registry.close(session.getId());
+					continue;
+				}
+
+				key.attach(new Connection(channel, session, width, width
+						* height));
+				connectionCount.incrementAndGet();
+
+				if (width > 0xFF || height > 0xFF
+						|| width * height > BinaryProtocol.MAX_CELLS) {
+					// the board cannot be described by the protocol.
+					close(key);
+					continue;
+				}
+
+				out.clear();
+				out.put((byte) BinaryProtocol.GAME);
+				out.put((byte) width);
+				out.put((byte) height);
+				out.flip();
+				write(key);
+			}
+		}
+
+		private void serve(SelectionKey key) {
+
+			if (!key.isValid())
+				return;
+
+			Connection connection = (Connection) key.attachment();
+			try {
+				if (key.isWritable()) {
+					connection.channel.write(connection.pending);
+					if (!connection.pending.hasRemaining()) {
+						connection.pending = null;
+						if (connection.quit) {
+							close(key);
+							return;
+						}
+						key.interestOps(SelectionKey.OP_READ);
+					}
+				} else if (key.isReadable()) {
+					read(key);
+				}
+			} catch (IOException e) {
+				close(key);
+			}
+		}
+
+		private void read(SelectionKey key) throws IOException {
+
+			Connection connection = (Connection) key.attachment();
+
+			in.clear();
+			if (connection.channel.read(in) < 0) {
+				close(key);
+				return;
+			}
+			in.flip();
+			out.clear();
+
+			while (in.hasRemaining()) {
+
+				int b = in.get() & 0xFF;
+				if (connection.high >= 0) {
+					play(connection, (connection.high << 8) | b);
+					connection.high = -1;
+				} else if (b < BinaryProtocol.LONG_CELL) {
+					play(connection, b);
+				} else if (b < BinaryProtocol.RESTART) {
+					connection.high = b & 0x3F;
+				} else if (b == BinaryProtocol.RESTART) {
+					connection.session.restart();
+					out.put((byte) BinaryProtocol.RESTARTED);
+				} else {
+					// QUIT, or a byte of another protocol.
+					connection.quit = true;
+					break;
+				}
+			}
+
+			out.flip();
+			write(key);
+		}
+
+		private void play(Connection connection, int cell) {
+
+			if (cell >= connection.cells) {
+				out.put((byte) (BinaryProtocol.REJECTED | MoveStatus.ILLEGAL
+						.ordinal()));
+				return;
+			}
+
+			int reply = connection.session.playBinary(cell % connection.width,
+					cell / connection.width);
+			out.put((byte) reply);
+			if ((reply & 0xF0) == BinaryProtocol.PLACED) {
+				BinaryProtocol.putCell(out, cell);
+			}
+		}
+
+		/**
+		 * Write the replies in the shared buffer, keeping what the socket
+		 * does not take.
+		 */
+		private void write(SelectionKey key) {
+
+			Connection connection = (Connection) key.attachment();
+			try {
+				connection.channel.write(out);
+			} catch (IOException e) {
+				close(key);
+				return;
+			}
+
+			if (out.hasRemaining()) {
+				ByteBuffer pending = ByteBuffer.allocate(out.remaining());
+				pending.put(out);
+				pending.flip();
+				connection.pending = pending;
+				key.interestOps(SelectionKey.OP_WRITE);
+			} else if (connection.quit) {
+				close(key);
+			}
+		}
+
+		private void close(SelectionKey key) {
+
+			Connection connection = (Connection) key.attachment();
+			key.cancel();
+			try {
+				key.channel().close();
+			} catch (IOException e) {
+				// already closed.
+			}
+
+			if (connection != null) {
+				key.attach(null);
+				registry.close(connection.session.getId());
+				connectionCount.decrementAndGet();
+			}
+		}
+
+	}
+
+	/**
+	 * Run a server until the process is stopped.
+	 *
+	 * @param args
+	 *            optional <code>port [eventLoops]</code>.
+	 */
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		GameSessionRegistry registry = new GameSessionRegistry();
+
+		NioGameServer server = (args.length > 1) ? new NioGameServer(registry,
+				port, Integer.parseInt(args[1])) : new NioGameServer(registry,
+				port);
+		System.out.println("Listening on port " + server.getPort() + " with "
+				+ server.loops.length + " event loops");
+
+		server.acceptor.join();
+	}
+
+}
@@ -0,0 +1,268 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+import com.museviral.training.tdd.example.tictactoe.metrics.LatencyHistogram;
+
+/**
+ * Plays random games on many connections to a {@link NioGameServer}, from
+ * one thread, with one move in flight per connection, and measures the
+ * round trip of every move.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class NioLoadTestClient {
+
+	private final InetSocketAddress address;
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	private long moves;
+
+	private long games;
+
+	private long failures;
+
+	public NioLoadTestClient(String host, int port) {
+		super();
+
+		this.address = new InetSocketAddress(host, port);
+	}
+
+	/**
+	 * Returns the round trips of the moves, in nanoseconds.
+	 *
+	 * @return
+	 */
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * Returns the number of moves placed by the server.
+	 *
+	 * @return
+	 */
+	public long getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Returns the number of finished games.
+	 *
+	 * @return
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * Returns the number of connections which failed.
+	 *
+	 * @return
+	 */
+	public long getFailures() {
+		return failures;
+	}
+
+	/**
+	 * The state of one connection.
+	 */
+	private static final class Player {
+
+		final SocketChannel channel;
+
+		final ByteBuffer in = ByteBuffer.allocate(16);
+
+		final ByteBuffer out = ByteBuffer.allocate(4);
+
+		final SplittableRandom random;
+
+		int cells;
+
+		int games;
+
+		long sent;
+
+		Player(SocketChannel channel, long seed) {
+			this.channel = channel;
+			this.random = new SplittableRandom(seed);
+		}
+
+	}
+
+	/**
+	 * Connect, play, and wait until all games are over.
+	 *
+	 * @param connections
+	 *            the number of connections.
+	 * @param gamesPerConnection
+	 *            games played on each connection.
+	 * @return the elapsed time, in nanoseconds.
+	 */
+	public long run(int connections, int gamesPerConnection)
+			throws IOException {
+
+		Selector selector = Selector.open();
+		try {
+			for (int i = 0; i < connections; i++) {
+				SocketChannel channel = SocketChannel.open(address);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				channel.configureBlocking(false);
+				channel.register(selector, SelectionKey.OP_READ, new Player(
+						channel, i));
+			}
+
+			long start = System.nanoTime();
+			int open = connections;
+
+			while (open > 0) {
+
+				selector.select();
+				Iterator<SelectionKey> keys = selector.selectedKeys()
+						.iterator();
+
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+
+					Player player = (Player) key.attachment();
+					try {
+						if (!read(player, gamesPerConnection)) {
+							key.cancel();
+							player.channel.close();
+							open--;
+						}
+					} catch (IOException e) {
+						failures++;
+						key.cancel();
+						player.channel.close();
+						open--;
+					}
+				}
+			}
+
+			return System.nanoTime() - start;
+
+		} finally {
+			for (SelectionKey key : selector.keys()) {
+				key.channel().close();
+			}
+			selector.close();
+		}
+	}
+
+	/**
+	 * Handle the frames received by a player.
+	 *
+	 * @return <code>false</code> when the player is done.
+	 */
+	private boolean read(Player player, int gameCount) throws IOException {
+
+		if (player.channel.read(player.in) < 0)
+			throw new IOException("closed by the server");
+
+		player.in.flip();
+
+		int length;
+		while ((length = BinaryProtocol.frameLength(player.in)) > 0
+				&& player.in.remaining() >= length) {
+
+			int type = player.in.get() & 0xFF;
+
+			if (type == BinaryProtocol.GAME) {
+				int width = player.in.get() & 0xFF;
+				int height = player.in.get() & 0xFF;
+				player.cells = width * height;
+				move(player);
+
+			} else if (type == BinaryProtocol.RESTARTED) {
+				move(player);
+
+			} else if ((type & 0xF0) == BinaryProtocol.PLACED) {
+				BinaryProtocol.getCell(player.in);
+				latencies.record(System.nanoTime() - player.sent);
+				moves++;
+
+				if ((type & (BinaryProtocol.WON | BinaryProtocol.DRAWN)) == 0) {
+					move(player);
+				} else {
+					games++;
+					if (++player.games == gameCount) {
+						send(player, BinaryProtocol.QUIT);
+						return false;
+					}
+					send(player, BinaryProtocol.RESTART);
+				}
+
+			} else {
+				// an occupied cell, try another one.
+				latencies.record(System.nanoTime() - player.sent);
+				move(player);
+			}
+		}
+
+		player.in.compact();
+		return true;
+	}
+
+	private void move(Player player) throws IOException {
+
+		player.out.clear();
+		BinaryProtocol.putCell(player.out, player.random.nextInt(player.cells));
+		player.out.flip();
+
+		player.sent = System.nanoTime();
+		player.channel.write(player.out);
+	}
+
+	private void send(Player player, int command) throws IOException {
+
+		player.out.clear();
+		player.out.put((byte) command);
+		player.out.flip();
+		player.channel.write(player.out);
+	}
+
+	/**
+	 * Run a load test.
+	 *
+	 * @param args
+	 *            <code>host port connections games</code>
+	 */
+	public static void main(String[] args) throws IOException {
+
+		String host = (args.length > 0) ? args[0] : "localhost";
+		int port = (args.length > 1) ? Integer.parseInt(args[1])
+				: NioGameServer.DEFAULT_PORT;
+		int connections = (args.length > 2) ? Integer.parseInt(args[2]) : 1000;
+		int games = (args.length > 3) ? Integer.parseInt(args[3]) : 100;
+
+		NioLoadTestClient client = new NioLoadTestClient(host, port);
+		long nanos = client.run(connections, games);
+
+		LatencyHistogram latencies = client.getLatencies();
+		System.out.println(connections + " connections, " + client.getGames()
+				+ " games, " + client.getMoves() + " moves, "
+				+ client.getFailures() + " failures");
+		System.out.println(client.getMoves() * 1000000000L / nanos
+				+ " moves/s");
+		System.out.println("round trip p50 "
+				+ latencies.getValueAtPercentile(50) / 1000 + " us, p99 "
+				+ latencies.getValueAtPercentile(99) / 1000 + " us, max "
+				+ latencies.getMax() / 1000 + " us");
+	}
+
+}
@@ -0,0 +1,10 @@
+/**
+ * 
+ */
+/**
+ * Hosting many games at the same time, and playing them over the network.
+ * 
+ * @author Cyril
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.server;
@@ -0,0 +1,297 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.sim;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * Replays recorded games from a script, without user interface, and writes
+ * one result line per game.
+ * <p>
+ *
+ * A script has one game per line: its moves separated by spaces, each move
+ * being <code>x,y</code> with coordinates from 1 as in the console, e.g.
+ * <code>2,2 1,1 3,1</code>. Blank lines and the text after a <code>#</code>
+ * are ignored.
+ * <p>
+ *
+ * The result line of a game is its line number in the script, its result
+ * and the number of moves played: <code>X</code> or <code>O</code> for the
+ * winner, <code>draw</code>, <code>open</code> if the game is not finished,
+ * <code>illegal</code> if a move is rejected by the engine, or
+ * <code>syntax</code> if a move cannot be read. The moves after an illegal
+ * or unreadable one are skipped.
+ * <p>
+ *
+ * The script is parsed from bytes and the results are written from a
+ * reusable buffer, so that no object is created per game or per move.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GameScriptRunner {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Larger coordinates are kept at this value, which is outside any board.
+	 */
+	private static final int MAX_COORDINATE = 1 << 24;
+
+	private static final byte[] WIN_X = " X ".getBytes();
+
+	private static final byte[] WIN_O = " O ".getBytes();
+
+	private static final byte[] DRAW = " draw ".getBytes();
+
+	private static final byte[] OPEN = " open ".getBytes();
+
+	private static final byte[] ILLEGAL = " illegal ".getBytes();
+
+	private static final byte[] SYNTAX = " syntax ".getBytes();
+
+	private final TicTacToeEngine engine;
+
+	private final byte[] input = new byte[BUFFER_SIZE];
+
+	private final byte[] output = new byte[BUFFER_SIZE];
+
+	private int length;
+
+	private long games, moves, rejected;
+
+	// the state of the current line.
+
+	private long line;
+
+	private boolean started;
+
+	/**
+	 * The result of the game if it failed, or <code>null</code>.
+	 */
+	private byte[] failure;
+
+	private boolean comment;
+
+	private int x, number, digits;
+
+	private boolean comma;
+
+	private int played;
+
+	/**
+	 * @param engine
+	 *            the engine the games are played on; it is restarted before
+	 *            every game.
+	 */
+	public GameScriptRunner(TicTacToeEngine engine) {
+		super();
+
+		if (engine == null)
+			throw new IllegalArgumentException("Missing engine");
+
+		this.engine = engine;
+	}
+
+	/**
+	 * Play all the games of a script.
+	 *
+	 * @param in
+	 *            the script; it is not closed.
+	 * @param out
+	 *            where the results are written; it is flushed at the end.
+	 * @return the number of games played.
+	 * @throws IOException
+	 */
+	public long run(InputStream in, OutputStream out) throws IOException {
+
+		long before = games;
+
+		line = 1;
+		resetLine();
+		engine.restart();
+
+		int n;
+		while ((n = in.read(input)) >= 0) {
+			for (int i = 0; i < n; i++) {
+				accept(input[i], out);
+			}
+		}
+		endLine(out);
+
+		out.write(output, 0, length);
+		out.flush();
+		length = 0;
+
+		return games - before;
+	}
+
+	private void accept(byte b, OutputStream out) throws IOException {
+
+		if (b == '\n') {
+			endLine(out);
+			line++;
+			return;
+		}
+
+		if (comment || failure != null)
+			return;
+
+		if (b >= '0' && b <= '9') {
+			started = true;
+			number = Math.min(10 * number + b - '0', MAX_COORDINATE);
+			digits++;
+		} else if (b == ',') {
+			started = true;
+			if (comma || digits == 0) {
+				fail(SYNTAX);
+			} else {
+				x = number;
+				comma = true;
+				number = 0;
+				digits = 0;
+			}
+		} else if (b == ' ' || b == '\t' || b == '\r') {
+			endMove();
+		} else if (b == '#') {
+			endMove();
+			comment = true;
+		} else {
+			started = true;
+			fail(SYNTAX);
+		}
+	}
+
+	private void endMove() {
+
+		if (failure != null)
+			return;
+
+		if (!comma && digits == 0)
+			return;
+
+		if (!comma || digits == 0) {
+			fail(SYNTAX);
+			return;
+		}
+
+		if (engine.place(x - 1, number - 1)) {
+			played++;
+		} else {
+			fail(ILLEGAL);
+			rejected++;
+		}
+
+		comma = false;
+		number = 0;
+		digits = 0;
+	}
+
+	private void fail(byte[] result) {
+		failure = result;
+	}
+
+	private void endLine(OutputStream out) throws IOException {
+
+		endMove();
+
+		if (started) {
+
+			appendLong(line);
+			append(result());
+			appendLong(played);
+			output[length++] = '\n';
+
+			if (length > output.length - 64) {
+				out.write(output, 0, length);
+				length = 0;
+			}
+
+			games++;
+			moves += played;
+			engine.restart();
+		}
+
+		resetLine();
+	}
+
+	private byte[] result() {
+
+		if (failure != null)
+			return failure;
+
+		if (engine.getGameState() != GameState.Complete)
+			return OPEN;
+
+		Token winner = engine.getWinner();
+		if (winner == null)
+			return DRAW;
+
+		return winner == Token.CROSS ? WIN_X : WIN_O;
+	}
+
+	private void resetLine() {
+		started = false;
+		failure = null;
+		comment = false;
+		comma = false;
+		x = 0;
+		number = 0;
+		digits = 0;
+		played = 0;
+	}
+
+	private void append(byte[] bytes) {
+		System.arraycopy(bytes, 0, output, length, bytes.length);
+		length += bytes.length;
+	}
+
+	private void appendLong(long n) {
+
+		int digits = 1;
+		for (long i = n; i >= 10; i /= 10) {
+			digits++;
+		}
+
+		for (int i = length + digits - 1; i >= length; i--) {
+			output[i] = (byte) ('0' + n % 10);
+			n /= 10;
+		}
+		length += digits;
+	}
+
+	/**
+	 * Returns the number of games played by this runner.
+	 *
+	 * @return
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * Returns the number of moves accepted by the engine.
+	 *
+	 * @return
+	 */
+	public long getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Returns the number of moves rejected by the engine.
+	 *
+	 * @return
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+}
@@ -0,0 +1,78 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.sim;
+
+import java.util.SplittableRandom;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * A scripted player: wins if it can, otherwise blocks a winning cell of the
+ * opponent, otherwise plays a random empty cell.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GreedyStrategy implements Strategy {
+
+	private static final int[][] DIRECTIONS = { { 1, 0 }, { 0, 1 }, { 1, 1 },
+			{ 1, -1 } };
+
+	@Override
+	public int chooseMove(TicTacToeEngine engine, int[] empty,
+			int emptyCount, SplittableRandom random) {
+
+		Token me = engine.getNextToken();
+		Token opponent = (me == Token.CROSS) ? Token.CIRCLE : Token.CROSS;
+		int width = engine.getWidth();
+
+		int block = -1;
+		for (int i = 0; i < emptyCount; i++) {
+
+			int x = empty[i] % width;
+			int y = empty[i] / width;
+
+			if (wouldWin(engine, x, y, me))
+				return i;
+			if (block < 0 && wouldWin(engine, x, y, opponent))
+				block = i;
+		}
+
+		return (block >= 0) ? block : random.nextInt(emptyCount);
+	}
+
+	/**
+	 * Returns if a token placed on the empty cell completes a line.
+	 */
+	static boolean wouldWin(TicTacToeEngine engine, int x, int y, Token token) {
+
+		int winLength = engine.getWinLength();
+
+		for (int[] direction : DIRECTIONS) {
+			int count = 1 + count(engine, x, y, direction[0], direction[1], token)
+					+ count(engine, x, y, -direction[0], -direction[1], token);
+			if (count >= winLength)
+				return true;
+		}
+
+		return false;
+	}
+
+	private static int count(TicTacToeEngine engine, int x, int y, int dx,
+			int dy, Token token) {
+
+		int count = 0;
+		int limit = engine.getWinLength() - 1;
+
+		for (int nx = x + dx, ny = y + dy; count < limit && nx >= 0
+				&& ny >= 0 && nx < engine.getWidth() && ny < engine.getHeight()
+				&& engine.getToken(nx, ny) == token; nx += dx, ny += dy) {
+			count++;
+		}
+
+		return count;
+	}
+
+}
@@ -0,0 +1,24 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.sim;
+
+import java.util.SplittableRandom;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+
+/**
+ * Plays a uniformly random empty cell.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class RandomStrategy implements Strategy {
+
+	@Override
+	public int chooseMove(TicTacToeEngine engine, int[] empty,
+			int emptyCount, SplittableRandom random) {
+		return random.nextInt(emptyCount);
+	}
+
+}
@@ -0,0 +1,362 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * Plays many games without user interface, on all cores, and counts the
+ * results.
+ * <p>
+ *
+ * The games are split in batches of {@link #BATCH_SIZE}. Each batch has its
+ * own {@link SplittableRandom} derived from the seed and the batch number, so
+ * the statistics of a run only depend on the seed and the number of games,
+ * not on the number of threads. Each thread plays on one engine which it
+ * rewinds with {@link TicTacToeEngine#undo()} after every game, and keeps
+ * its counters locally until the end of a batch.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class SelfPlaySimulator {
+
+	/**
+	 * Number of games played with one random source.
+	 */
+	public static final int BATCH_SIZE = 1024;
+
+	/**
+	 * Largest board which can be simulated.
+	 */
+	public static final int MAX_CELLS = 1 << 16;
+
+	private final TicTacToeEngine prototype;
+
+	private final Strategy cross, circle;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private long seed = 0x5DEECE66DL;
+
+	private long reportIntervalMillis = 1000;
+
+	private final LongAdder crossWins = new LongAdder();
+
+	private final LongAdder circleWins = new LongAdder();
+
+	private final LongAdder draws = new LongAdder();
+
+	private AtomicLongArray lengths;
+
+	/**
+	 * Create a simulator.
+	 *
+	 * @param prototype
+	 *            the position the games start from; it is not modified.
+	 * @param cross
+	 *            the player of {@link Token#CROSS}.
+	 * @param circle
+	 *            the player of {@link Token#CIRCLE}.
+	 */
+	public SelfPlaySimulator(TicTacToeEngine prototype, Strategy cross,
+			Strategy circle) {
+		super();
+
+		if ((long) prototype.getWidth() * prototype.getHeight() > MAX_CELLS) {
+			throw new IllegalArgumentException("board too large to simulate: "
+					+ prototype.getWidth() + "x" + prototype.getHeight());
+		}
+
+		this.prototype = prototype;
+		this.cross = cross;
+		this.circle = circle;
+	}
+
+	public void setThreads(int threads) {
+
+		if (threads <= 0) {
+			throw new IllegalArgumentException("threads must be positive: "
+					+ threads);
+		}
+
+		this.threads = threads;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Set how often the statistics are passed to the listener of
+	 * {@link #run(long, Consumer)}. The default is one second.
+	 *
+	 * @param millis
+	 */
+	public void setReportIntervalMillis(long millis) {
+
+		if (millis <= 0) {
+			throw new IllegalArgumentException("interval must be positive: "
+					+ millis);
+		}
+
+		this.reportIntervalMillis = millis;
+	}
+
+	/**
+	 * Play games and wait until they are all over.
+	 *
+	 * @param games
+	 *            the number of games.
+	 * @param listener
+	 *            receives the statistics so far at every report interval, on
+	 *            the calling thread; may be <code>null</code>.
+	 * @return the statistics of all games.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted; the games are
+	 *             cancelled.
+	 */
+	public SimulationStatistics run(final long games,
+			Consumer<SimulationStatistics> listener)
+			throws InterruptedException {
+
+		long start = System.nanoTime();
+
+		crossWins.reset();
+		circleWins.reset();
+		draws.reset();
+		lengths = new AtomicLongArray(prototype.getWidth()
+				* prototype.getHeight() + 1);
+
+		final AtomicLong nextBatch = new AtomicLong();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			Future<?>[] futures = new Future<?>[threads];
+			for (int i = 0; i < threads; i++) {
+				final Worker worker = new Worker();
+				futures[i] = executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						worker.run(games, nextBatch);
+					}
+				});
+			}
+			executor.shutdown();
+
+			while (!executor.awaitTermination(reportIntervalMillis,
+					TimeUnit.MILLISECONDS)) {
+				if (listener != null)
+					listener.accept(getStatistics(start));
+			}
+
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("simulation failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		SimulationStatistics statistics = getStatistics(start);
+		if (listener != null)
+			listener.accept(statistics);
+
+		return statistics;
+	}
+
+	private SimulationStatistics getStatistics(long start) {
+
+		long[] counts = new long[lengths.length()];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = lengths.get(i);
+		}
+
+		return new SimulationStatistics(crossWins.sum(), circleWins.sum(),
+				draws.sum(), counts, threads, System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns a well mixed seed for a batch (the SplitMix64 finalizer), so
+	 * that the random sequences of neighbouring batches do not overlap.
+	 */
+	static long batchSeed(long seed, long batch) {
+		long z = seed + batch * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Plays batches on its own engine until all games are claimed.
+	 */
+	private final class Worker {
+
+		private final TicTacToeEngine engine = prototype.copy();
+
+		private final int width = engine.getWidth();
+
+		private final int rootTokens = engine.getTokenCount();
+
+		private final int[] rootEmpty, empty, position;
+
+		private final int rootEmptyCount;
+
+		private final long[] localLengths = new long[lengths.length()];
+
+		private long localCrossWins, localCircleWins, localDraws;
+
+		Worker() {
+
+			int cells = width * engine.getHeight();
+			rootEmpty = new int[cells];
+			empty = new int[cells];
+			position = new int[cells];
+
+			int count = 0;
+			for (int cell = 0; cell < cells; cell++) {
+				if (engine.getToken(cell % width, cell / width) == null)
+					rootEmpty[count++] = cell;
+			}
+			rootEmptyCount = count;
+		}
+
+		void run(long games, AtomicLong nextBatch) {
+
+			for (long batch = nextBatch.getAndIncrement(); batch * BATCH_SIZE < games; batch = nextBatch
+					.getAndIncrement()) {
+
+				if (Thread.currentThread().isInterrupted())
+					return;
+
+				SplittableRandom random = new SplittableRandom(batchSeed(seed,
+						batch));
+				long count = Math.min(BATCH_SIZE, games - batch * BATCH_SIZE);
+
+				for (long i = 0; i < count; i++) {
+					play(random);
+				}
+
+				flush();
+			}
+		}
+
+		private void play(SplittableRandom random) {
+
+			System.arraycopy(rootEmpty, 0, empty, 0, rootEmptyCount);
+			for (int i = 0; i < rootEmptyCount; i++) {
+				position[empty[i]] = i;
+			}
+			int emptyCount = rootEmptyCount;
+
+			while (engine.getGameState() == GameState.InProgress) {
+
+				Strategy strategy = (engine.getNextToken() == Token.CROSS) ? cross
+						: circle;
+				int index = strategy.chooseMove(engine, empty, emptyCount,
+						random);
+				int cell = empty[index];
+
+				int last = empty[--emptyCount];
+				empty[index] = last;
+				position[last] = index;
+
+				engine.place(cell % width, cell / width);
+			}
+
+			Token winner = engine.getWinner();
+			if (winner == Token.CROSS) {
+				localCrossWins++;
+			} else if (winner == Token.CIRCLE) {
+				localCircleWins++;
+			} else {
+				localDraws++;
+			}
+			localLengths[engine.getTokenCount() - rootTokens]++;
+
+			while (engine.getTokenCount() > rootTokens) {
+				engine.undo();
+			}
+		}
+
+		private void flush() {
+
+			crossWins.add(localCrossWins);
+			circleWins.add(localCircleWins);
+			draws.add(localDraws);
+			localCrossWins = localCircleWins = localDraws = 0;
+
+			for (int i = 0; i < localLengths.length; i++) {
+				if (localLengths[i] != 0) {
+					lengths.addAndGet(i, localLengths[i]);
+					localLengths[i] = 0;
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Simulate random games and print the statistics every second.
+	 *
+	 * @param args
+	 *            <code>games [width height winLength] [-greedy]</code>; the
+	 *            greedy players win or block when they can.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+
+		Strategy strategy = new RandomStrategy();
+		List<String> numbers = new ArrayList<String>();
+		for (String arg : args) {
+			if ("-greedy".equals(arg)) {
+				strategy = new GreedyStrategy();
+			} else {
+				numbers.add(arg);
+			}
+		}
+
+		long games = numbers.isEmpty() ? 10000000 : Long.parseLong(numbers
+				.get(0));
+
+		TicTacToeEngine engine;
+		if (numbers.size() >= 4) {
+			engine = new KInARowEngine(Integer.parseInt(numbers.get(1)),
+					Integer.parseInt(numbers.get(2)), Integer.parseInt(numbers
+							.get(3)));
+		} else {
+			engine = new BitboardTicTacToeEngine();
+		}
+
+		SelfPlaySimulator simulator = new SelfPlaySimulator(engine, strategy,
+				strategy);
+		SimulationStatistics statistics = simulator.run(games,
+				new Consumer<SimulationStatistics>() {
+					@Override
+					public void accept(SimulationStatistics statistics) {
+						System.out.println(statistics);
+					}
+				});
+
+		System.out.println("games/s: " + statistics.getGamesPerSecond());
+	}
+
+}
@@ -0,0 +1,129 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.sim;
+
+import java.util.Arrays;
+
+/**
+ * The results of the games simulated so far.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class SimulationStatistics {
+
+	private final long games;
+
+	private final long crossWins, circleWins, draws;
+
+	private final long[] lengths;
+
+	private final int threads;
+
+	private final long elapsedNanos;
+
+	public SimulationStatistics(long crossWins, long circleWins, long draws,
+			long[] lengths, int threads, long elapsedNanos) {
+		super();
+
+		this.games = crossWins + circleWins + draws;
+		this.crossWins = crossWins;
+		this.circleWins = circleWins;
+		this.draws = draws;
+		this.lengths = lengths;
+		this.threads = threads;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	public long getCrossWins() {
+		return crossWins;
+	}
+
+	public long getCircleWins() {
+		return circleWins;
+	}
+
+	public long getDraws() {
+		return draws;
+	}
+
+	/**
+	 * Returns the number of games which ended after the given number of
+	 * moves.
+	 *
+	 * @param moves
+	 * @return
+	 */
+	public long getGamesOfLength(int moves) {
+		return (moves < 0 || moves >= lengths.length) ? 0 : lengths[moves];
+	}
+
+	/**
+	 * Returns the average number of moves of a game.
+	 *
+	 * @return
+	 */
+	public double getAverageLength() {
+
+		if (games == 0)
+			return 0;
+
+		long moves = 0;
+		for (int i = 0; i < lengths.length; i++) {
+			moves += i * lengths[i];
+		}
+
+		return (double) moves / games;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public long getGamesPerSecond() {
+		return elapsedNanos == 0 ? 0 : games * 1000000000L / elapsedNanos;
+	}
+
+	/**
+	 * Returns the games per second divided by the number of threads.
+	 *
+	 * @return
+	 */
+	public long getGamesPerSecondPerCore() {
+		return getGamesPerSecond() / threads;
+	}
+
+	@Override
+	public String toString() {
+		return "games=" + games + " X=" + crossWins + " O=" + circleWins
+				+ " draws=" + draws + " length=" + getAverageLength()
+				+ " games/s/core=" + getGamesPerSecondPerCore();
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (games * 31 + crossWins) * 31 + Arrays.hashCode(lengths);
+	}
+
+	/**
+	 * Statistics are equal when they count the same games, whatever the time
+	 * it took.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+
+		if (!(obj instanceof SimulationStatistics))
+			return false;
+
+		SimulationStatistics other = (SimulationStatistics) obj;
+		return crossWins == other.crossWins && circleWins == other.circleWins
+				&& draws == other.draws
+				&& Arrays.equals(lengths, other.lengths);
+	}
+
+}
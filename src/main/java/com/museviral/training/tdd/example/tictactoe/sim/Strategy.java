@@ -0,0 +1,36 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.sim;
+
+import java.util.SplittableRandom;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+
+/**
+ * Chooses the moves of a simulated player. Implementations must not keep
+ * state between calls, since one instance is used by all threads of a
+ * simulation, and should not allocate.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public interface Strategy {
+
+	/**
+	 * Choose the next move of the engine's next token.
+	 *
+	 * @param engine
+	 *            the game; it must be in the same position after the call.
+	 * @param empty
+	 *            the empty cells, numbered <code>y * width + x</code>.
+	 * @param emptyCount
+	 *            the number of valid entries in <code>empty</code>.
+	 * @param random
+	 *            the random source of the game.
+	 * @return the index of the chosen cell in <code>empty</code>.
+	 */
+	int chooseMove(TicTacToeEngine engine, int[] empty, int emptyCount,
+			SplittableRandom random);
+
+}
@@ -0,0 +1,10 @@
+/**
+ * 
+ */
+/**
+ * Headless simulation of many games, for training and analytics data.
+ * 
+ * @author Cyril
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.sim;
@@ -0,0 +1,23 @@
+/**
+ * 
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+
+/**
+ * Runs all requirements of {@link TicTacToeEngineTest} against
+ * {@link BitboardTicTacToeEngine}.
+ * 
+ * @author Cyril
+ * @since 0.3.0
+ */
+public class BitboardTicTacToeEngineTest extends TicTacToeEngineTest {
+
+	@Override
+	protected TicTacToeEngine createGame() {
+		return new BitboardTicTacToeEngine();
+	}
+
+}
@@ -0,0 +1,153 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.ai.BoardSymmetry;
+import com.museviral.training.tdd.example.tictactoe.ai.PerfectPlayTable;
+import com.museviral.training.tdd.example.tictactoe.ai.SearchResult;
+import com.museviral.training.tdd.example.tictactoe.ai.TicTacToeSolver;
+import com.museviral.training.tdd.example.tictactoe.ai.TranspositionTable;
+
+/**
+ * Test cases for {@link BoardSymmetry}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class BoardSymmetryTest {
+
+	/**
+	 * The 5,478 positions of the 3 x 3 game fall into 765 classes.
+	 */
+	@Test
+	public void classesOf3x3Game() {
+
+		Set<Long> keys = new HashSet<Long>();
+		Set<Integer> positions = new HashSet<Integer>();
+
+		collect(new TicTacToeEngine(), new BitboardTicTacToeEngine(),
+				new BoardSymmetry(3), keys, positions);
+
+		assertEquals(5478, positions.size());
+		assertEquals(765, keys.size());
+
+	}
+
+	private void collect(TicTacToeEngine engine,
+			BitboardTicTacToeEngine bitboard, BoardSymmetry symmetry,
+			Set<Long> keys, Set<Integer> positions) {
+
+		long canonical = symmetry.canonicalize(engine);
+		assertEquals("bitboard key", canonical, symmetry.canonicalize(bitboard));
+
+		if (!positions.add(PerfectPlayTable.index(engine)))
+			return;
+		keys.add(BoardSymmetry.keyOf(canonical));
+
+		for (int cell = 0; cell < 9; cell++) {
+			if (engine.place(cell % 3, cell / 3)) {
+				bitboard.place(cell % 3, cell / 3);
+				collect(engine, bitboard, symmetry, keys, positions);
+				bitboard.undo();
+				engine.undo();
+			}
+		}
+
+	}
+
+	/**
+	 * All eight images of a position have the same canonical key, and the
+	 * transform maps the moves back to the real board.
+	 */
+	@Test
+	public void imagesShareKey() {
+
+		int size = 7;
+		BoardSymmetry symmetry = new BoardSymmetry(size);
+		Random random = new Random(1);
+
+		for (int round = 0; round < 50; round++) {
+
+			int[] cells = new int[10];
+			for (int i = 0; i < cells.length; i++) {
+				cells[i] = random.nextInt(size * size);
+			}
+
+			Long expected = null;
+
+			for (int t = 0; t < BoardSymmetry.TRANSFORMS; t++) {
+
+				KInARowEngine engine = new KInARowEngine(size, size, 5);
+				for (int cell : cells) {
+					int target = symmetry.toCanonical(t, cell);
+					engine.place(target % size, target / size);
+				}
+
+				long canonical = symmetry.canonicalize(engine);
+				if (expected == null) {
+					expected = BoardSymmetry.keyOf(canonical);
+				}
+				assertEquals("key of image " + t, expected.longValue(),
+						BoardSymmetry.keyOf(canonical));
+
+				// the canonical board is the same for all images.
+				int transform = BoardSymmetry.transformOf(canonical);
+				for (int cell = 0; cell < size * size; cell++) {
+					int real = symmetry.fromCanonical(transform, cell);
+					assertEquals(cell, symmetry.toCanonical(transform, real));
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * The solver gives the same values with and without symmetry.
+	 */
+	@Test
+	public void solverWithSymmetry() {
+
+		TicTacToeSolver plain = new TicTacToeSolver(new TranspositionTable(16));
+		TicTacToeSolver symmetric = new TicTacToeSolver(new TranspositionTable(
+				16));
+		symmetric.setUseSymmetry(true);
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		Random random = new Random(3);
+
+		for (int game = 0; game < 50; game++) {
+			engine.restart();
+			while (engine.getGameState() == TicTacToeEngine.GameState.InProgress) {
+
+				SearchResult expected = plain.search(engine);
+				SearchResult actual = symmetric.search(engine);
+				assertEquals(expected.getScore(), actual.getScore());
+
+				// the move from the canonical table must be legal and keep
+				// the value.
+				assertTrue(engine.place(actual.getX(), actual.getY()));
+				engine.undo();
+
+				int cell = random.nextInt(9);
+				while (!engine.place(cell % 3, cell / 3)) {
+					cell = (cell + 1) % 9;
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.ConsoleRenderer;
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeConsole;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+
+/**
+ * Test cases for {@link ConsoleRenderer}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class ConsoleRendererTest {
+
+	private static final String ESC = "\u001b[";
+
+	/**
+	 * Counts the writes, to check that a frame is written at once.
+	 */
+	private static class CountingOutputStream extends ByteArrayOutputStream {
+
+		int writes;
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			writes++;
+			super.write(b, off, len);
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			writes++;
+			super.write(b);
+		}
+
+		String take() {
+			String s = toString();
+			reset();
+			return s;
+		}
+
+	}
+
+	/**
+	 * A frame is the same text as drawn by the console, in one write.
+	 */
+	@Test
+	public void plainFrame() throws IOException {
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		engine.place(1, 1);
+		engine.place(0, 2);
+
+		CountingOutputStream out = new CountingOutputStream();
+		new ConsoleRenderer(engine, out, false).render();
+
+		final StringBuilder expected = new StringBuilder();
+		new TicTacToeConsole(engine) {
+			@Override
+			protected void println(Object o) {
+				expected.append(o).append('\n');
+			}
+		}.drawUI();
+
+		assertEquals(1, out.writes);
+		assertEquals(expected.toString(), out.toString());
+		assertEquals("Current player: O\n. . .\n. O .\nX . .\n\n",
+				out.toString());
+	}
+
+	/**
+	 * After the first frame, only the changed cells and the player are
+	 * redrawn.
+	 */
+	@Test
+	public void ansiChanges() throws IOException {
+
+		KInARowEngine engine = new KInARowEngine(12, 10, 4);
+		CountingOutputStream out = new CountingOutputStream();
+		ConsoleRenderer renderer = new ConsoleRenderer(engine, out, true);
+
+		renderer.render();
+		String first = out.take();
+		assertTrue(first.startsWith(ESC + "H" + ESC + "2J"
+				+ "Current player: O\n"));
+
+		engine.place(10, 8);
+		renderer.render();
+		assertEquals(ESC + "1;17HX" + ESC + "10;21HO" + ESC + "13;1H" + ESC
+				+ "J", out.take());
+
+		// nothing changed: the prompts below the board are cleared.
+		renderer.render();
+		assertEquals(ESC + "13;1H" + ESC + "J", out.take());
+
+		engine.restart();
+		renderer.render();
+		assertEquals(ESC + "1;17HO" + ESC + "10;21H." + ESC + "13;1H" + ESC
+				+ "J", out.take());
+
+		renderer.invalidate();
+		renderer.render();
+		assertEquals(first, out.take());
+		assertEquals(5, out.writes);
+	}
+
+}
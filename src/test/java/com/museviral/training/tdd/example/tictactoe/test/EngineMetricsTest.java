@@ -0,0 +1,144 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.ai.MonteCarloPlayer;
+import com.museviral.training.tdd.example.tictactoe.ai.ParallelSolver;
+import com.museviral.training.tdd.example.tictactoe.ai.TicTacToeSolver;
+import com.museviral.training.tdd.example.tictactoe.ai.TranspositionTable;
+import com.museviral.training.tdd.example.tictactoe.metrics.EngineMetrics;
+
+/**
+ * Test cases for {@link EngineMetrics}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class EngineMetricsTest {
+
+	private static final String[] ATTRIBUTES = { "Placed",
+			"RejectedOutOfBounds", "RejectedOccupied", "RejectedGameOver",
+			"CircleWins", "CrossWins", "Draws", "Restarts", "WinCheckCount" };
+
+	/**
+	 * Play a won game and a draw, with a rejected move of each kind, on each
+	 * engine.
+	 */
+	private static void play(TicTacToeEngine engine) {
+
+		engine.place(3, 0);
+		for (int cell : new int[] { 0, 1, 4, 2, 8 }) {
+			engine.place(cell % 3, cell / 3);
+		}
+		engine.place(1, 1);
+		engine.place(2, 1);
+
+		engine.restart();
+		for (int cell : new int[] { 4, 0, 2, 6, 3, 5, 1, 7, 8 }) {
+			engine.place(cell % 3, cell / 3);
+		}
+	}
+
+	@Test
+	public void disabledByDefault() {
+
+		assertFalse(EngineMetrics.ENABLED);
+
+		play(new TicTacToeEngine());
+		assertEquals(0, EngineMetrics.get().getPlaced());
+		assertEquals(0, EngineMetrics.get().getWinCheckCount());
+	}
+
+	/**
+	 * A process with the metrics enabled exports them over JMX.
+	 */
+	@Test
+	public void exportedOverJmx() throws Exception {
+
+		String java = System.getProperty("java.home") + File.separator + "bin"
+				+ File.separator + "java";
+		Process process = new ProcessBuilder(java, "-D"
+				+ EngineMetrics.PROPERTY + "=true", "-cp",
+				System.getProperty("java.class.path"),
+				EngineMetricsTest.class.getName()).redirectErrorStream(true)
+				.start();
+
+		BufferedReader output = new BufferedReader(new InputStreamReader(
+				process.getInputStream()));
+		try {
+			// two engines, of 14 accepted moves with 3 rejected ones each.
+			assertEquals("28 2 2 2 2 0 2 2 28", output.readLine());
+			assertTrue(Long.parseLong(output.readLine()) > 0);
+
+			// one more move, then searches, a copy and a redo count nothing.
+			assertEquals("29 2 2 2 2 0 2 2 29", output.readLine());
+			assertEquals("29 2 2 2 2 0 2 2 29", output.readLine());
+		} finally {
+			process.waitFor();
+		}
+	}
+
+	/**
+	 * The process started by {@link #exportedOverJmx()}: it plays, then
+	 * prints the metrics read over JMX, before and after searching a game.
+	 */
+	public static void main(String[] args) throws Exception {
+
+		play(new TicTacToeEngine());
+		play(new BitboardTicTacToeEngine());
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(EngineMetrics.NAME);
+
+		System.out.println(attributes(server, name));
+		System.out.println(server.getAttribute(name, "MoveNanosMax"));
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		engine.place(1, 1);
+		System.out.println(attributes(server, name));
+
+		new TicTacToeSolver().search(engine);
+		new ParallelSolver(ForkJoinPool.commonPool(), new TranspositionTable(
+				16)).search(engine);
+		MonteCarloPlayer player = new MonteCarloPlayer();
+		player.setMaxPlayouts(1000);
+		player.search(engine);
+		engine.copy();
+		engine.undo();
+		engine.redo();
+		System.out.println(attributes(server, name));
+	}
+
+	private static String attributes(MBeanServer server, ObjectName name)
+			throws Exception {
+
+		StringBuilder line = new StringBuilder();
+		for (String attribute : ATTRIBUTES) {
+			if (line.length() > 0) {
+				line.append(' ');
+			}
+			line.append(server.getAttribute(name, attribute));
+		}
+
+		return line.toString();
+	}
+
+}
@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.EnginePool;
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.event.GameEventAdapter;
+
+/**
+ * Test cases for {@link EnginePool}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class EnginePoolTest {
+
+	@Test
+	public void reusesReleasedEngine() {
+
+		KInARowEngine prototype = new KInARowEngine(7, 6, 4);
+		prototype.place(3, 3);
+
+		EnginePool pool = new EnginePool(prototype, 2);
+
+		TicTacToeEngine engine = pool.acquire();
+		assertNotSame(prototype, engine);
+		assertEquals("a new game", 0, engine.getTokenCount());
+		assertEquals(7, engine.getWidth());
+		assertEquals(4, engine.getWinLength());
+
+		engine.place(0, 0);
+		pool.release(engine);
+
+		TicTacToeEngine again = pool.acquire();
+		assertSame(engine, again);
+		assertEquals("restarted", 0, again.getTokenCount());
+		assertEquals(GameState.InProgress, again.getGameState());
+
+		assertEquals("prototype untouched", 1, prototype.getTokenCount());
+
+	}
+
+	/**
+	 * The next user of a released engine does not play for the listener of
+	 * the previous one, and the pool reports no restart.
+	 */
+	@Test
+	public void releaseForgetsListener() {
+
+		EnginePool pool = new EnginePool(new TicTacToeEngine(), 1);
+		final int[] events = new int[1];
+
+		TicTacToeEngine engine = pool.acquire();
+		engine.setGameEventListener(new GameEventAdapter() {
+			@Override
+			public void placed(int x, int y, Token token, int moveNumber) {
+				events[0]++;
+			}
+
+			@Override
+			public void restarted() {
+				events[0]++;
+			}
+		});
+		engine.setMetricsEnabled(false);
+		engine.place(1, 1);
+		pool.release(engine);
+
+		TicTacToeEngine again = pool.acquire();
+		assertSame(engine, again);
+		again.place(0, 0);
+
+		assertEquals(1, events[0]);
+		assertNull(again.getGameEventListener());
+		assertTrue(again.isMetricsEnabled());
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsOtherKind() {
+
+		EnginePool pool = new EnginePool(new TicTacToeEngine());
+		pool.release(new BitboardTicTacToeEngine());
+
+	}
+
+	/**
+	 * Threads taking and returning engines never share one.
+	 */
+	@Test
+	public void sharedByThreads() throws Exception {
+
+		final EnginePool pool = new EnginePool(new BitboardTicTacToeEngine(), 2);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			@SuppressWarnings("unchecked")
+			Future<Boolean>[] futures = new Future[4];
+			for (int t = 0; t < futures.length; t++) {
+				futures[t] = executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						for (int i = 0; i < 100000; i++) {
+							TicTacToeEngine engine = pool.acquire();
+							if (engine.getTokenCount() != 0)
+								return false;
+							engine.place(1, 1);
+							engine.place(0, 0);
+							if (engine.getTokenCount() != 2)
+								return false;
+							pool.release(engine);
+						}
+						return true;
+					}
+				});
+			}
+
+			for (Future<Boolean> future : futures) {
+				assertTrue(future.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
+}
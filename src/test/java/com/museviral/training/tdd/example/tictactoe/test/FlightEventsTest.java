@@ -0,0 +1,165 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.museviral.training.tdd.example.tictactoe.ConsoleRenderer;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.ai.ParallelSolver;
+import com.museviral.training.tdd.example.tictactoe.ai.TicTacToeSolver;
+import com.museviral.training.tdd.example.tictactoe.ai.TranspositionTable;
+import com.museviral.training.tdd.example.tictactoe.jfr.FlightEvents;
+
+/**
+ * Test cases for the flight recorder events.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class FlightEventsTest {
+
+	private static final String PREFIX = "com.museviral.tictactoe.";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Play a few moves, a search, a frame, a position entered and a
+	 * restart, and count the events of the game recorded.
+	 */
+	private Map<String, Integer> record(Recording recording)
+			throws IOException {
+
+		recording.start();
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		engine.place(1, 1);
+		engine.place(1, 1);
+		engine.place(0, 0);
+		new TicTacToeSolver().search(engine);
+		new ConsoleRenderer(engine, new ByteArrayOutputStream(), false)
+				.render();
+		new TicTacToeEngine().setPosition(engine.getPosition());
+		engine.restart();
+
+		return stop(recording);
+	}
+
+	/**
+	 * Count the events of the game in a recording.
+	 */
+	private Map<String, Integer> stop(Recording recording) throws IOException {
+
+		recording.stop();
+		File file = folder.newFile();
+		recording.dump(file.toPath());
+		recording.close();
+
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+		for (RecordedEvent event : events) {
+			String name = event.getEventType().getName();
+			if (!name.startsWith(PREFIX))
+				continue;
+
+			assertEquals(FlightEvents.CATEGORY, event.getEventType()
+					.getCategoryNames().get(0));
+
+			Integer count = counts.get(name.substring(PREFIX.length()));
+			counts.put(name.substring(PREFIX.length()), count == null ? 1
+					: count + 1);
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Returns a recording with the settings of the game.
+	 */
+	private static Recording gameRecording() throws IOException,
+			ParseException {
+
+		Reader settings = new InputStreamReader(
+				FlightEvents.class.getResourceAsStream("tictactoe.jfc"),
+				"UTF-8");
+		try {
+			return new Recording(Configuration.create(settings));
+		} finally {
+			settings.close();
+		}
+	}
+
+	@Test
+	public void recorded() throws IOException, ParseException {
+
+		assertTrue(FlightEvents.AVAILABLE);
+
+		Map<String, Integer> counts = record(gameRecording());
+
+		// the moves tried by the search are not recorded.
+		assertEquals(Integer.valueOf(1), counts.get("Restart"));
+		assertEquals(Integer.valueOf(1), counts.get("Frame"));
+		assertEquals(Integer.valueOf(3), counts.get("Place"));
+		assertEquals(Integer.valueOf(2), counts.get("WinCheck"));
+		assertTrue(counts.get("SearchIteration") >= 1);
+	}
+
+	/**
+	 * A search records its iterations, but not the moves it tries.
+	 */
+	@Test
+	public void searchRecordsNoMoves() throws IOException, ParseException {
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		engine.place(1, 1);
+
+		Recording recording = gameRecording();
+		recording.start();
+		new TicTacToeSolver().search(engine);
+		new ParallelSolver(ForkJoinPool.commonPool(), new TranspositionTable(
+				16)).search(engine);
+		engine.copy();
+		Map<String, Integer> counts = stop(recording);
+
+		assertTrue(counts.get("SearchIteration") >= 2);
+		assertNull(counts.get("Place"));
+		assertNull(counts.get("WinCheck"));
+	}
+
+	/**
+	 * The events are not in a recording which does not ask for them.
+	 */
+	@Test
+	public void disabledByDefault() throws IOException, ParseException {
+
+		Recording recording = new Recording(
+				Configuration.getConfiguration("profile"));
+
+		assertTrue(record(recording).isEmpty());
+	}
+
+}
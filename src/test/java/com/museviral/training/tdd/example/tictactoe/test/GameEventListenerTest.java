@@ -0,0 +1,271 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.ai.TicTacToeSolver;
+import com.museviral.training.tdd.example.tictactoe.event.GameEventAdapter;
+import com.museviral.training.tdd.example.tictactoe.event.GameEventListener;
+import com.museviral.training.tdd.example.tictactoe.event.RingBufferDispatcher;
+
+/**
+ * Test cases for the {@link GameEventListener} of the engine and for
+ * {@link RingBufferDispatcher}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GameEventListenerTest {
+
+	/**
+	 * Writes the events as text.
+	 */
+	private static class Recorder implements GameEventListener {
+
+		final StringBuilder events = new StringBuilder();
+
+		@Override
+		public void placed(int x, int y, Token token, int moveNumber) {
+			events.append(token).append(' ').append(x).append(',').append(y)
+					.append(" #").append(moveNumber).append('\n');
+		}
+
+		@Override
+		public void won(Token winner, int moves) {
+			events.append("won ").append(winner).append(" #").append(moves)
+					.append('\n');
+		}
+
+		@Override
+		public void drawn(int moves) {
+			events.append("drawn #").append(moves).append('\n');
+		}
+
+		@Override
+		public void restarted() {
+			events.append("restarted\n");
+		}
+
+	}
+
+	private static void playRandomGames(TicTacToeEngine engine, int games,
+			long seed) {
+
+		SplittableRandom random = new SplittableRandom(seed);
+		int width = engine.getWidth(), height = engine.getHeight();
+		for (int game = 0; game < games; game++) {
+			engine.restart();
+			while (engine.getGameState() != GameState.Complete) {
+				engine.place(random.nextInt(width), random.nextInt(height));
+			}
+		}
+	}
+
+	@Test
+	public void synchronous() {
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		Recorder recorder = new Recorder();
+		engine.setGameEventListener(recorder);
+
+		engine.place(0, 0);
+		engine.place(0, 0);
+		engine.place(1, 0);
+		engine.place(1, 1);
+		engine.place(2, 0);
+		engine.place(2, 2);
+		engine.place(0, 2);
+		engine.restart();
+
+		assertEquals("CIRCLE 0,0 #1\n" //
+				+ "CROSS 1,0 #2\n" //
+				+ "CIRCLE 1,1 #3\n" //
+				+ "CROSS 2,0 #4\n" //
+				+ "CIRCLE 2,2 #5\n" //
+				+ "won CIRCLE #5\n" //
+				+ "restarted\n", recorder.events.toString());
+
+		// a drawn game, and its last move taken back and played again.
+		recorder.events.setLength(0);
+		for (int cell : new int[] { 4, 0, 2, 6, 3, 5, 1, 7, 8 }) {
+			engine.place(cell % 3, cell / 3);
+		}
+		engine.undo();
+		engine.redo();
+		assertTrue(recorder.events.toString().endsWith(
+				"CIRCLE 2,2 #9\ndrawn #9\nCIRCLE 2,2 #9\ndrawn #9\n"));
+
+		engine.setGameEventListener(null);
+		engine.restart();
+		assertTrue(recorder.events.toString().endsWith("drawn #9\n"));
+	}
+
+	/**
+	 * The moves tried by a search on the engine of the game are not sent.
+	 */
+	@Test
+	public void searchSendsNothing() {
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		engine.place(1, 1);
+
+		Recorder recorder = new Recorder();
+		engine.setGameEventListener(recorder);
+		new TicTacToeSolver().search(engine);
+
+		assertEquals("", recorder.events.toString());
+		assertEquals(recorder, engine.getGameEventListener());
+	}
+
+	/**
+	 * Entering a position is not a restart, and its tokens are not moves.
+	 */
+	@Test
+	public void setPositionSendsNothing() {
+
+		TicTacToeEngine other = new TicTacToeEngine();
+		other.place(1, 1);
+		other.place(0, 0);
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		Recorder recorder = new Recorder();
+		engine.setGameEventListener(recorder);
+		engine.setPosition(other.getPosition());
+
+		assertEquals("", recorder.events.toString());
+		assertEquals(2, engine.getTokenCount());
+	}
+
+	/**
+	 * The dispatcher sends the same events as the engine, in order.
+	 */
+	@Test
+	public void ringBuffer() {
+
+		Recorder expected = new Recorder();
+		KInARowEngine engine = new KInARowEngine(9, 9, 4);
+		engine.setGameEventListener(expected);
+		playRandomGames(engine, 2000, 3);
+
+		Recorder actual = new Recorder();
+		RingBufferDispatcher dispatcher = new RingBufferDispatcher(actual,
+				1 << 20);
+		engine = new KInARowEngine(9, 9, 4);
+		engine.setGameEventListener(dispatcher);
+		playRandomGames(engine, 2000, 3);
+		dispatcher.close();
+
+		assertEquals(0, dispatcher.getDropped());
+		assertEquals(expected.events.toString(), actual.events.toString());
+	}
+
+	/**
+	 * A blocked listener does not block the game: the events which do not
+	 * fit in the buffer are dropped.
+	 */
+	@Test
+	public void slowListener() throws InterruptedException {
+
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final int[] received = new int[1];
+
+		RingBufferDispatcher dispatcher = new RingBufferDispatcher(
+				new GameEventAdapter() {
+					@Override
+					public void restarted() {
+						blocked.countDown();
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						received[0]++;
+					}
+				}, 100);
+		assertEquals(128, dispatcher.getCapacity());
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		engine.setGameEventListener(dispatcher);
+		engine.restart();
+		blocked.await();
+
+		for (int i = 0; i < 1000; i++) {
+			engine.restart();
+		}
+		release.countDown();
+		dispatcher.close();
+
+		assertEquals(1001, received[0] + dispatcher.getDropped());
+		assertTrue(dispatcher.getDropped() >= 1000 - 128);
+	}
+
+	/**
+	 * An event published after a long idle time is still sent soon.
+	 */
+	@Test
+	public void afterIdleTime() throws InterruptedException {
+
+		final CountDownLatch received = new CountDownLatch(2);
+		RingBufferDispatcher dispatcher = new RingBufferDispatcher(
+				new GameEventAdapter() {
+					@Override
+					public void restarted() {
+						received.countDown();
+					}
+				}, 16);
+
+		dispatcher.restarted();
+		Thread.sleep(100);
+		dispatcher.restarted();
+
+		assertTrue(received.await(100, TimeUnit.MILLISECONDS));
+		dispatcher.close();
+	}
+
+	/**
+	 * Every event published while the dispatcher is closed is either sent or
+	 * counted as dropped.
+	 */
+	@Test
+	public void closeWhilePublishing() throws InterruptedException {
+
+		final int[] received = new int[1];
+		final RingBufferDispatcher dispatcher = new RingBufferDispatcher(
+				new GameEventAdapter() {
+					@Override
+					public void restarted() {
+						received[0]++;
+					}
+				}, 1 << 10);
+
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < 200000; i++) {
+					dispatcher.restarted();
+				}
+			}
+		});
+		producer.start();
+		Thread.sleep(5);
+		dispatcher.close();
+		producer.join();
+
+		assertEquals(200000, received[0] + dispatcher.getDropped());
+	}
+
+}
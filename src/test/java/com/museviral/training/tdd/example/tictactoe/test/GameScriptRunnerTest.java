@@ -0,0 +1,164 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeConsole;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.sim.GameScriptRunner;
+
+/**
+ * Test cases for {@link GameScriptRunner}, and for the console reading a
+ * script of moves.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GameScriptRunnerTest {
+
+	private static String run(TicTacToeEngine engine, String script)
+			throws IOException {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new GameScriptRunner(engine).run(
+				new ByteArrayInputStream(script.getBytes()), out);
+		return out.toString();
+	}
+
+	@Test
+	public void results() throws IOException {
+
+		String script = "# O wins on the diagonal\n" //
+				+ "1,1 2,1 2,2 3,1 3,3\n" //
+				+ "\n" //
+				+ "2,2 1,1 3,1 1,3 1,2 3,2 2,1 2,3 3,3 # draw\r\n" //
+				+ "2,2  1,1\t3,1\n" //
+				+ "1,1 1,1 2,2\n" //
+				+ "1,1 4,1\n" //
+				+ "1,1 2,1 2,2 3,1 3,3 1,3\n" //
+				+ "1,1 2;1\n" //
+				+ "1,1 2,\n" //
+				+ "1,1,1\n" //
+				+ ",5 1,1\n" //
+				+ ",\n" //
+				+ "3,3 1,1";
+
+		assertEquals("2 O 5\n" //
+				+ "4 draw 9\n" //
+				+ "5 open 3\n" //
+				+ "6 illegal 1\n" //
+				+ "7 illegal 1\n" //
+				+ "8 illegal 5\n" //
+				+ "9 syntax 1\n" //
+				+ "10 syntax 1\n" //
+				+ "11 syntax 0\n" //
+				+ "12 syntax 0\n" //
+				+ "13 syntax 0\n" //
+				+ "14 open 2\n", run(new TicTacToeEngine(), script));
+	}
+
+	/**
+	 * Random games of a larger board end the same as when played directly.
+	 */
+	@Test
+	public void randomGames() throws IOException {
+
+		SplittableRandom random = new SplittableRandom(11);
+		StringBuilder script = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		KInARowEngine engine = new KInARowEngine(9, 9, 4);
+
+		for (int game = 1; game <= 1000; game++) {
+
+			engine.restart();
+			while (engine.getGameState() != GameState.Complete) {
+				int x = random.nextInt(9), y = random.nextInt(9);
+				if (engine.place(x, y)) {
+					script.append(x + 1).append(',').append(y + 1).append(' ');
+				}
+			}
+			script.append('\n');
+
+			expected.append(game).append(' ');
+			if (engine.getWinner() == null) {
+				expected.append("draw");
+			} else {
+				expected.append(engine.getWinner() == TicTacToeEngine.Token.CROSS ? "X"
+						: "O");
+			}
+			expected.append(' ').append(engine.getTokenCount()).append('\n');
+		}
+
+		assertEquals(expected.toString(),
+				run(new KInARowEngine(9, 9, 4), script.toString()));
+	}
+
+	/**
+	 * The moves piped to the console are all read, although the reader reads
+	 * ahead.
+	 */
+	@Test
+	public void consoleInput() {
+
+		InputStream stdin = System.in;
+		System.setIn(new ByteArrayInputStream("2\n2\n1\n1\n3\n1\n".getBytes()));
+		try {
+			TestConsole console = new TestConsole();
+			int[] moves = new int[6];
+			for (int i = 0; i < 6; i += 2) {
+				moves[i] = console.readX();
+				moves[i + 1] = console.readY();
+			}
+			assertEquals("[2, 2, 1, 1, 3, 1]",
+					Arrays.toString(moves));
+			assertEquals(false, console.askNewGame());
+		} finally {
+			System.setIn(stdin);
+		}
+	}
+
+	private static class TestConsole extends TicTacToeConsole {
+
+		TestConsole() {
+			super(new TicTacToeEngine());
+		}
+
+		@Override
+		protected int readX() {
+			return super.readX();
+		}
+
+		@Override
+		protected int readY() {
+			return super.readY();
+		}
+
+		@Override
+		protected boolean askNewGame() {
+			return super.askNewGame();
+		}
+
+		@Override
+		protected void print(Object o) {
+		}
+
+		@Override
+		protected void println(Object o) {
+		}
+
+	}
+
+}
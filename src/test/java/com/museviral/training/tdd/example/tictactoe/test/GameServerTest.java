@@ -0,0 +1,159 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.server.GameServer;
+import com.museviral.training.tdd.example.tictactoe.server.GameSessionRegistry;
+import com.museviral.training.tdd.example.tictactoe.server.LoadTestClient;
+
+/**
+ * Test cases for {@link GameServer}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GameServerTest {
+
+	private GameSessionRegistry registry;
+
+	private GameServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		registry = new GameSessionRegistry();
+		server = new GameServer(registry, 0);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.close();
+	}
+
+	private static void send(OutputStream out, String line) throws IOException {
+		out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+		out.flush();
+	}
+
+	@Test
+	public void playOneGame() throws IOException {
+
+		Socket socket = new Socket("localhost", server.getPort());
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), StandardCharsets.US_ASCII));
+			OutputStream out = socket.getOutputStream();
+
+			assertTrue(in.readLine().matches("GAME \\d+ 3 3"));
+			assertEquals("BOARD ... ... ...", in.readLine());
+			assertEquals("TURN O", in.readLine());
+
+			send(out, "1 1");
+			assertEquals("BOARD ... .O. ...", in.readLine());
+			assertEquals("TURN X", in.readLine());
+
+			send(out, "1 1");
+			assertEquals("ERROR ILLEGAL", in.readLine());
+			assertEquals("TURN X", in.readLine());
+
+			send(out, "hello");
+			assertEquals("ERROR SYNTAX", in.readLine());
+			assertEquals("TURN X", in.readLine());
+
+			send(out, "MOVE 0 0");
+			assertEquals("BOARD X.. .O. ...", in.readLine());
+			in.readLine();
+			send(out, "1 0");
+			in.readLine();
+			in.readLine();
+			send(out, "2 0");
+			in.readLine();
+			in.readLine();
+			send(out, "1 2");
+			assertEquals("BOARD XOX .O. .O.", in.readLine());
+			assertEquals("RESULT WIN O", in.readLine());
+			assertEquals("AGAIN?", in.readLine());
+
+			send(out, "y");
+			assertEquals("BOARD ... ... ...", in.readLine());
+			assertEquals("TURN O", in.readLine());
+
+			send(out, "QUIT");
+			assertEquals("BYE", in.readLine());
+			assertEquals(null, in.readLine());
+		} finally {
+			socket.close();
+		}
+
+	}
+
+	/**
+	 * Playing connections next to idle ones: every game ends, and every
+	 * session is closed with its connection.
+	 */
+	@Test
+	public void manyConnections() throws Exception {
+
+		LoadTestClient client = new LoadTestClient("localhost",
+				server.getPort());
+		client.run(200, 50, 20);
+
+		assertEquals(0, client.getFailures());
+		assertEquals(50 * 20, client.getGames());
+		assertTrue(client.getMoves() >= 50 * 20 * 5);
+
+		// the server notices the closed sockets on its own time.
+		for (int i = 0; i < 100 && registry.size() > 0; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(0, registry.size());
+		assertEquals(0, server.getConnectionCount());
+
+	}
+
+	/**
+	 * Closing the server closes the connections it just accepted, even the
+	 * ones which are not served yet.
+	 */
+	@Test
+	public void closeEndsConnections() throws IOException {
+
+		Socket[] sockets = new Socket[20];
+		for (int i = 0; i < sockets.length; i++) {
+			sockets[i] = new Socket("localhost", server.getPort());
+			sockets[i].setSoTimeout(5000);
+		}
+		server.close();
+
+		for (Socket socket : sockets) {
+			try {
+				InputStream in = socket.getInputStream();
+				while (in.read() >= 0) {
+					// the greeting and the board, if it was served.
+				}
+			} catch (SocketException e) {
+				// reset by the server.
+			} finally {
+				socket.close();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,192 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.Position;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.server.GameSession;
+import com.museviral.training.tdd.example.tictactoe.server.GameSessionRegistry;
+import com.museviral.training.tdd.example.tictactoe.server.MoveStatus;
+
+/**
+ * Test cases for {@link GameSessionRegistry}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GameSessionRegistryTest {
+
+	@Test
+	public void playOneGame() {
+
+		GameSessionRegistry registry = new GameSessionRegistry();
+		long id = registry.create().getId();
+
+		assertEquals(MoveStatus.ACCEPTED, registry.play(id, Token.CIRCLE, 0, 0));
+		assertEquals(MoveStatus.WRONG_TURN,
+				registry.play(id, Token.CIRCLE, 1, 0));
+		assertEquals(MoveStatus.ILLEGAL, registry.play(id, Token.CROSS, 0, 0));
+		assertEquals(MoveStatus.ILLEGAL, registry.play(id, Token.CROSS, 3, 0));
+		assertEquals(MoveStatus.ACCEPTED, registry.play(id, null, 0, 1));
+		registry.play(id, null, 1, 0);
+		registry.play(id, null, 1, 1);
+		assertEquals(MoveStatus.ACCEPTED, registry.play(id, null, 2, 0));
+
+		Position position = registry.getPosition(id);
+		assertEquals(GameState.Complete, position.getGameState());
+		assertEquals(Token.CIRCLE, position.getWinner());
+		assertEquals(MoveStatus.GAME_OVER, registry.play(id, null, 2, 2));
+
+		assertTrue(registry.get(id).restart());
+		assertEquals(0, registry.getPosition(id).getTokenCount());
+
+	}
+
+	@Test
+	public void closeGame() {
+
+		GameSessionRegistry registry = new GameSessionRegistry();
+		GameSession session = registry.create();
+		long id = session.getId();
+
+		assertEquals(1, registry.size());
+		assertTrue(registry.close(id));
+		assertFalse(registry.close(id));
+		assertEquals(0, registry.size());
+
+		assertNull(registry.get(id));
+		assertNull(registry.getPosition(id));
+		assertEquals(MoveStatus.UNKNOWN_GAME, registry.play(id, null, 0, 0));
+
+		// a thread still holding the session cannot use its old engine.
+		assertTrue(session.isClosed());
+		assertEquals(MoveStatus.UNKNOWN_GAME, session.play(null, 0, 0));
+
+	}
+
+	/**
+	 * Threads race to play the same token in one game: every turn is won by
+	 * exactly one of them.
+	 */
+	@Test
+	public void oneMovePerTurn() throws Exception {
+
+		final GameSessionRegistry registry = new GameSessionRegistry();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			for (int game = 0; game < 200; game++) {
+
+				final long id = registry.create().getId();
+				final AtomicInteger accepted = new AtomicInteger();
+
+				@SuppressWarnings("unchecked")
+				Future<Void>[] futures = new Future[4];
+				for (int t = 0; t < futures.length; t++) {
+					final int cell = t;
+					futures[t] = executor.submit(new Callable<Void>() {
+						@Override
+						public Void call() {
+							if (registry.play(id, Token.CIRCLE, cell % 3,
+									cell / 3) == MoveStatus.ACCEPTED)
+								accepted.incrementAndGet();
+							return null;
+						}
+					});
+				}
+				for (Future<Void> future : futures) {
+					future.get();
+				}
+
+				assertEquals(1, accepted.get());
+				assertEquals(1, registry.getPosition(id).getTokenCount());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
+	/**
+	 * Many threads play random moves in 100 000 games; every game stays a
+	 * game of alternating moves.
+	 */
+	@Test
+	public void manySessions() throws Exception {
+
+		final GameSessionRegistry registry = new GameSessionRegistry(
+				new BitboardTicTacToeEngine());
+		final int sessions = 100000;
+		for (int i = 0; i < sessions; i++) {
+			registry.create();
+		}
+		assertEquals(sessions, registry.size());
+
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			@SuppressWarnings("unchecked")
+			Future<Void>[] futures = new Future[threads];
+			for (int t = 0; t < threads; t++) {
+				final SplittableRandom random = new SplittableRandom(t);
+				futures[t] = executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						for (int i = 0; i < 200000; i++) {
+							int cell = random.nextInt(9);
+							registry.play(1 + random.nextInt(sessions), null,
+									cell % 3, cell / 3);
+						}
+						return null;
+					}
+				});
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		long moves = 0;
+		for (long id = 1; id <= sessions; id++) {
+
+			Position position = registry.getPosition(id);
+			int circles = 0;
+			int crosses = 0;
+			for (int cell = 0; cell < 9; cell++) {
+				Token token = position.getToken(cell % 3, cell / 3);
+				if (token == Token.CIRCLE) {
+					circles++;
+				} else if (token == Token.CROSS) {
+					crosses++;
+				}
+			}
+
+			assertTrue(circles == crosses || circles == crosses + 1);
+			moves += circles + crosses;
+		}
+
+		assertTrue(moves > 0);
+
+	}
+
+}
@@ -0,0 +1,392 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.Position;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.journal.JournalReplayer;
+import com.museviral.training.tdd.example.tictactoe.server.GameSession;
+import com.museviral.training.tdd.example.tictactoe.server.GameSessionRegistry;
+import com.museviral.training.tdd.example.tictactoe.server.GameSessionStore;
+import com.museviral.training.tdd.example.tictactoe.server.MoveStatus;
+
+/**
+ * Test cases for {@link GameSessionStore}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class GameSessionStoreTest {
+
+	private static final int SESSIONS = 1000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Play random moves, restart finished games, and rarely close a game.
+	 */
+	private static void play(GameSessionRegistry registry, long firstId,
+			int size, SplittableRandom random, int moves) {
+
+		for (int i = 0; i < moves; i++) {
+
+			long id = firstId + random.nextInt(SESSIONS);
+			GameSession session = registry.get(id);
+			if (session == null)
+				continue;
+
+			if (random.nextInt(20000) == 0) {
+				registry.close(id);
+				continue;
+			}
+
+			MoveStatus status = session.play(null, random.nextInt(size),
+					random.nextInt(size));
+			if (status == MoveStatus.GAME_OVER) {
+				session.restart();
+			}
+		}
+	}
+
+	private static void assertSameGames(GameSessionRegistry expected,
+			GameSessionRegistry actual, long lastId) {
+
+		assertEquals(expected.size(), actual.size());
+		for (long id = 1; id <= lastId; id++) {
+			assertEquals(expected.getPosition(id), actual.getPosition(id));
+		}
+	}
+
+	/**
+	 * Games played before and after a snapshot come back; only the records
+	 * after the snapshot are replayed.
+	 */
+	@Test
+	public void recover() throws IOException {
+
+		File directory = folder.newFolder();
+		GameSessionStore store = new GameSessionStore(directory);
+		GameSessionRegistry registry = store.getRegistry();
+
+		for (int i = 0; i < SESSIONS; i++) {
+			registry.create();
+		}
+		SplittableRandom random = new SplittableRandom(5);
+		play(registry, 1, 3, random, 20000);
+
+		registry.close(10);
+		assertEquals(registry.size(), store.snapshot());
+		play(registry, 1, 3, random, 500);
+		registry.close(20);
+		store.close();
+
+		GameSessionStore recovered = new GameSessionStore(directory);
+		try {
+			assertSameGames(registry, recovered.getRegistry(), SESSIONS);
+			assertTrue(recovered.getReplayedRecords() <= 500);
+
+			// new games do not take the ids of the old ones.
+			assertEquals(SESSIONS + 1, recovered.getRegistry().create()
+					.getId());
+		} finally {
+			recovered.close();
+		}
+
+	}
+
+	/**
+	 * Boards which do not fit in a long.
+	 */
+	@Test
+	public void recoverLargeBoards() throws IOException {
+
+		File directory = folder.newFolder();
+		GameSessionStore store = new GameSessionStore(directory,
+				new KInARowEngine(9, 9, 4));
+		GameSessionRegistry registry = store.getRegistry();
+
+		for (int i = 0; i < SESSIONS; i++) {
+			registry.create();
+		}
+		SplittableRandom random = new SplittableRandom(6);
+		play(registry, 1, 9, random, 20000);
+		store.snapshot();
+		play(registry, 1, 9, random, 2000);
+		store.close();
+
+		GameSessionStore recovered = new GameSessionStore(directory,
+				new KInARowEngine(9, 9, 4));
+		try {
+			assertSameGames(registry, recovered.getRegistry(), SESSIONS);
+		} finally {
+			recovered.close();
+		}
+
+	}
+
+	/**
+	 * Snapshots taken while threads play are exact once the journal tail
+	 * is replayed.
+	 */
+	@Test
+	public void snapshotsWhilePlaying() throws Exception {
+
+		File directory = folder.newFolder();
+		final GameSessionStore store = new GameSessionStore(directory);
+		final GameSessionRegistry registry = store.getRegistry();
+		for (int i = 0; i < SESSIONS; i++) {
+			registry.create();
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		final AtomicBoolean done = new AtomicBoolean();
+		try {
+			@SuppressWarnings("unchecked")
+			Future<Void>[] futures = new Future[4];
+			for (int t = 0; t < futures.length; t++) {
+				final SplittableRandom random = new SplittableRandom(t);
+				futures[t] = executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						while (!done.get()) {
+							play(registry, 1, 3, random, 1000);
+						}
+						return null;
+					}
+				});
+			}
+
+			for (int i = 0; i < 10; i++) {
+				store.snapshot();
+			}
+			done.set(true);
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// the process ends without closing the store.
+		GameSessionStore recovered = new GameSessionStore(directory);
+		try {
+			assertSameGames(registry, recovered.getRegistry(), SESSIONS);
+		} finally {
+			recovered.close();
+			store.close();
+		}
+
+	}
+
+	/**
+	 * Games created while snapshots are taken are in the snapshot or
+	 * replayed from the journal: none is taken for a closed one.
+	 */
+	@Test
+	public void createWhileSnapshotting() throws Exception {
+
+		File directory = folder.newFolder();
+		final GameSessionStore store = new GameSessionStore(directory);
+		final GameSessionRegistry registry = store.getRegistry();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		final AtomicBoolean done = new AtomicBoolean();
+		try {
+			@SuppressWarnings("unchecked")
+			Future<Void>[] futures = new Future[4];
+			for (int t = 0; t < futures.length; t++) {
+				final SplittableRandom random = new SplittableRandom(t);
+				futures[t] = executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						while (!done.get()) {
+							GameSession session = registry.create();
+							session.play(null, random.nextInt(3),
+									random.nextInt(3));
+						}
+						return null;
+					}
+				});
+			}
+
+			while (registry.size() < 10 * SESSIONS) {
+				store.snapshot();
+			}
+			done.set(true);
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// every game has a move, and none is closed.
+		GameSessionStore recovered = new GameSessionStore(directory);
+		try {
+			assertSameGames(registry, recovered.getRegistry(), registry.size());
+		} finally {
+			recovered.close();
+			store.close();
+		}
+
+	}
+
+	/**
+	 * A damaged latest snapshot is skipped for the one before.
+	 */
+	@Test
+	public void damagedSnapshot() throws IOException {
+
+		File directory = folder.newFolder();
+		GameSessionStore store = new GameSessionStore(directory);
+		GameSessionRegistry registry = store.getRegistry();
+		for (int i = 0; i < SESSIONS; i++) {
+			registry.create();
+		}
+		SplittableRandom random = new SplittableRandom(7);
+
+		play(registry, 1, 3, random, 5000);
+		store.snapshot();
+		play(registry, 1, 3, random, 5000);
+		store.snapshot();
+		store.close();
+
+		File[] files = new File(directory, "snapshots").listFiles();
+		assertEquals(2, files.length);
+		File latest = files[0].getName().compareTo(files[1].getName()) > 0 ? files[0]
+				: files[1];
+		RandomAccessFile file = new RandomAccessFile(latest, "rw");
+		try {
+			file.setLength(file.length() / 2);
+		} finally {
+			file.close();
+		}
+
+		GameSessionStore recovered = new GameSessionStore(directory);
+		try {
+			assertSameGames(registry, recovered.getRegistry(), SESSIONS);
+			assertTrue(recovered.getReplayedRecords() > 5000 / 2);
+		} finally {
+			recovered.close();
+		}
+
+	}
+
+	/**
+	 * The process is killed while it plays and writes snapshots, so that a
+	 * journal record or a snapshot is likely cut. The recovered games are
+	 * those of a replay of the whole journal.
+	 */
+	@Test
+	public void killedProcess() throws Exception {
+
+		File directory = folder.newFolder();
+
+		for (int run = 0; run < 2; run++) {
+
+			String java = System.getProperty("java.home") + File.separator
+					+ "bin" + File.separator + "java";
+			Process process = new ProcessBuilder(java, "-cp",
+					System.getProperty("java.class.path"),
+					GameSessionStoreTest.class.getName(),
+					directory.getAbsolutePath()).redirectErrorStream(true)
+					.start();
+
+			try {
+				BufferedReader output = new BufferedReader(
+						new InputStreamReader(process.getInputStream()));
+				assertEquals("PLAYING", output.readLine());
+				Thread.sleep(500);
+			} finally {
+				process.destroyForcibly();
+				process.waitFor();
+			}
+
+			GameSessionStore recovered = new GameSessionStore(directory);
+			try {
+				Map<Long, TicTacToeEngine> replayed = JournalReplayer.replay(
+						new File(directory, "journal"), new TicTacToeEngine());
+				assertTrue(replayed.size() > 0);
+
+				GameSessionRegistry registry = recovered.getRegistry();
+				for (Map.Entry<Long, TicTacToeEngine> game : replayed
+						.entrySet()) {
+					assertEquals(game.getValue().getPosition(),
+							registry.getPosition(game.getKey()));
+				}
+
+				// the other games were created without moves.
+				long lastId = registry.create().getId() - 1;
+				for (long id = 1; id <= lastId; id++) {
+					Position position = registry.getPosition(id);
+					if (position != null && !replayed.containsKey(id)) {
+						assertEquals(0, position.getTokenCount());
+					}
+				}
+			} finally {
+				recovered.close();
+			}
+		}
+
+	}
+
+	/**
+	 * The process killed by {@link #killedProcess()}: it plays on 4 threads
+	 * until it is killed, with a snapshot every few milliseconds.
+	 *
+	 * @param args
+	 *            the directory of the store.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		final GameSessionStore store = new GameSessionStore(new File(args[0]));
+		final GameSessionRegistry registry = store.getRegistry();
+
+		final long firstId = registry.create().getId();
+		for (int i = 1; i < SESSIONS; i++) {
+			registry.create();
+		}
+		store.startSnapshots(5);
+
+		for (int t = 0; t < 4; t++) {
+			final SplittableRandom random = new SplittableRandom(
+					System.nanoTime() + t);
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (true) {
+						play(registry, firstId, 3, random, 1000);
+					}
+				}
+			});
+			thread.start();
+		}
+
+		System.out.println("PLAYING");
+		System.out.flush();
+	}
+
+}
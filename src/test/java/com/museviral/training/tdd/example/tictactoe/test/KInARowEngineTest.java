@@ -0,0 +1,176 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+
+/**
+ * Test cases for {@link KInARowEngine}. A 3 x 3 board with 3 in a row must
+ * behave exactly like the classic game, so all requirements of
+ * {@link TicTacToeEngineTest} are run against it as well.
+ *
+ * @author Cyril
+ * @since 0.3.0
+ */
+public class KInARowEngineTest extends TicTacToeEngineTest {
+
+	@Override
+	protected TicTacToeEngine createGame() {
+		return new KInARowEngine(3, 3, 3);
+	}
+
+	/**
+	 * Five in a row on a gomoku board, with the last token placed in the
+	 * middle of the line.
+	 */
+	@Test
+	public void gomoku_WinHorizontalLineFilledFromBothEnds() {
+
+		game = new KInARowEngine(15, 15, 5);
+
+		user_successfully_placed_a_token_at(5, 7); // O
+		user_successfully_placed_a_token_at(0, 0); // X
+		user_successfully_placed_a_token_at(6, 7); // O
+		user_successfully_placed_a_token_at(0, 1); // X
+		user_successfully_placed_a_token_at(8, 7); // O
+		user_successfully_placed_a_token_at(0, 2); // X
+		user_successfully_placed_a_token_at(9, 7); // O
+		user_successfully_placed_a_token_at(0, 3); // X
+
+		assertGameIsInProgress();
+
+		user_successfully_placed_a_token_at(7, 7); // O
+
+		assertWinnerXHasWon(TicTacToeEngine.Token.CIRCLE);
+
+	}
+
+	/**
+	 * Four in a row does not win when five are required, and an opponent token
+	 * breaks the line.
+	 */
+	@Test
+	public void gomoku_BrokenLineDoesNotWin() {
+
+		game = new KInARowEngine(15, 15, 5);
+
+		user_successfully_placed_a_token_at(0, 0); // O
+		user_successfully_placed_a_token_at(4, 4); // X
+		user_successfully_placed_a_token_at(1, 1); // O
+		user_successfully_placed_a_token_at(14, 0); // X
+		user_successfully_placed_a_token_at(2, 2); // O
+		user_successfully_placed_a_token_at(14, 1); // X
+		user_successfully_placed_a_token_at(3, 3); // O
+		user_successfully_placed_a_token_at(14, 2); // X
+		user_successfully_placed_a_token_at(5, 5); // O
+
+		assertGameIsInProgress();
+
+	}
+
+	/**
+	 * Anti-diagonal win touching the edge of a 19 x 19 board.
+	 */
+	@Test
+	public void gomoku_WinAntiDiagonalAtEdge() {
+
+		game = new KInARowEngine(19, 19, 5);
+
+		for (int i = 0; i < 4; i++) {
+			user_successfully_placed_a_token_at(18 - i, i); // O
+			user_successfully_placed_a_token_at(i, 10); // X
+		}
+
+		user_successfully_placed_a_token_at(14, 4); // O
+
+		assertWinnerXHasWon(TicTacToeEngine.Token.CIRCLE);
+
+	}
+
+	/**
+	 * A non-square board, won vertically along its longer side.
+	 */
+	@Test
+	public void rectangular_WinVerticalLine() {
+
+		game = new KInARowEngine(2, 6, 4);
+
+		assertEquals("game width", 2, game.getWidth());
+		assertEquals("game height", 6, game.getHeight());
+
+		for (int y = 2; y < 5; y++) {
+			user_successfully_placed_a_token_at(0, y); // O
+			user_successfully_placed_a_token_at(1, y); // X
+		}
+
+		user_successfully_placed_a_token_at(0, 5); // O
+
+		assertWinnerXHasWon(TicTacToeEngine.Token.CIRCLE);
+
+	}
+
+	/**
+	 * The game is draw once a board is full without a winner.
+	 */
+	@Test
+	public void rectangular_DrawGame() {
+
+		game = new KInARowEngine(4, 2, 3);
+
+		// O X O X
+		// X O X O
+		user_successfully_placed_a_token_at(0, 0); // O
+		user_successfully_placed_a_token_at(1, 0); // X
+		user_successfully_placed_a_token_at(2, 0); // O
+		user_successfully_placed_a_token_at(3, 0); // X
+		user_successfully_placed_a_token_at(1, 1); // O
+		user_successfully_placed_a_token_at(0, 1); // X
+		user_successfully_placed_a_token_at(3, 1); // O
+		user_successfully_placed_a_token_at(2, 1); // X
+
+		assertGameIsDraw();
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void winLengthLargerThanBoardIsRejected() {
+
+		new KInARowEngine(3, 3, 4);
+
+	}
+
+	/**
+	 * Rough guard that a 19 x 19 move stays far below a millisecond.
+	 */
+	@Test
+	public void gomoku_MovesAreFast() {
+
+		KInARowEngine engine = new KInARowEngine(19, 19, 5);
+
+		long start = System.nanoTime();
+		int moves = 0;
+		for (int round = 0; round < 100; round++) {
+			engine.restart();
+			for (int i = 0; i < 19 * 19
+					&& engine.getGameState() == TicTacToeEngine.GameState.InProgress; i++) {
+				// spread the moves so that games last long.
+				int cell = (i * 7) % (19 * 19);
+				if (engine.place(cell % 19, cell / 19))
+					moves++;
+			}
+		}
+		long perMove = (System.nanoTime() - start) / moves;
+
+		assertTrue("a move should take microseconds, took " + perMove + "ns",
+				perMove < 100000);
+
+	}
+
+}
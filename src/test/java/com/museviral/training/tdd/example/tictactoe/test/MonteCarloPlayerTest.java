@@ -0,0 +1,139 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.ai.MonteCarloPlayer;
+import com.museviral.training.tdd.example.tictactoe.ai.MonteCarloResult;
+
+/**
+ * Test cases for {@link MonteCarloPlayer}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class MonteCarloPlayerTest {
+
+	ForkJoinPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * X completes the diagonal.
+	 */
+	@Test
+	public void findsWinOn3x3() {
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		engine.place(0, 0);
+		engine.place(1, 0);
+		engine.place(1, 1);
+		engine.place(2, 0);
+
+		MonteCarloPlayer player = new MonteCarloPlayer(pool, 4096);
+		player.setMaxPlayouts(5000);
+		MonteCarloResult result = player.search(engine);
+
+		assertEquals(2, result.getX());
+		assertEquals(2, result.getY());
+		assertTrue(result.getWinRate() > 0.9);
+
+		assertEquals("engine untouched", 4, engine.getTokenCount());
+		assertEquals(5000, result.getPlayouts());
+
+	}
+
+	/**
+	 * O must block the open four of X on a 15 x 15 board with 5 in a row.
+	 */
+	@Test
+	public void blocksOn15x15() {
+
+		KInARowEngine engine = new KInARowEngine(15, 15, 5);
+		engine.place(7, 7);
+		engine.place(6, 6);
+		engine.place(8, 7);
+		engine.place(6, 8);
+		engine.place(9, 7);
+		engine.place(5, 10);
+		engine.place(10, 7);
+
+		MonteCarloPlayer player = new MonteCarloPlayer(pool, 1 << 18);
+		player.setMaxPlayouts(40000);
+		MonteCarloResult result = player.search(engine);
+
+		assertEquals(7, result.getY());
+		assertTrue(result.getX() == 6 || result.getX() == 11);
+
+		assertEquals("engine untouched", 7, engine.getTokenCount());
+		assertTrue(result.getPlayoutsPerSecond() > 0);
+
+	}
+
+	/**
+	 * A single thread with a seed plays the same move with the same
+	 * statistics.
+	 */
+	@Test
+	public void repeatableWithOneThread() {
+
+		ForkJoinPool single = new ForkJoinPool(1);
+		try {
+			KInARowEngine engine = new KInARowEngine(7, 7, 4);
+			engine.place(3, 3);
+
+			MonteCarloPlayer player = new MonteCarloPlayer(single, 1 << 16);
+			player.setMaxPlayouts(3000);
+			player.setSeed(42);
+
+			MonteCarloResult first = player.search(engine);
+			MonteCarloResult second = player.search(engine);
+
+			assertEquals(first.getX(), second.getX());
+			assertEquals(first.getY(), second.getY());
+			assertEquals(first.getWinRate(), second.getWinRate(), 0);
+			assertEquals(first.getTreeSize(), second.getTreeSize());
+		} finally {
+			single.shutdownNow();
+		}
+
+	}
+
+	@Test
+	public void gameOver() {
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		engine.place(0, 0);
+		engine.place(0, 1);
+		engine.place(1, 0);
+		engine.place(1, 1);
+		engine.place(2, 0);
+
+		MonteCarloResult result = new MonteCarloPlayer(pool, 16)
+				.search(engine);
+
+		assertEquals(-1, result.getX());
+		assertEquals(-1, result.getY());
+
+	}
+
+}
@@ -0,0 +1,354 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.journal.JournalReader;
+import com.museviral.training.tdd.example.tictactoe.journal.JournalReplayer;
+import com.museviral.training.tdd.example.tictactoe.journal.JournalVisitor;
+import com.museviral.training.tdd.example.tictactoe.journal.MoveJournal;
+import com.museviral.training.tdd.example.tictactoe.server.GameSessionRegistry;
+import com.museviral.training.tdd.example.tictactoe.server.MoveStatus;
+
+/**
+ * Test cases for {@link MoveJournal} and {@link JournalReplayer}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class MoveJournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Counts the records, and checks that the moves of each game come in
+	 * the order of their x.
+	 */
+	private static class CountingVisitor implements JournalVisitor {
+
+		final int[] moves;
+
+		int restarts;
+
+		int closes;
+
+		CountingVisitor(int games) {
+			moves = new int[games];
+		}
+
+		@Override
+		public void move(long position, long game, int x, int y, Token token) {
+			assertEquals(moves[(int) game], x);
+			moves[(int) game]++;
+		}
+
+		@Override
+		public void restart(long position, long game) {
+			restarts++;
+		}
+
+		@Override
+		public void close(long position, long game) {
+			closes++;
+		}
+
+	}
+
+	/**
+	 * Random games of a registry, over several segments, come back from
+	 * the journal.
+	 */
+	@Test
+	public void replayRegistry() throws IOException {
+
+		File directory = folder.newFolder();
+		MoveJournal journal = new MoveJournal(directory, 4096, 1);
+		GameSessionRegistry registry = new GameSessionRegistry(
+				new TicTacToeEngine(), journal);
+
+		int sessions = 100;
+		for (int i = 0; i < sessions; i++) {
+			registry.create();
+		}
+
+		SplittableRandom random = new SplittableRandom(1);
+		for (int i = 0; i < 20000; i++) {
+			long id = 1 + random.nextInt(sessions);
+			if (registry.play(id, null, random.nextInt(3), random.nextInt(3)) == MoveStatus.GAME_OVER) {
+				registry.get(id).restart();
+			}
+		}
+		registry.close(7);
+		registry.close(8);
+		journal.close();
+
+		Map<Long, TicTacToeEngine> games = JournalReplayer.replay(directory,
+				new TicTacToeEngine());
+		assertEquals(sessions - 2, games.size());
+		assertNull(games.get(7L));
+
+		for (long id = 1; id <= sessions; id++) {
+			if (id != 7 && id != 8) {
+				assertEquals(registry.getPosition(id), games.get(id)
+						.getPosition());
+			}
+		}
+
+		TicTacToeEngine one = JournalReplayer.replay(directory,
+				new TicTacToeEngine(), 42);
+		assertEquals(registry.getPosition(42), one.getPosition());
+
+	}
+
+	/**
+	 * A journal opened again continues after its last record.
+	 */
+	@Test
+	public void reopen() throws IOException {
+
+		File directory = folder.newFolder();
+		MoveJournal journal = new MoveJournal(directory, 1024, 0);
+		for (int i = 0; i < 100; i++) {
+			journal.appendMove(0, i, 0, Token.CIRCLE);
+		}
+		journal.close();
+
+		journal = new MoveJournal(directory, 1024, 0);
+		assertEquals(100 * MoveJournal.RECORD_SIZE, journal.getPosition());
+		for (int i = 100; i < 150; i++) {
+			journal.appendMove(0, i, 0, Token.CROSS);
+		}
+		journal.appendRestart(0);
+		journal.close();
+
+		CountingVisitor visitor = new CountingVisitor(1);
+		long end = new JournalReader(directory).read(0, visitor);
+		assertEquals(151 * MoveJournal.RECORD_SIZE, end);
+		assertEquals(150, visitor.moves[0]);
+		assertEquals(1, visitor.restarts);
+
+		// reading from a position only sees what follows.
+		visitor = new CountingVisitor(1);
+		visitor.moves[0] = 120;
+		new JournalReader(directory).read(120 * MoveJournal.RECORD_SIZE,
+				visitor);
+		assertEquals(150, visitor.moves[0]);
+
+	}
+
+	/**
+	 * The process ended while a thread was writing a record, after another
+	 * thread wrote the next one: the journal ends before the cut record,
+	 * and the record after it is cleared when the journal is opened again.
+	 */
+	@Test
+	public void cutRecord() throws IOException {
+
+		File directory = folder.newFolder();
+		MoveJournal journal = new MoveJournal(directory, 1024, 0);
+		for (int i = 0; i < 12; i++) {
+			journal.appendMove(0, i, 0, Token.CIRCLE);
+		}
+		journal.close();
+
+		File segment = new File(directory, directory.list()[0]);
+		RandomAccessFile file = new RandomAccessFile(segment, "rw");
+		try {
+			// the header of record 10 is missing.
+			file.seek(10 * MoveJournal.RECORD_SIZE);
+			file.writeLong(0);
+		} finally {
+			file.close();
+		}
+
+		CountingVisitor visitor = new CountingVisitor(1);
+		assertEquals(10 * MoveJournal.RECORD_SIZE,
+				new JournalReader(directory).read(0, visitor));
+		assertEquals(10, visitor.moves[0]);
+
+		journal = new MoveJournal(directory, 1024, 0);
+		assertEquals(10 * MoveJournal.RECORD_SIZE, journal.getPosition());
+		journal.appendMove(0, 10, 0, Token.CIRCLE);
+		journal.close();
+
+		visitor = new CountingVisitor(1);
+		assertEquals(11 * MoveJournal.RECORD_SIZE,
+				new JournalReader(directory).read(0, visitor));
+		assertEquals(11, visitor.moves[0]);
+
+	}
+
+	/**
+	 * The stores of a record reached the disk out of order: its header is
+	 * there but not its coordinates, so the journal ends before it.
+	 */
+	@Test
+	public void missingCoordinates() throws IOException {
+
+		File directory = folder.newFolder();
+		MoveJournal journal = new MoveJournal(directory, 1024, 0);
+		for (int i = 0; i < 12; i++) {
+			journal.appendMove(0, i, 0, Token.CIRCLE);
+		}
+		journal.close();
+
+		File segment = new File(directory, directory.list()[0]);
+		RandomAccessFile file = new RandomAccessFile(segment, "rw");
+		try {
+			file.seek(10 * MoveJournal.RECORD_SIZE + 8);
+			file.writeInt(0);
+		} finally {
+			file.close();
+		}
+
+		CountingVisitor visitor = new CountingVisitor(1);
+		assertEquals(10 * MoveJournal.RECORD_SIZE,
+				new JournalReader(directory).read(0, visitor));
+		assertEquals(10, visitor.moves[0]);
+
+		journal = new MoveJournal(directory, 1024, 0);
+		assertEquals(10 * MoveJournal.RECORD_SIZE, journal.getPosition());
+		journal.close();
+
+	}
+
+	/**
+	 * A thread flushes while another one has taken the slot of a record but
+	 * not written it yet: the flush stops before that record, and the flush
+	 * of the writer covers it.
+	 */
+	@Test
+	public void flushDuringAppend() throws Exception {
+
+		final CountDownLatch parked = new CountDownLatch(1);
+		final CountDownLatch resume = new CountDownLatch(1);
+
+		File directory = folder.newFolder();
+		final MoveJournal journal = new MoveJournal(directory, 64, 0) {
+			@Override
+			protected void write(MappedByteBuffer segment, int offset,
+					long header, int x, int y) {
+				if ((header & MAX_GAME_ID) == 9) {
+					parked.countDown();
+					try {
+						resume.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				super.write(segment, offset, header, x, y);
+			}
+		};
+
+		for (int i = 0; i < 4; i++) {
+			journal.appendMove(0, i, 0, Token.CIRCLE);
+		}
+
+		final long[] flushed = new long[1];
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				journal.appendRestart(9);
+				journal.flush();
+				flushed[0] = journal.getFlushedPosition();
+			}
+		});
+		writer.start();
+		parked.await();
+
+		journal.appendMove(0, 4, 0, Token.CIRCLE);
+		journal.flush();
+		assertEquals(4 * MoveJournal.RECORD_SIZE, journal.getFlushedPosition());
+
+		resume.countDown();
+		writer.join();
+		assertEquals(6 * MoveJournal.RECORD_SIZE, flushed[0]);
+		journal.close();
+
+		CountingVisitor visitor = new CountingVisitor(10);
+		assertEquals(6 * MoveJournal.RECORD_SIZE,
+				new JournalReader(directory).read(0, visitor));
+		assertEquals(5, visitor.moves[0]);
+		assertEquals(1, visitor.restarts);
+
+	}
+
+	/**
+	 * Threads append to their own games: no record is lost, and the records
+	 * of each game keep their order.
+	 */
+	@Test
+	public void concurrentAppends() throws Exception {
+
+		File directory = folder.newFolder();
+		final MoveJournal journal = new MoveJournal(directory, 64 * 1024, 1);
+
+		final int threads = 4;
+		final int records = 50000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			@SuppressWarnings("unchecked")
+			Future<Void>[] futures = new Future[threads];
+			for (int t = 0; t < threads; t++) {
+				final int game = t;
+				futures[t] = executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						for (int i = 0; i < records; i++) {
+							journal.appendMove(game, i, 0, Token.CROSS);
+							if (i % 1000 == 0) {
+								journal.flush();
+							}
+						}
+						return null;
+					}
+				});
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+			journal.close();
+		}
+
+		CountingVisitor visitor = new CountingVisitor(threads);
+		new JournalReader(directory).read(0, visitor);
+		for (int t = 0; t < threads; t++) {
+			assertEquals(records, visitor.moves[t]);
+		}
+
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void appendAfterClose() throws IOException {
+
+		MoveJournal journal = new MoveJournal(folder.newFolder(), 1024, 0);
+		journal.close();
+		journal.appendRestart(1);
+	}
+
+}
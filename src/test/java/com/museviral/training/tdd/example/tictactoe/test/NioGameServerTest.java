@@ -0,0 +1,230 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.metrics.LatencyHistogram;
+import com.museviral.training.tdd.example.tictactoe.server.BinaryProtocol;
+import com.museviral.training.tdd.example.tictactoe.server.GameSessionRegistry;
+import com.museviral.training.tdd.example.tictactoe.server.MoveStatus;
+import com.museviral.training.tdd.example.tictactoe.server.NioGameServer;
+import com.museviral.training.tdd.example.tictactoe.server.NioLoadTestClient;
+
+/**
+ * Test cases for {@link NioGameServer}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class NioGameServerTest {
+
+	private NioGameServer server;
+
+	@After
+	public void tearDown() throws IOException {
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	private static void send(SocketChannel channel, int... bytes)
+			throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+		for (int b : bytes) {
+			buffer.put((byte) b);
+		}
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static ByteBuffer receive(SocketChannel channel, int length)
+			throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0)
+				throw new IOException("closed");
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	@Test
+	public void playOneGame() throws IOException {
+
+		GameSessionRegistry registry = new GameSessionRegistry();
+		server = new NioGameServer(registry, 0, 1);
+
+		SocketChannel channel = SocketChannel.open(new InetSocketAddress(
+				"localhost", server.getPort()));
+		try {
+			ByteBuffer game = receive(channel, 3);
+			assertEquals(BinaryProtocol.GAME, game.get());
+			assertEquals(3, game.get());
+			assertEquals(3, game.get());
+
+			// circle in the centre.
+			send(channel, 4);
+			ByteBuffer placed = receive(channel, 2);
+			assertEquals(BinaryProtocol.PLACED, placed.get());
+			assertEquals(4, placed.get());
+
+			// the same cell, and a cell outside of the board.
+			send(channel, 4, 9);
+			ByteBuffer rejected = receive(channel, 2);
+			assertEquals(BinaryProtocol.REJECTED | MoveStatus.ILLEGAL.ordinal(),
+					rejected.get());
+			assertEquals(BinaryProtocol.REJECTED | MoveStatus.ILLEGAL.ordinal(),
+					rejected.get());
+
+			// several moves in one write; the last one wins the game.
+			send(channel, 0, 1, 2, 7);
+			ByteBuffer replies = receive(channel, 8);
+			assertEquals(BinaryProtocol.PLACED | BinaryProtocol.CROSS,
+					replies.get(0));
+			assertEquals(BinaryProtocol.PLACED, replies.get(2));
+			assertEquals(BinaryProtocol.PLACED | BinaryProtocol.WON,
+					replies.get(6));
+			assertEquals(7, replies.get(7));
+
+			send(channel, 8);
+			assertEquals(BinaryProtocol.REJECTED
+					| MoveStatus.GAME_OVER.ordinal(), receive(channel, 1).get());
+
+			send(channel, BinaryProtocol.RESTART, 8);
+			ByteBuffer restarted = receive(channel, 3);
+			assertEquals(BinaryProtocol.RESTARTED, restarted.get());
+			assertEquals(BinaryProtocol.PLACED, restarted.get());
+
+			assertEquals(1, registry.size());
+			send(channel, BinaryProtocol.QUIT);
+			assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+		} finally {
+			channel.close();
+		}
+
+	}
+
+	/**
+	 * Cells after 127 take two bytes, which may come in separate reads.
+	 */
+	@Test
+	public void largeBoard() throws Exception {
+
+		server = new NioGameServer(new GameSessionRegistry(new KInARowEngine(
+				15, 15, 5)), 0, 1);
+
+		SocketChannel channel = SocketChannel.open(new InetSocketAddress(
+				"localhost", server.getPort()));
+		try {
+			ByteBuffer game = receive(channel, 3);
+			assertEquals(BinaryProtocol.GAME, game.get());
+			assertEquals(15, game.get());
+
+			int cell = 14 * 15 + 3;
+			ByteBuffer move = ByteBuffer.allocate(2);
+			BinaryProtocol.putCell(move, cell);
+			assertEquals(2, move.position());
+
+			send(channel, move.get(0) & 0xFF);
+			Thread.sleep(50);
+			send(channel, move.get(1) & 0xFF);
+
+			ByteBuffer placed = receive(channel, 3);
+			assertEquals(BinaryProtocol.PLACED, placed.get());
+			assertEquals(cell, BinaryProtocol.getCell(placed));
+		} finally {
+			channel.close();
+		}
+
+	}
+
+	@Test
+	public void manyConnections() throws Exception {
+
+		GameSessionRegistry registry = new GameSessionRegistry();
+		server = new NioGameServer(registry, 0, 2);
+
+		NioLoadTestClient client = new NioLoadTestClient("localhost",
+				server.getPort());
+		client.run(500, 20);
+
+		assertEquals(0, client.getFailures());
+		assertEquals(500 * 20, client.getGames());
+		assertTrue(client.getMoves() >= 500 * 20 * 5);
+		assertTrue(client.getLatencies().getCount() >= client.getMoves());
+
+		for (int i = 0; i < 100 && registry.size() > 0; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(0, registry.size());
+		assertEquals(0, server.getConnectionCount());
+
+	}
+
+	/**
+	 * Closing the server closes the connections it just accepted, even the
+	 * ones which are not registered yet.
+	 */
+	@Test
+	public void closeEndsConnections() throws IOException {
+
+		server = new NioGameServer(new GameSessionRegistry(), 0, 2);
+
+		Socket[] sockets = new Socket[20];
+		for (int i = 0; i < sockets.length; i++) {
+			sockets[i] = new Socket("localhost", server.getPort());
+			sockets[i].setSoTimeout(5000);
+		}
+		server.close();
+
+		for (Socket socket : sockets) {
+			try {
+				InputStream in = socket.getInputStream();
+				while (in.read() >= 0) {
+					// the description of the game, if it was registered.
+				}
+			} catch (SocketException e) {
+				// reset by the server.
+			} finally {
+				socket.close();
+			}
+		}
+
+	}
+
+	@Test
+	public void percentiles() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100000; value++) {
+			histogram.record(value * 1000);
+		}
+
+		assertEquals(100000, histogram.getCount());
+		assertEquals(50000000, histogram.getValueAtPercentile(50), 50000000 / 32);
+		assertEquals(99000000, histogram.getValueAtPercentile(99), 99000000 / 32);
+		assertEquals(100000000, histogram.getMax(), 100000000 / 32);
+		assertEquals(1000, histogram.getValueAtPercentile(0), 1000 / 32);
+
+	}
+
+}
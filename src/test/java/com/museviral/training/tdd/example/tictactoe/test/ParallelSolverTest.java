@@ -0,0 +1,144 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.ai.ParallelSolver;
+import com.museviral.training.tdd.example.tictactoe.ai.SearchResult;
+import com.museviral.training.tdd.example.tictactoe.ai.TicTacToeSolver;
+import com.museviral.training.tdd.example.tictactoe.ai.TranspositionTable;
+
+/**
+ * Test cases for {@link ParallelSolver}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class ParallelSolverTest {
+
+	ForkJoinPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * The empty 3 x 3 board is a draw.
+	 */
+	@Test
+	public void emptyBoardIsDraw() {
+
+		ParallelSolver solver = new ParallelSolver(pool,
+				new TranspositionTable(16));
+		solver.setSplitDepth(3);
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		SearchResult result = solver.search(engine);
+
+		assertEquals(0, result.getScore());
+		assertEquals("engine untouched", 0, engine.getTokenCount());
+		assertTrue(result.getNodes() > 0);
+
+	}
+
+	/**
+	 * Solving 4 x 4 positions to the end gives the same values as the serial
+	 * search, and a legal move with that value.
+	 */
+	@Test
+	public void sameResultAsSerialSearch() {
+
+		Random random = new Random(11);
+
+		for (int round = 0; round < 6; round++) {
+
+			KInARowEngine engine = new KInARowEngine(4, 4, 4);
+			for (int i = 0; i < 5; i++) {
+				int cell = random.nextInt(16);
+				while (!engine.place(cell % 4, cell / 4)) {
+					cell = (cell + 1) % 16;
+				}
+			}
+			if (engine.getGameState() != GameState.InProgress)
+				continue;
+
+			SearchResult serial = new TicTacToeSolver(new TranspositionTable(
+					18)).search(engine);
+
+			ParallelSolver parallel = new ParallelSolver(pool,
+					new TranspositionTable(18));
+			parallel.setSplitDepth(4);
+			SearchResult result = parallel.search(engine);
+
+			assertEquals("score of round " + round, serial.getScore(),
+					result.getScore());
+
+			// the parallel move must reach the same value.
+			assertTrue(engine.place(result.getX(), result.getY()));
+			if (engine.getGameState() == GameState.InProgress) {
+				SearchResult reply = new TicTacToeSolver(
+						new TranspositionTable(18)).search(engine);
+				assertEquals(serial.getScore(), adjust(-reply.getScore()));
+			}
+		}
+
+	}
+
+	/**
+	 * One solver searches boards of different sizes in turn; the workers
+	 * follow each new position.
+	 */
+	@Test
+	public void searchesOfDifferentBoards() {
+
+		ParallelSolver parallel = new ParallelSolver(pool,
+				new TranspositionTable(18));
+		parallel.setSplitDepth(3);
+
+		KInARowEngine small = new KInARowEngine(3, 3, 3);
+		small.place(0, 0);
+		KInARowEngine large = new KInARowEngine(4, 4, 4);
+		large.place(1, 1);
+		large.place(2, 1);
+		large.place(1, 2);
+
+		for (TicTacToeEngine engine : new TicTacToeEngine[] { small, large,
+				small, new TicTacToeEngine() }) {
+
+			SearchResult serial = new TicTacToeSolver(new TranspositionTable(
+					18)).search(engine);
+
+			assertEquals(engine.getWidth() + "x" + engine.getHeight(),
+					serial.getScore(), parallel.search(engine).getScore());
+		}
+
+	}
+
+	/**
+	 * The score of the position one ply earlier.
+	 */
+	private static int adjust(int score) {
+		return (score > TicTacToeSolver.WIN_THRESHOLD) ? score - 1
+				: (score < -TicTacToeSolver.WIN_THRESHOLD) ? score + 1 : score;
+	}
+
+}
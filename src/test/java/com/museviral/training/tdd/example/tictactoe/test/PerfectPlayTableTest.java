@@ -0,0 +1,140 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.ai.PerfectPlayTable;
+import com.museviral.training.tdd.example.tictactoe.ai.PerfectPlayTableGenerator;
+import com.museviral.training.tdd.example.tictactoe.ai.SearchResult;
+import com.museviral.training.tdd.example.tictactoe.ai.TicTacToeSolver;
+import com.museviral.training.tdd.example.tictactoe.ai.TranspositionTable;
+
+/**
+ * Test cases for {@link PerfectPlayTable}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class PerfectPlayTableTest {
+
+	PerfectPlayTable table = PerfectPlayTable.getInstance();
+
+	/**
+	 * The bundled resource is up to date with the generator.
+	 */
+	@Test
+	public void resourceMatchesGenerator() throws IOException {
+
+		PerfectPlayTableGenerator generator = new PerfectPlayTableGenerator();
+
+		assertArrayEquals(toBytes(generator.generate()), toBytes(table));
+
+		assertEquals("reachable positions", 5478, generator.getPositionCount());
+		assertEquals("reachable positions", 5478, table.getPositionCount());
+
+	}
+
+	@Test
+	public void readWhatWasWritten() throws IOException {
+
+		byte[] bytes = toBytes(table);
+
+		assertArrayEquals(bytes,
+				toBytes(PerfectPlayTable.read(new ByteArrayInputStream(bytes))));
+
+	}
+
+	@Test
+	public void emptyBoardIsDraw() {
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+
+		assertEquals(PerfectPlayTable.DRAW, table.getOutcome(engine));
+		assertNotEquals(-1, table.getBestMove(engine));
+
+	}
+
+	/**
+	 * Every reachable position agrees with the search, whether indexed from
+	 * the array board or from the bitboard.
+	 */
+	@Test
+	public void agreesWithSolver() {
+
+		TicTacToeSolver solver = new TicTacToeSolver(new TranspositionTable(16));
+
+		int[] visited = new int[1];
+		check(new TicTacToeEngine(), new BitboardTicTacToeEngine(), solver,
+				new boolean[PerfectPlayTable.INDEX_COUNT], visited);
+
+		assertEquals(5478, visited[0]);
+
+	}
+
+	private void check(TicTacToeEngine engine, BitboardTicTacToeEngine bitboard,
+			TicTacToeSolver solver, boolean[] seen, int[] visited) {
+
+		int index = PerfectPlayTable.index(engine);
+		assertEquals("bitboard index", index, PerfectPlayTable.index(bitboard));
+
+		if (seen[index])
+			return;
+		seen[index] = true;
+		visited[0]++;
+
+		int outcome = table.getOutcome(index);
+		int move = table.getBestMove(index);
+
+		if (engine.getGameState() == GameState.Complete) {
+			assertEquals(-1, move);
+			assertEquals(engine.getWinner() == null ? PerfectPlayTable.DRAW
+					: PerfectPlayTable.LOSS, outcome);
+			return;
+		}
+
+		SearchResult result = solver.search(engine);
+		int expected = result.isWin() ? PerfectPlayTable.WIN : result
+				.isLoss() ? PerfectPlayTable.LOSS : PerfectPlayTable.DRAW;
+		assertEquals("outcome of " + index, expected, outcome);
+
+		// the best move keeps the outcome.
+		assertTrue(engine.place(move % 3, move / 3));
+		int after = table.getOutcome(engine);
+		engine.undo();
+		assertEquals("move of " + index, outcome,
+				(after == PerfectPlayTable.DRAW) ? PerfectPlayTable.DRAW
+						: (after == PerfectPlayTable.WIN) ? PerfectPlayTable.LOSS
+								: PerfectPlayTable.WIN);
+
+		for (int cell = 0; cell < 9; cell++) {
+			if (engine.place(cell % 3, cell / 3)) {
+				bitboard.place(cell % 3, cell / 3);
+				check(engine, bitboard, solver, seen, visited);
+				bitboard.undo();
+				engine.undo();
+			}
+		}
+
+	}
+
+	private static byte[] toBytes(PerfectPlayTable table) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		table.write(out);
+		return out.toByteArray();
+	}
+
+}
@@ -0,0 +1,156 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.Position;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * Test cases for {@link Position}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class PositionTest {
+
+	/**
+	 * Large boards keep their cells in an array, and random games survive
+	 * the round trip.
+	 */
+	@Test
+	public void largeBoard() {
+
+		Random random = new Random(3);
+		KInARowEngine engine = new KInARowEngine(15, 15, 5);
+
+		for (int i = 0; i < 60; i++) {
+			engine.place(random.nextInt(15), random.nextInt(15));
+		}
+
+		Position position = engine.getPosition();
+		assertFalse(position.isPacked());
+		assertEquals(engine.getTokenCount(), position.getTokenCount());
+
+		KInARowEngine other = new KInARowEngine(15, 15, 5);
+		other.setPosition(position);
+
+		assertEquals(position, other.getPosition());
+		assertEquals(engine.getPositionHash(), other.getPositionHash());
+		assertEquals(engine.getGameState(), other.getGameState());
+		assertEquals(engine.getWinner(), other.getWinner());
+
+		for (int y = 0; y < 15; y++) {
+			for (int x = 0; x < 15; x++) {
+				assertEquals(engine.getToken(x, y), position.getToken(x, y));
+			}
+		}
+
+	}
+
+	/**
+	 * The packed form is the same whatever the engine.
+	 */
+	@Test
+	public void packedAcrossEngines() {
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		BitboardTicTacToeEngine bitboard = new BitboardTicTacToeEngine();
+
+		for (int cell : new int[] { 4, 0, 8, 2 }) {
+			engine.place(cell % 3, cell / 3);
+			bitboard.place(cell % 3, cell / 3);
+		}
+
+		long packed = engine.getPosition().getPacked();
+		assertEquals(packed, bitboard.getPosition().getPacked());
+
+		Position position = Position.fromPacked(3, 3, packed);
+		assertEquals(Token.CIRCLE, position.getToken(1, 1));
+		assertEquals(Token.CROSS, position.getToken(2, 0));
+		assertNull(position.getToken(1, 0));
+		assertEquals(Token.CIRCLE, position.getNextToken());
+
+		engine.place(1, 0);
+		assertNotEquals(packed, engine.getPosition().getPacked());
+
+	}
+
+	/**
+	 * Positions written to bytes and read back, one after the other.
+	 */
+	@Test
+	public void bytes() {
+
+		TicTacToeEngine small = new TicTacToeEngine();
+		small.place(1, 1);
+		KInARowEngine large = new KInARowEngine(9, 9, 4);
+		large.place(8, 8);
+		large.place(0, 0);
+
+		Position first = small.getPosition();
+		Position second = large.getPosition();
+		assertEquals(8, first.getByteSize());
+		assertEquals(8 + 3 * 8, second.getByteSize());
+
+		ByteBuffer buffer = ByteBuffer.allocate(first.getByteSize()
+				+ second.getByteSize());
+		first.write(buffer);
+		second.write(buffer);
+		assertFalse(buffer.hasRemaining());
+
+		buffer.flip();
+		assertEquals(first, Position.read(buffer, 3, 3));
+		assertEquals(second, Position.read(buffer, 9, 9));
+
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void largeBoardIsNotPacked() {
+		new KInARowEngine(7, 7, 4).getPosition().getPacked();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void otherSize() {
+		new KInARowEngine(4, 4, 3).setPosition(new TicTacToeEngine()
+				.getPosition());
+	}
+
+	/**
+	 * Two circles more than crosses cannot be reached by a game.
+	 */
+	@Test
+	public void unreachablePosition() {
+
+		long packed = Position.fromPacked(3, 3, 0).getPacked();
+		packed |= 1L << 4; // circle on (0, 0)
+		packed |= 1L << 6; // circle on (1, 0)
+
+		TicTacToeEngine engine = new TicTacToeEngine();
+		engine.place(1, 1);
+
+		try {
+			engine.setPosition(Position.fromPacked(3, 3, packed));
+			fail("should be rejected");
+		} catch (IllegalArgumentException e) {
+			// the engine is unchanged.
+			assertEquals(1, engine.getTokenCount());
+		}
+
+	}
+
+}
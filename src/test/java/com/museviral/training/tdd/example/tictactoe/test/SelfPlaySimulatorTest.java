@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.BitboardTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.sim.GreedyStrategy;
+import com.museviral.training.tdd.example.tictactoe.sim.RandomStrategy;
+import com.museviral.training.tdd.example.tictactoe.sim.SelfPlaySimulator;
+import com.museviral.training.tdd.example.tictactoe.sim.SimulationStatistics;
+
+/**
+ * Test cases for {@link SelfPlaySimulator}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class SelfPlaySimulatorTest {
+
+	@Test
+	public void countsEveryGame() throws InterruptedException {
+
+		SelfPlaySimulator simulator = new SelfPlaySimulator(
+				new BitboardTicTacToeEngine(), new RandomStrategy(),
+				new RandomStrategy());
+		simulator.setThreads(3);
+
+		SimulationStatistics statistics = simulator.run(100000, null);
+
+		assertEquals(100000, statistics.getGames());
+		assertEquals(statistics.getGames(), statistics.getCrossWins()
+				+ statistics.getCircleWins() + statistics.getDraws());
+
+		long games = 0;
+		for (int moves = 0; moves <= 9; moves++) {
+			games += statistics.getGamesOfLength(moves);
+		}
+		assertEquals(100000, games);
+		assertEquals("no win before 5 moves", 0,
+				statistics.getGamesOfLength(4));
+
+		// the first player (circle) wins most random games.
+		assertTrue(statistics.getCircleWins() > statistics.getCrossWins());
+
+	}
+
+	/**
+	 * The results only depend on the seed, not on the threads.
+	 */
+	@Test
+	public void reproducible() throws InterruptedException {
+
+		KInARowEngine engine = new KInARowEngine(7, 6, 4);
+
+		SelfPlaySimulator simulator = new SelfPlaySimulator(engine,
+				new RandomStrategy(), new GreedyStrategy());
+		simulator.setSeed(7);
+
+		simulator.setThreads(1);
+		SimulationStatistics single = simulator.run(5000, null);
+		simulator.setThreads(4);
+		SimulationStatistics parallel = simulator.run(5000, null);
+
+		assertEquals(single, parallel);
+
+		simulator.setSeed(8);
+		assertNotEquals(single, simulator.run(5000, null));
+
+		assertEquals("prototype untouched", 0, engine.getTokenCount());
+
+	}
+
+	@Test
+	public void greedyBeatsRandom() throws InterruptedException {
+
+		SimulationStatistics statistics = new SelfPlaySimulator(
+				new TicTacToeEngine(), new GreedyStrategy(),
+				new RandomStrategy()).run(20000, null);
+
+		assertTrue(statistics.getCrossWins() > 2 * statistics.getCircleWins());
+
+	}
+
+	@Test
+	public void streamsStatistics() throws InterruptedException {
+
+		final List<SimulationStatistics> reports = new ArrayList<SimulationStatistics>();
+
+		SelfPlaySimulator simulator = new SelfPlaySimulator(new KInARowEngine(
+				15, 15, 5), new RandomStrategy(), new RandomStrategy());
+		simulator.setReportIntervalMillis(10);
+
+		SimulationStatistics statistics = simulator.run(20000,
+				new Consumer<SimulationStatistics>() {
+					@Override
+					public void accept(SimulationStatistics statistics) {
+						reports.add(statistics);
+					}
+				});
+
+		assertTrue(reports.size() > 1);
+		assertEquals(statistics, reports.get(reports.size() - 1));
+		assertTrue(statistics.getGamesPerSecondPerCore() > 0);
+
+	}
+
+}
@@ -0,0 +1,203 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.SparseBoard;
+import com.museviral.training.tdd.example.tictactoe.SparseTicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+
+/**
+ * Test cases for {@link SparseTicTacToeEngine}.
+ *
+ * @author Cyril
+ * @since 0.3.0
+ */
+public class SparseTicTacToeEngineTest {
+
+	SparseTicTacToeEngine game;
+
+	@Before
+	public void setUp() throws Exception {
+		game = new SparseTicTacToeEngine(5);
+	}
+
+	/**
+	 * Tokens can be placed at any coordinates, including negative ones.
+	 */
+	@Test
+	public void placeAnywhere() {
+
+		assertTrue(game.place(-1000000, 1000000));
+		assertTrue(game.place(Integer.MAX_VALUE, Integer.MIN_VALUE));
+
+		assertEquals(Token.CIRCLE, game.getToken(-1000000, 1000000));
+		assertEquals(Token.CROSS,
+				game.getToken(Integer.MAX_VALUE, Integer.MIN_VALUE));
+		assertNull(game.getToken(1000000, -1000000));
+
+		assertTrue("occupied cell should be rejected",
+				!game.place(-1000000, 1000000));
+
+		assertEquals(Token.CIRCLE, game.getNextToken());
+
+	}
+
+	/**
+	 * Five in a row far away from the origin wins.
+	 */
+	@Test
+	public void winDiagonalAcrossNegativeCoordinates() {
+
+		for (int i = 0; i < 4; i++) {
+			assertTrue(game.place(-2 + i, -2 + i)); // O
+			assertTrue(game.place(500, 500 + 2 * i)); // X
+		}
+
+		assertEquals(TicTacToeEngine.GameState.InProgress, game.getGameState());
+
+		assertTrue(game.place(2, 2)); // O
+
+		assertEquals(TicTacToeEngine.GameState.Complete, game.getGameState());
+		assertEquals(Token.CIRCLE, game.getWinner());
+
+	}
+
+	/**
+	 * A row does not wrap around from {@link Integer#MAX_VALUE} to
+	 * {@link Integer#MIN_VALUE}.
+	 */
+	@Test
+	public void noRowAcrossIntegerLimits() {
+
+		int[] xs = { Integer.MAX_VALUE - 1, Integer.MIN_VALUE,
+				Integer.MIN_VALUE + 1, Integer.MIN_VALUE + 2, Integer.MAX_VALUE };
+		for (int i = 0; i < xs.length; i++) {
+			assertTrue(game.place(xs[i], 0)); // O
+			if (i < xs.length - 1) {
+				assertTrue(game.place(0, 10 * i)); // X
+			}
+		}
+
+		assertEquals(TicTacToeEngine.GameState.InProgress, game.getGameState());
+
+	}
+
+	/**
+	 * 10,000 moves spread across a 1000 x 1000 area only need memory for the
+	 * moves.
+	 */
+	@Test
+	public void memoryGrowsWithMoves() {
+
+		for (int i = 0; i < 100; i++) {
+			for (int j = 0; j < 100; j++) {
+				assertTrue(game.place(i * 10, j * 10));
+			}
+		}
+
+		SparseBoard cells = game.getCells();
+		assertEquals(10000, cells.size());
+		assertEquals(TicTacToeEngine.GameState.InProgress, game.getGameState());
+
+		// 8 bytes key + 1 byte token per slot.
+		long bytes = cells.capacity() * 9L;
+		assertTrue("board uses " + bytes + " bytes", bytes < 300 * 1024);
+
+		game.restart();
+		assertEquals(0, cells.size());
+		assertNull(game.getToken(0, 0));
+
+	}
+
+	/**
+	 * Undo takes the token off the sparse board and reopens a won game.
+	 */
+	@Test
+	public void undoWinningMove() {
+
+		for (int i = 0; i < 5; i++) {
+			assertTrue(game.place(i, 0)); // O
+			if (i < 4)
+				assertTrue(game.place(i, 1)); // X
+		}
+
+		assertEquals(Token.CIRCLE, game.getWinner());
+
+		assertTrue(game.undo());
+
+		assertEquals(TicTacToeEngine.GameState.InProgress, game.getGameState());
+		assertNull(game.getToken(4, 0));
+		assertEquals(8, game.getCells().size());
+		assertEquals(Token.CIRCLE, game.getNextToken());
+
+		assertTrue(game.redo());
+		assertEquals(Token.CIRCLE, game.getWinner());
+
+	}
+
+	/**
+	 * The position hash of the unbounded board follows random moves far
+	 * apart, and only depends on the tokens.
+	 */
+	@Test
+	public void positionHashMatchesRecomputation() {
+
+		Random random = new Random(7);
+
+		for (int step = 0; step < 5000; step++) {
+
+			if (random.nextInt(4) == 0) {
+				game.undo();
+			} else {
+				game.place(random.nextInt(41) - 20, random.nextInt() >> 8);
+			}
+
+			assertEquals("hash after step " + step,
+					game.computePositionHash(), game.getPositionHash());
+		}
+
+		while (game.undo()) {
+		}
+
+		assertEquals(0, game.getPositionHash());
+
+	}
+
+	/**
+	 * Removal keeps every other entry reachable.
+	 */
+	@Test
+	public void removeKeepsProbeChains() {
+
+		SparseBoard board = new SparseBoard();
+
+		for (int i = 0; i < 1000; i++) {
+			board.put(i, -i, (i % 2 == 0) ? Token.CIRCLE : Token.CROSS);
+		}
+
+		for (int i = 0; i < 1000; i += 3) {
+			board.remove(i, -i);
+		}
+
+		for (int i = 0; i < 1000; i++) {
+			Token expected = (i % 3 == 0) ? null
+					: (i % 2 == 0) ? Token.CIRCLE : Token.CROSS;
+			assertEquals("token at " + i, expected, board.get(i, -i));
+		}
+
+		assertEquals(666, board.size());
+
+	}
+
+}
@@ -9,12 +9,17 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.museviral.training.tdd.example.tictactoe.Position;
 import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
 import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.sun.management.ThreadMXBean;
 
 /**
  * Test cases for TicTacToeEngine.
@@ -677,6 +682,392 @@ public class TicTacToeEngineTest {
 	}	
 	
 	
+	/**
+	 * Undo the last move.
+	 * <p>
+	 * 
+	 * Game board state:
+	 * 
+	 * <pre>
+	 * O . .      O . .
+	 * . X .  =>  . . .
+	 * . . .      . . .
+	 * </pre>
+	 */
+	@Test
+	public void requirement_001800_UndoMove() {
+
+		user_successfully_placed_a_token_at(0, 0); // O
+
+		user_successfully_placed_a_token_at(1, 1); // X
+
+		//
+		// WHEN
+		//
+		assertTrue("undo result should be", game.undo());
+
+		//
+		// THEN
+		//
+		assertBoardShouldBeEmptyExceptCoordinates(new int[][] { { 0, 0 } });
+
+		assertTokenAtCoordinatesShouldBe(1, 1, null);
+
+		assertNextMoveShouldBe(TicTacToeEngine.Token.CROSS);
+
+		assertEquals("token count", 1, game.getTokenCount());
+
+		assertGameIsInProgress();
+
+		// the cell can be used again.
+		user_successfully_placed_a_token_at(1, 1);
+
+		assertTrue(game.undo());
+		assertTrue(game.undo());
+		assertFalse("nothing left to undo", game.undo());
+
+		assertGameBoardIsEmpty();
+
+		assertNextMoveShouldBe(TicTacToeEngine.Token.CIRCLE);
+
+	}
+
+	/**
+	 * Undo the winning move.
+	 * <p>
+	 * 
+	 * Game board state:
+	 * 
+	 * <pre>
+	 * O O O      O O .
+	 * X X .  =>  X X .
+	 * . . .      . . .
+	 * </pre>
+	 */
+	@Test
+	public void requirement_001900_UndoWinningMove() {
+
+		user_successfully_placed_a_token_at(0, 0); // O
+
+		user_successfully_placed_a_token_at(0, 1); // X
+
+		user_successfully_placed_a_token_at(1, 0); // O
+
+		user_successfully_placed_a_token_at(1, 1); // X
+
+		user_successfully_placed_a_token_at(2, 0); // O
+
+		assertWinnerXHasWon(TicTacToeEngine.Token.CIRCLE);
+
+		//
+		// WHEN
+		//
+		assertTrue("undo result should be", game.undo());
+
+		//
+		// THEN
+		//
+		assertGameIsInProgress();
+
+		assertNextMoveShouldBe(TicTacToeEngine.Token.CIRCLE);
+
+		assertTokenAtCoordinatesShouldBe(2, 0, null);
+
+		// the other player can now block the line and take the win.
+		game.undo();
+
+		assertNextMoveShouldBe(TicTacToeEngine.Token.CROSS);
+
+		user_successfully_placed_a_token_at(2, 0); // X
+
+		user_successfully_placed_a_token_at(0, 2); // O
+
+		user_successfully_placed_a_token_at(1, 1); // X
+
+		user_successfully_placed_a_token_at(2, 2); // O
+
+		user_successfully_placed_a_token_at(2, 1); // X
+
+		assertWinnerXHasWon(TicTacToeEngine.Token.CROSS);
+
+	}
+
+	/**
+	 * Redo undone moves, and lose them once a new token is placed.
+	 */
+	@Test
+	public void requirement_002000_RedoMove() {
+
+		user_successfully_placed_a_token_at(0, 0); // O
+
+		user_successfully_placed_a_token_at(0, 1); // X
+
+		user_successfully_placed_a_token_at(1, 0); // O
+
+		user_successfully_placed_a_token_at(1, 1); // X
+
+		user_successfully_placed_a_token_at(2, 0); // O
+
+		game.undo();
+		game.undo();
+
+		//
+		// WHEN
+		//
+		assertTrue("redo result should be", game.redo());
+		assertTrue("redo result should be", game.redo());
+		assertFalse("nothing left to redo", game.redo());
+
+		//
+		// THEN
+		//
+		assertWinnerXHasWon(TicTacToeEngine.Token.CIRCLE);
+
+		assertTokenAtCoordinatesShouldBe(1, 1, TicTacToeEngine.Token.CROSS);
+
+		assertTokenAtCoordinatesShouldBe(2, 0, TicTacToeEngine.Token.CIRCLE);
+
+		// a new move drops the moves to redo.
+		game.undo();
+		game.undo();
+		user_successfully_placed_a_token_at(2, 2); // X
+
+		assertFalse("nothing left to redo", game.redo());
+
+		assertNextMoveShouldBe(TicTacToeEngine.Token.CIRCLE);
+
+	}
+
+	/**
+	 * Undo a draw, and walk a whole game back and forth.
+	 */
+	@Test
+	public void requirement_002100_UndoAndRedoDrawGame() {
+
+		int[][] moves = { { 1, 1 }, { 0, 0 }, { 1, 0 }, { 1, 2 }, { 0, 1 },
+				{ 2, 1 }, { 2, 2 }, { 0, 2 }, { 2, 0 } };
+
+		for (int[] move : moves) {
+			user_successfully_placed_a_token_at(move[0], move[1]);
+		}
+
+		assertGameIsDraw();
+
+		for (int i = 0; i < moves.length; i++) {
+			assertTrue(game.undo());
+			assertGameIsInProgress();
+		}
+
+		assertGameBoardIsEmpty();
+
+		for (int i = 0; i < moves.length; i++) {
+			assertTrue(game.redo());
+		}
+
+		assertGameIsDraw();
+
+		assertEquals("token count", 9, game.getTokenCount());
+
+	}
+
+	/**
+	 * A make/unmake cycle, as used by a search, does not allocate.
+	 */
+	@Test
+	public void requirement_002200_UndoDoesNotAllocate() {
+
+		Object bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof ThreadMXBean))
+			return;
+		ThreadMXBean threads = (ThreadMXBean) bean;
+		long threadId = Thread.currentThread().getId();
+
+		// warm up, then measure.
+		long before = 0;
+		for (int round = 0; round < 2; round++) {
+			before = threads.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < 100000; i++) {
+				game.place(i % 3, (i / 3) % 3);
+				game.place((i + 1) % 3, (i / 3 + 1) % 3);
+				game.undo();
+				game.undo();
+			}
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+
+		assertGameBoardIsEmpty();
+
+	}
+
+	/**
+	 * The incrementally updated position hash always equals the hash computed
+	 * from scratch, through random moves, undo, redo and restart.
+	 */
+	@Test
+	public void requirement_002300_PositionHashMatchesRecomputation() {
+
+		assertEquals("hash of the empty board", 0, game.getPositionHash());
+
+		Random random = new Random(42);
+
+		for (int step = 0; step < 10000; step++) {
+
+			int action = random.nextInt(10);
+			if (action < 6) {
+				game.place(random.nextInt(game.getWidth()),
+						random.nextInt(game.getHeight()));
+			} else if (action < 8) {
+				game.undo();
+			} else if (action < 9) {
+				game.redo();
+			} else if (random.nextInt(10) == 0) {
+				game.restart();
+			}
+
+			assertEquals("hash after step " + step,
+					game.computePositionHash(), game.getPositionHash());
+
+		}
+
+	}
+
+	/**
+	 * The same tokens placed in a different order give the same hash.
+	 */
+	@Test
+	public void requirement_002400_PositionHashOfTransposition() {
+
+		user_successfully_placed_a_token_at(0, 0); // O
+		user_successfully_placed_a_token_at(1, 1); // X
+		user_successfully_placed_a_token_at(2, 2); // O
+
+		long hash = game.getPositionHash();
+
+		TicTacToeEngine other = createGame();
+		assertTrue(other.place(2, 2)); // O
+		assertTrue(other.place(1, 1)); // X
+		assertTrue(other.place(0, 0)); // O
+
+		assertEquals(hash, other.getPositionHash());
+
+		game.undo();
+		assertTrue("hash should change", hash != game.getPositionHash());
+
+		game.restart();
+		assertEquals(0, game.getPositionHash());
+
+	}
+
+	/**
+	 * Restarting reuses the storage of the board.
+	 */
+	@Test
+	public void requirement_002500_RestartDoesNotAllocate() {
+
+		Object bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof ThreadMXBean))
+			return;
+		ThreadMXBean threads = (ThreadMXBean) bean;
+		long threadId = Thread.currentThread().getId();
+
+		// warm up, then measure.
+		long before = 0;
+		for (int round = 0; round < 2; round++) {
+			before = threads.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < 100000; i++) {
+				game.place(i % 3, (i / 3) % 3);
+				game.place((i + 1) % 3, (i / 3 + 1) % 3);
+				game.restart();
+			}
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+
+		assertGameBoardIsEmpty();
+		assertGameIsInProgress();
+
+	}
+
+	/**
+	 * A snapshot restores the tokens, the next token and the state into
+	 * another engine, and the game goes on from there.
+	 */
+	@Test
+	public void requirement_002600_RestorePosition() {
+
+		user_successfully_placed_a_token_at(0, 0); // O
+		user_successfully_placed_a_token_at(1, 1); // X
+		user_successfully_placed_a_token_at(2, 0); // O
+
+		Position position = game.getPosition();
+		assertEquals(3, position.getTokenCount());
+		assertEquals(Token.CROSS, position.getNextToken());
+
+		TicTacToeEngine other = createGame();
+		other.setPosition(position);
+
+		assertEquals(position, other.getPosition());
+		assertEquals(3, other.getTokenCount());
+		assertEquals(game.getPositionHash(), other.getPositionHash());
+		assertEquals(Token.CIRCLE, other.getToken(2, 0));
+		assertEquals(Token.CROSS, other.getNextToken());
+
+		// the snapshot does not change with the game.
+		user_successfully_placed_a_token_at(1, 0); // X
+		assertEquals(3, position.getTokenCount());
+
+		// both games continue the same way, and the moves can be undone.
+		assertTrue(other.place(1, 0)); // X
+		assertTrue(other.place(0, 2)); // O
+		assertTrue(other.place(1, 2)); // X wins
+		assertEquals(TicTacToeEngine.GameState.Complete, other.getGameState());
+		assertEquals(Token.CROSS, other.getWinner());
+
+		while (other.undo())
+			;
+		assertEquals(0, other.getTokenCount());
+		assertEquals(0, other.getPositionHash());
+		assertEquals(Token.CIRCLE, other.getNextToken());
+
+	}
+
+	/**
+	 * A finished 3 x 3 game fits in one <code>long</code>.
+	 */
+	@Test
+	public void requirement_002700_PackedPosition() {
+
+		user_successfully_placed_a_token_at(0, 0); // O
+		user_successfully_placed_a_token_at(0, 1); // X
+		user_successfully_placed_a_token_at(1, 0); // O
+		user_successfully_placed_a_token_at(1, 1); // X
+		user_successfully_placed_a_token_at(2, 0); // O wins
+
+		long packed = game.getPosition().getPacked();
+
+		TicTacToeEngine other = createGame();
+		other.setPosition(Position.fromPacked(3, 3, packed));
+
+		assertEquals(TicTacToeEngine.GameState.Complete, other.getGameState());
+		assertEquals(Token.CIRCLE, other.getWinner());
+		assertFalse(other.place(2, 2));
+
+		for (int y = 0; y < 3; y++) {
+			for (int x = 0; x < 3; x++) {
+				assertEquals(game.getToken(x, y), other.getToken(x, y));
+			}
+		}
+
+		other.setPosition(createGame().getPosition());
+		game = other;
+		assertGameBoardIsEmpty();
+		assertGameIsInProgress();
+
+	}
+
 	protected void assertTokenAtCoordinatesShouldBe(int x, int y,
 			Token expectedToken) {
 
@@ -0,0 +1,242 @@
+/**
+ *
+ */
+package com.museviral.training.tdd.example.tictactoe.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.museviral.training.tdd.example.tictactoe.KInARowEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.GameState;
+import com.museviral.training.tdd.example.tictactoe.TicTacToeEngine.Token;
+import com.museviral.training.tdd.example.tictactoe.ai.SearchResult;
+import com.museviral.training.tdd.example.tictactoe.ai.TicTacToeSolver;
+import com.museviral.training.tdd.example.tictactoe.ai.TranspositionTable;
+
+/**
+ * Test cases for {@link TicTacToeSolver}.
+ *
+ * @author Cyril
+ * @since 0.4.0
+ */
+public class TicTacToeSolverTest {
+
+	TicTacToeSolver solver;
+
+	TicTacToeEngine game;
+
+	@Before
+	public void setUp() throws Exception {
+		solver = new TicTacToeSolver(new TranspositionTable(16));
+		game = new TicTacToeEngine();
+	}
+
+	/**
+	 * The empty board is a draw with perfect play, and the search leaves the
+	 * board untouched.
+	 */
+	@Test
+	public void emptyBoardIsDraw() {
+
+		SearchResult result = solver.search(game);
+
+		assertEquals("score", 0, result.getScore());
+		assertFalse(result.isWin());
+		assertFalse(result.isLoss());
+
+		assertEquals(0, game.getTokenCount());
+		assertEquals(Token.CIRCLE, game.getNextToken());
+		assertEquals(GameState.InProgress, game.getGameState());
+
+	}
+
+	/**
+	 * Take the win instead of blocking.
+	 *
+	 * <pre>
+	 * O O .
+	 * X X .
+	 * . . .
+	 * </pre>
+	 */
+	@Test
+	public void takeImmediateWin() {
+
+		play(0, 0, 0, 1, 1, 0, 1, 1);
+
+		SearchResult result = solver.search(game);
+
+		assertEquals(2, result.getX());
+		assertEquals(0, result.getY());
+		assertEquals(TicTacToeSolver.WIN_SCORE - 1, result.getScore());
+
+	}
+
+	/**
+	 * Block the only threat of the opponent.
+	 *
+	 * <pre>
+	 * O . .
+	 * X X .
+	 * . . O
+	 * </pre>
+	 */
+	@Test
+	public void blockThreat() {
+
+		play(0, 0, 0, 1, 2, 2, 1, 1);
+
+		SearchResult result = solver.search(game);
+
+		assertEquals(2, result.getX());
+		assertEquals(1, result.getY());
+
+	}
+
+	/**
+	 * A fork wins by force.
+	 *
+	 * <pre>
+	 * O . .
+	 * . X .
+	 * . . O
+	 * </pre>
+	 *
+	 * X must play an edge; a corner loses.
+	 */
+	@Test
+	public void avoidLosingCorner() {
+
+		play(0, 0, 1, 1, 2, 2);
+
+		SearchResult result = solver.search(game);
+
+		assertEquals("score", 0, result.getScore());
+		assertEquals("edge move", 1, (result.getX() + result.getY()) % 2);
+
+	}
+
+	/**
+	 * Two perfect players always draw.
+	 */
+	@Test
+	public void selfPlayIsDraw() {
+
+		while (game.getGameState() == GameState.InProgress) {
+			SearchResult result = solver.search(game);
+			assertTrue(game.place(result.getX(), result.getY()));
+		}
+
+		assertEquals(null, game.getWinner());
+
+	}
+
+	/**
+	 * Solving the empty board takes well under a millisecond once the code is
+	 * warmed up.
+	 */
+	@Test
+	public void solveEmptyBoardQuickly() {
+
+		for (int i = 0; i < 200; i++) {
+			solver.getTable().clear();
+			solver.search(game);
+		}
+
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < 20; i++) {
+			solver.getTable().clear();
+			best = Math.min(best, solver.search(game).getElapsedNanos());
+		}
+
+		assertTrue("solving took " + best + "ns", best < 1000000L);
+
+	}
+
+	/**
+	 * A solver used for boards of the same number of cells but other rules
+	 * finds the results of a new solver.
+	 */
+	@Test
+	public void otherRulesSameCells() {
+
+		TicTacToeEngine[] games = { new KInARowEngine(4, 4, 3),
+				new KInARowEngine(4, 4, 4), new KInARowEngine(3, 4, 3),
+				new KInARowEngine(4, 3, 3) };
+
+		for (TicTacToeEngine engine : games) {
+			engine.place(1, 1);
+			int expected = new TicTacToeSolver(new TranspositionTable(16))
+					.search(engine).getScore();
+			assertEquals(engine.getWidth() + "x" + engine.getHeight() + " "
+					+ engine.getWinLength(), expected, solver.search(engine)
+					.getScore());
+		}
+
+	}
+
+	/**
+	 * Depth-limited search completes an open four on a gomoku board.
+	 */
+	@Test
+	public void gomokuCompletesFive() {
+
+		game = new KInARowEngine(15, 15, 5);
+		solver.setMaxDepth(3);
+
+		play(5, 7, 0, 0, 6, 7, 0, 1, 7, 7, 0, 2, 8, 7, 14, 14);
+
+		SearchResult result = solver.search(game);
+
+		assertTrue(result.isWin());
+		assertEquals(7, result.getY());
+		assertTrue(result.getX() == 4 || result.getX() == 9);
+
+	}
+
+	/**
+	 * Depth-limited search blocks an open three on a gomoku board.
+	 */
+	@Test
+	public void gomokuBlocksOpenThree() {
+
+		game = new KInARowEngine(15, 15, 5);
+		solver.setMaxDepth(2);
+
+		play(5, 7, 7, 8, 6, 7, 7, 9, 7, 7);
+
+		SearchResult result = solver.search(game);
+
+		assertEquals(7, result.getY());
+		assertTrue("blocks at " + result, result.getX() == 4
+				|| result.getX() == 8);
+
+	}
+
+	/**
+	 * An open four cannot be stopped.
+	 */
+	@Test
+	public void gomokuOpenFourIsLost() {
+
+		game = new KInARowEngine(15, 15, 5);
+		solver.setMaxDepth(2);
+
+		play(5, 7, 7, 8, 6, 7, 7, 9, 7, 7, 14, 14, 8, 7);
+
+		assertTrue(solver.search(game).isLoss());
+
+	}
+
+	private void play(int... coordinates) {
+		for (int i = 0; i < coordinates.length; i += 2) {
+			assertTrue(game.place(coordinates[i], coordinates[i + 1]));
+		}
+	}
+
+}